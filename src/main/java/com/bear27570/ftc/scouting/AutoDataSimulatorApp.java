@@ -12,6 +12,7 @@ import com.bear27570.ftc.scouting.repository.impl.CompetitionRepositoryJdbiImpl;
 import com.bear27570.ftc.scouting.repository.impl.PenaltyRepositoryJdbiImpl;
 import com.bear27570.ftc.scouting.repository.impl.ScoreRepositoryJdbiImpl;
 import com.bear27570.ftc.scouting.repository.impl.UserRepositoryJdbiImpl;
+import com.bear27570.ftc.scouting.utils.ShotEventCodec;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -24,7 +25,6 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale; // 👈 新增引入
 import java.util.Random;
 
 public class AutoDataSimulatorApp {
@@ -205,26 +205,24 @@ public class AutoDataSimulatorApp {
     }
 
     private static String generateHeatmapData(int nearHits, int farHits) {
-        StringBuilder sb = new StringBuilder();
+        ShotEventCodec.Writer writer = new ShotEventCodec.Writer();
         long baseTimestamp = System.currentTimeMillis() - 120000;
 
         for (int i = 0; i < nearHits; i++) {
             double x = clamp(325 + random.nextGaussian() * 80, 50, FIELD_WIDTH - 50);
             double y = clamp(216 + random.nextGaussian() * 100, 50, DIVIDER_Y - 10);
             baseTimestamp += random.nextInt(4000) + 1000;
-            // 💡 强制 Locale.US 防止双浮点数逗号污染
-            sb.append(String.format(Locale.US, "1:%.1f,%.1f,0,%d;", x, y, baseTimestamp));
+            writer.add(1, x, y, ShotEventCodec.STATE_HIT, baseTimestamp);
         }
 
         for (int i = 0; i < farHits; i++) {
             double x = clamp(325 + random.nextGaussian() * 60, 100, FIELD_WIDTH - 100);
             double y = clamp(540 + random.nextGaussian() * 50, DIVIDER_Y + 10, FIELD_HEIGHT - 30);
             baseTimestamp += random.nextInt(5000) + 1500;
-            // 💡 强制 Locale.US
-            sb.append(String.format(Locale.US, "2:%.1f,%.1f,0,%d;", x, y, baseTimestamp));
+            writer.add(2, x, y, ShotEventCodec.STATE_HIT, baseTimestamp);
         }
 
-        return sb.toString();
+        return writer.toStoredString();
     }
 
     private static double clamp(double value, double min, double max) {
@@ -5,6 +5,7 @@ import atlantafx.base.theme.CupertinoDark;
 import com.bear27570.ftc.scouting.controllers.*;
 import com.bear27570.ftc.scouting.models.Competition;
 import com.bear27570.ftc.scouting.models.ScoreEntry;
+import com.bear27570.ftc.scouting.models.ShotGrid;
 import com.bear27570.ftc.scouting.repository.*;
 import com.bear27570.ftc.scouting.repository.impl.*;
 import com.bear27570.ftc.scouting.services.NetworkService;
@@ -28,6 +29,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 
@@ -40,11 +42,20 @@ public class MainApplication extends Application {
     private CompetitionRepository competitionRepository;
     private ScoreRepository scoreRepository;
     private PenaltyRepository penaltyRepository;
+    private CompetitionDataRepository competitionDataRepository;
+    private TeamRankingRepository teamRankingRepository;
 
     private UserService userService;
     private CompetitionService competitionService;
     private MatchDataService matchDataService;
     private RankingService rankingService;
+    private ShotEventCache shotEventCache;
+    private ScoreWritePipeline scoreWritePipeline;
+    private SubmissionJournal submissionJournal;
+    private JournalReplayService journalReplayService;
+    private TeamProfileService teamProfileService;
+    private MatchPredictionService matchPredictionService;
+    private SeasonRankingService seasonRankingService;
     private static final Logger log = LoggerFactory.getLogger(MainApplication.class);
     private void applyTheme(Scene scene) {
         URL cssUrl = getClass().getResource("styles/style.css");
@@ -90,16 +101,53 @@ public class MainApplication extends Application {
         competitionRepository = new CompetitionRepositoryJdbiImpl();
         scoreRepository = new ScoreRepositoryJdbiImpl(); // 这是上次发给你的那个
         penaltyRepository = new PenaltyRepositoryJdbiImpl();
+        competitionDataRepository = new CompetitionDataRepositoryJdbiImpl();
+        teamRankingRepository = new TeamRankingRepositoryJdbiImpl();
+
+        openSubmissionJournal(dbFolder);
 
         userService = new UserServiceImpl(userRepository);
         competitionService = new CompetitionServiceImpl(competitionRepository, membershipRepository, userRepository);
-        matchDataService = new MatchDataServiceImpl(scoreRepository, penaltyRepository);
-        rankingService = new RankingService(scoreRepository, penaltyRepository, competitionRepository);
+        matchDataService = new MatchDataServiceImpl(scoreRepository, penaltyRepository, submissionJournal);
+        shotEventCache = new ShotEventCache();
+        rankingService = new RankingService(scoreRepository, penaltyRepository, competitionRepository,
+                competitionDataRepository, teamRankingRepository, shotEventCache);
+        matchDataService.addDataChangeListener(shotEventCache); // 先让投射点缓存失效
+        matchDataService.addDataChangeListener(rankingService); // 成绩/判罚变更增量推给排名引擎
+        scoreWritePipeline = new ScoreWritePipeline(matchDataService); // 主机收到的从机成绩统一经此排队组提交
+        teamProfileService = new TeamProfileService(competitionRepository, competitionDataRepository);
+        matchPredictionService = new MatchPredictionService(competitionDataRepository);
+        seasonRankingService = new SeasonRankingService(competitionRepository, competitionDataRepository);
 
         NetworkDataHandler networkDataHandler = new DefaultNetworkDataHandler(membershipRepository, userRepository, matchDataService, rankingService);
         NetworkService.getInstance().setDataHandler(networkDataHandler);
     }
 
+    // 写库前的提交日志：打开时先把上次崩溃前没来得及落库的记录补进 H2。日志不可用时照常运行，只是不记日志
+    private void openSubmissionJournal(String dbFolder) {
+        try {
+            submissionJournal = new SubmissionJournal(Paths.get(dbFolder, "journal"));
+            journalReplayService = new JournalReplayService(submissionJournal, scoreRepository, penaltyRepository, competitionRepository);
+            JournalReplayService.Report report = journalReplayService.recover();
+            log.info("[Journal] Replayed {} records since last checkpoint, last sequence {}", report.records(), submissionJournal.getLastSequence());
+        } catch (Exception e) {
+            log.error("Submission journal unavailable, continuing without it", e);
+            if (submissionJournal != null) submissionJournal.close();
+            submissionJournal = null;
+            journalReplayService = null;
+        }
+    }
+
+    private void closeSubmissionJournal() {
+        if (submissionJournal == null) return;
+        try {
+            journalReplayService.checkpoint();
+        } catch (IOException e) {
+            log.warn("Failed to write journal checkpoint: {}", e.getMessage());
+        }
+        submissionJournal.close();
+    }
+
     @Override
     public void start(Stage primaryStage) throws IOException {
         Font.loadFont(getClass().getResourceAsStream("/com/bear27570/ftc/scouting/fonts/Audiowide-Regular.ttf"), 14);
@@ -119,6 +167,9 @@ public class MainApplication extends Application {
             if (NetworkService.getInstance() != null) {
                 NetworkService.getInstance().stop();
             }
+            // 网络已停，不会再有新提交；把已回复过从机的成绩写完再退出
+            scoreWritePipeline.close();
+            closeSubmissionJournal();
             // 强制退出所有 Java 线程，防止有残留的守护线程导致进程假死
             System.exit(0);
         });
@@ -158,7 +209,8 @@ public class MainApplication extends Application {
         primaryStage.setScene(scene);
         centerStage();
         MainController controller = loader.getController();
-        controller.setDependencies(this, competition, username, isHost, matchDataService, rankingService, competitionRepository, userService);
+        controller.setDependencies(this, competition, username, isHost, matchDataService, rankingService, seasonRankingService,
+                competitionRepository, userService, scoreWritePipeline);
     }
 
     public void showCoordinatorView(Competition competition) throws IOException {
@@ -196,6 +248,7 @@ public class MainApplication extends Application {
         Stage stage = new Stage();
         Map<Integer, PenaltyRepository.FullPenaltyRow> penaltyMap = penaltyRepository.getFullPenalties(competition.getName());
         List<ScoreEntry> matches = matchDataService.getTeamHistory(competition.getName(), teamNum);
+        ShotGrid shotGrid = matchDataService.getTeamShotGrid(competition.getName(), teamNum);
         stage.setTitle("Heatmap - Team " + teamNum);
         setStageIcon(stage);
 
@@ -212,7 +265,7 @@ public class MainApplication extends Application {
         applyTheme(scene);
         stage.setScene(scene);
         HeatmapController controller = loader.getController();
-        controller.setData(teamNum, matches, penaltyMap);
+        controller.setData(teamNum, matches, penaltyMap, shotGrid, shotEventCache);
         stage.show();
     }
 
@@ -225,7 +278,7 @@ public class MainApplication extends Application {
         applyTheme(scene);
         stage.setScene(scene);
         AllianceAnalysisController controller = loader.getController();
-        controller.setDependencies(stage, competition, rankingService, matchDataService, userService, username);
+        controller.setDependencies(stage, competition, teamProfileService, matchPredictionService, rankingService, userService, username);
         stage.show();
     }
 
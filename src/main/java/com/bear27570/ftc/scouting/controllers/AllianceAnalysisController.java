@@ -1,10 +1,14 @@
 package com.bear27570.ftc.scouting.controllers;
 
 import com.bear27570.ftc.scouting.models.Competition;
-import com.bear27570.ftc.scouting.models.ScoreEntry;
+import com.bear27570.ftc.scouting.models.DraftRecommendation;
+import com.bear27570.ftc.scouting.models.MatchPrediction;
 import com.bear27570.ftc.scouting.models.TeamRanking;
-import com.bear27570.ftc.scouting.services.domain.MatchDataService;
+import com.bear27570.ftc.scouting.services.domain.DraftSimulator;
+import com.bear27570.ftc.scouting.services.domain.MatchPredictionService;
 import com.bear27570.ftc.scouting.services.domain.RankingService;
+import com.bear27570.ftc.scouting.services.domain.TeamProfileIndex;
+import com.bear27570.ftc.scouting.services.domain.TeamProfileService;
 import com.bear27570.ftc.scouting.services.domain.UserService;
 import com.bear27570.ftc.scouting.services.network.GeminiApiClient;
 import com.bear27570.ftc.scouting.utils.FxThread;
@@ -34,7 +38,7 @@ import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 public class AllianceAnalysisController {
 
@@ -54,6 +58,12 @@ public class AllianceAnalysisController {
     private TableColumn<AnalysisResult, Double> stabilityCol;
     @FXML
     private TableColumn<AnalysisResult, String> styleCol;
+    @FXML
+    private TextField opponentsField;
+    @FXML
+    private Label predictionLabel;
+    @FXML
+    private Label draftLabel;
 
     @FXML
     private PasswordField apiKeyField;
@@ -77,11 +87,12 @@ public class AllianceAnalysisController {
 
     private Competition competition;
     private Stage dialogStage;
+    private TeamProfileService teamProfileService;
+    private MatchPredictionService matchPredictionService;
     private RankingService rankingService;
-    private MatchDataService matchDataService;
+    private final DraftSimulator draftSimulator = new DraftSimulator();
     private UserService userService;
     private String currentUsername;
-    private static final double ZONE_DIVIDER_Y = 400.0;
 
     private GeminiApiClient geminiApiClient;
 
@@ -100,11 +111,14 @@ public class AllianceAnalysisController {
 
     private List<ChatMessage> chatHistory = new ArrayList<>();
 
-    public void setDependencies(Stage dialogStage, Competition competition, RankingService rankingService, MatchDataService matchDataService, UserService userService, String currentUsername) {
+    public void setDependencies(Stage dialogStage, Competition competition, TeamProfileService teamProfileService,
+                                MatchPredictionService matchPredictionService, RankingService rankingService,
+                                UserService userService, String currentUsername) {
         this.dialogStage = dialogStage;
         this.competition = competition;
+        this.teamProfileService = teamProfileService;
+        this.matchPredictionService = matchPredictionService;
         this.rankingService = rankingService;
-        this.matchDataService = matchDataService;
         this.userService = userService;
         this.currentUsername = currentUsername;
 
@@ -444,160 +458,168 @@ public class AllianceAnalysisController {
         }
     }
 
-    private static class TeamHeatmapProfile {
-        int teamNum;
-        double nearRoleAvgHits;
-        double farRoleAvgHits;
-        String style;
-        double accuracy;
-        double stability;
-    }
-
     @FXML
     private void handleAnalyze() {
         String input = mainTeamField.getText();
         if (input.isEmpty()) return;
 
+        int mainTeamNum;
         try {
-            int mainTeamNum = Integer.parseInt(input);
-            List<TeamRanking> allRankings = rankingService.calculateRankings(competition.getName());
-
-            TeamHeatmapProfile mainProfile = getTeamHeatmapProfile(competition.getName(), mainTeamNum, allRankings);
-            if (mainProfile == null) {
-                mainTeamStatsLabel.setText("Team " + mainTeamNum + " has no match data.");
-                analysisTable.getItems().clear();
-                return;
-            }
-
-            mainTeamStatsLabel.setText(String.format("Main: %d | Near: %.1f Hits/M | Far: %.1f Hits/M | Style: %s",
-                    mainTeamNum, mainProfile.nearRoleAvgHits, mainProfile.farRoleAvgHits, mainProfile.style));
+            mainTeamNum = Integer.parseInt(input);
+        } catch (NumberFormatException e) {
+            mainTeamStatsLabel.setText("Invalid Team Number");
+            return;
+        }
 
-            List<AnalysisResult> results = new ArrayList<>();
-            for (TeamRanking tr : allRankings) {
-                if (tr.getTeamNumber() == mainTeamNum) continue;
+        // 画像索引按数据版本缓存，版本变化后的首次重建涉及读库，放到后台线程
+        CompletableFuture.supplyAsync(() -> teamProfileService.getIndex(competition.getName()))
+                .thenAccept(index -> FxThread.run(() -> showAnalysis(mainTeamNum, index)))
+                .exceptionally(ex -> {
+                    log.error("Failed to build team profiles", ex);
+                    FxThread.run(() -> mainTeamStatsLabel.setText("Analysis failed: " + ex.getMessage()));
+                    return null;
+                });
+    }
 
-                TeamHeatmapProfile partnerProfile = getTeamHeatmapProfile(competition.getName(), tr.getTeamNumber(), allRankings);
-                if (partnerProfile == null) continue;
+    @FXML
+    private void handlePredictMatch() {
+        AnalysisResult partner = analysisTable.getSelectionModel().getSelectedItem();
+        int mainTeamNum;
+        try {
+            mainTeamNum = Integer.parseInt(mainTeamField.getText().trim());
+        } catch (NumberFormatException e) {
+            predictionLabel.setText("Invalid Team Number");
+            return;
+        }
+        if (partner == null) {
+            predictionLabel.setText("Select a partner in the table first.");
+            return;
+        }
 
-                double scorePlanA = mainProfile.farRoleAvgHits + partnerProfile.nearRoleAvgHits;
-                double scorePlanB = mainProfile.nearRoleAvgHits + partnerProfile.farRoleAvgHits;
+        String[] parts = opponentsField.getText().trim().split("[,\\s]+");
+        if (parts.length != 2) {
+            predictionLabel.setText("Enter two opponent teams, e.g. 1234, 5678");
+            return;
+        }
+        int[] blue = new int[2];
+        try {
+            for (int i = 0; i < 2; i++) blue[i] = Integer.parseInt(parts[i]);
+        } catch (NumberFormatException e) {
+            predictionLabel.setText("Invalid opponent team number");
+            return;
+        }
+        int[] red = {mainTeamNum, partner.getPartnerTeam()};
 
-                double bestCombinedHits;
-                String synergyNote;
+        // 十万次模拟并读库，放到后台线程
+        predictionLabel.setText("Simulating...");
+        CompletableFuture.supplyAsync(() -> matchPredictionService.predict(competition.getName(), red, blue))
+                .thenAccept(prediction -> FxThread.run(() -> showPrediction(red, blue, prediction)))
+                .exceptionally(ex -> {
+                    log.error("Match prediction failed", ex);
+                    FxThread.run(() -> predictionLabel.setText("Prediction failed: " + ex.getMessage()));
+                    return null;
+                });
+    }
 
-                if (scorePlanA >= scorePlanB) {
-                    bestCombinedHits = scorePlanA;
-                    synergyNote = "Main-Far / Partner-Near";
-                } else {
-                    bestCombinedHits = scorePlanB;
-                    synergyNote = "Main-Near / Partner-Far";
-                }
+    private void showPrediction(int[] red, int[] blue, MatchPrediction p) {
+        String text = String.format("%d+%d: %.1f%% (P50 %d, %d–%d) | %d+%d: %.1f%% (P50 %d, %d–%d) | Tie %.1f%%",
+                red[0], red[1], p.getRedWinProbability() * 100, p.getRedP50(), p.getRedP10(), p.getRedP90(),
+                blue[0], blue[1], p.getBlueWinProbability() * 100, p.getBlueP50(), p.getBlueP10(), p.getBlueP90(),
+                p.getTieProbability() * 100);
+        if (!p.getTeamsWithoutData().isEmpty()) text += " | No data: " + p.getTeamsWithoutData();
+        predictionLabel.setText(text);
+    }
 
-                if (mainProfile.style.equals(partnerProfile.style) && !mainProfile.style.equals("Hybrid")) {
-                    synergyNote += " (Style Conflict!)";
-                }
-                if (bestCombinedHits == 0) synergyNote = "Insufficient Data";
+    @FXML
+    private void handleDraftAdvice() {
+        int mainTeamNum;
+        try {
+            mainTeamNum = Integer.parseInt(mainTeamField.getText().trim());
+        } catch (NumberFormatException e) {
+            draftLabel.setText("Invalid Team Number");
+            return;
+        }
 
-                double combinedAcc = (mainProfile.accuracy + partnerProfile.accuracy) / 2.0;
-                double combinedStability = Math.sqrt(Math.pow(mainProfile.stability, 2) + Math.pow(partnerProfile.stability, 2));
+        // 读排名 + 二十万次树搜索，放到后台线程
+        draftLabel.setText("Simulating alliance selection...");
+        CompletableFuture.supplyAsync(() -> recommendDraft(mainTeamNum))
+                .thenAccept(text -> FxThread.run(() -> draftLabel.setText(text)))
+                .exceptionally(ex -> {
+                    log.error("Draft simulation failed", ex);
+                    FxThread.run(() -> draftLabel.setText("Draft simulation failed: " + ex.getMessage()));
+                    return null;
+                });
+    }
 
-                results.add(new AnalysisResult(partnerProfile.teamNum, bestCombinedHits, combinedAcc, combinedStability, synergyNote));
-            }
+    private String recommendDraft(int mainTeamNum) {
+        List<TeamRanking> seedOrder = new ArrayList<>(rankingService.calculateRankings(competition.getName()));
+        seedOrder.sort(Comparator.comparingDouble(TeamRanking::getRating).reversed());
+        if (seedOrder.stream().noneMatch(r -> r.getTeamNumber() == mainTeamNum)) {
+            return "Team " + mainTeamNum + " is not ranked yet.";
+        }
 
-            results.sort(Comparator.comparingDouble(AnalysisResult::getTotalEfficiency).reversed());
-            analysisTable.setItems(FXCollections.observableArrayList(results));
+        // 联盟数取队伍数容得下的最大对阵表（每个联盟 1 队长 + 1 受邀）
+        DraftSimulator.Settings settings = new DraftSimulator.Settings();
+        settings.alliances = seedOrder.size() >= 16 ? 8 : seedOrder.size() >= 8 ? 4 : 2;
+        if (seedOrder.size() < settings.alliances * (settings.picksPerAlliance + 1)) {
+            return "Not enough ranked teams to simulate alliance selection.";
+        }
 
-        } catch (NumberFormatException e) {
-            mainTeamStatsLabel.setText("Invalid Team Number");
+        DraftRecommendation recommendation = draftSimulator.recommend(seedOrder, mainTeamNum, settings);
+        List<DraftRecommendation.Choice> top = recommendation.getChoices()
+                .subList(0, Math.min(3, recommendation.getChoices().size()));
+        StringBuilder text = new StringBuilder(settings.alliances + " alliances | ");
+        for (int i = 0; i < top.size(); i++) {
+            DraftRecommendation.Choice c = top.get(i);
+            if (i > 0) text.append(" | ");
+            text.append(c.getAction() == DraftRecommendation.Action.PICK ? "Pick " + c.getTeamNumber() : c.getAction().name())
+                    .append(String.format(": %.1f%% title", c.getChampionshipProbability() * 100));
         }
+        return text.toString();
     }
 
-    private TeamHeatmapProfile getTeamHeatmapProfile(String compName, int teamNum, List<TeamRanking> rankings) {
-        List<ScoreEntry> matches = matchDataService.getTeamHistory(compName, teamNum);
-        List<ScoreEntry> validMatches = matches.stream().filter(m -> {
-            boolean isT1 = (m.getTeam1() == teamNum && !m.isTeam1Broken());
-            boolean isT2 = (m.getTeam2() == teamNum && !m.isTeam2Broken());
-            return isT1 || isT2;
-        }).collect(Collectors.toList());
+    private void showAnalysis(int mainTeamNum, TeamProfileIndex index) {
+        TeamProfileIndex.TeamProfile mainProfile = index.get(mainTeamNum);
+        if (mainProfile == null) {
+            mainTeamStatsLabel.setText("Team " + mainTeamNum + " has no match data.");
+            analysisTable.getItems().clear();
+            return;
+        }
 
-        if (validMatches.isEmpty()) return null;
+        mainTeamStatsLabel.setText(String.format("Main: %d | Near: %.1f Hits/M | Far: %.1f Hits/M | Style: %s",
+                mainTeamNum, mainProfile.getNearRoleAvgHits(), mainProfile.getFarRoleAvgHits(), mainProfile.getStyle()));
 
-        double sumHitsWhenNear = 0, sumHitsWhenFar = 0;
-        int countNearGames = 0, countFarGames = 0, globalNearShots = 0, globalFarShots = 0;
+        List<AnalysisResult> results = new ArrayList<>();
+        for (TeamProfileIndex.TeamProfile partnerProfile : index.all()) {
+            if (partnerProfile.getTeamNumber() == mainTeamNum) continue;
 
-        for (ScoreEntry m : validMatches) {
-            String locs = m.getClickLocations();
-            if (locs == null || locs.isEmpty()) continue;
-            int mNearHits = 0, mFarHits = 0, mNearShots = 0, mFarShots = 0;
-            for (String p : locs.split(";")) {
-                try {
-                    String[] parts = p.split(":");
-                    int pTeamIdx = Integer.parseInt(parts[0]);
-                    int actualTeamNum = (pTeamIdx == 1) ? m.getTeam1() : m.getTeam2();
-                    if (actualTeamNum == teamNum) {
-                        String[] coords = parts[1].split(",");
-                        double y = Double.parseDouble(coords[1]);
-                        boolean isHit = (Integer.parseInt(coords[2]) == 0);
-                        if (y < ZONE_DIVIDER_Y) {
-                            mNearShots++;
-                            if (isHit) mNearHits++;
-                        } else {
-                            mFarShots++;
-                            if (isHit) mFarHits++;
-                        }
-                    }
-                } catch (Exception ignored) {
-                }
-            }
-            globalNearShots += mNearShots;
-            globalFarShots += mFarShots;
-            int totalShots = mNearShots + mFarShots;
-            if (totalShots > 0) {
-                double farRatio = (double) mFarShots / totalShots;
-                if (farRatio > 0.65) {
-                    sumHitsWhenFar += (mNearHits + mFarHits);
-                    countFarGames++;
-                } else if (farRatio < 0.35) {
-                    sumHitsWhenNear += (mNearHits + mFarHits);
-                    countNearGames++;
-                }
+            double scorePlanA = mainProfile.getFarRoleAvgHits() + partnerProfile.getNearRoleAvgHits();
+            double scorePlanB = mainProfile.getNearRoleAvgHits() + partnerProfile.getFarRoleAvgHits();
+
+            double bestCombinedHits;
+            String synergyNote;
+
+            if (scorePlanA >= scorePlanB) {
+                bestCombinedHits = scorePlanA;
+                synergyNote = "Main-Far / Partner-Near";
+            } else {
+                bestCombinedHits = scorePlanB;
+                synergyNote = "Main-Near / Partner-Far";
             }
-        }
 
-        TeamHeatmapProfile profile = new TeamHeatmapProfile();
-        profile.teamNum = teamNum;
-        profile.nearRoleAvgHits = (countNearGames > 0) ? (sumHitsWhenNear / countNearGames) : 0.0;
-        profile.farRoleAvgHits = (countFarGames > 0) ? (sumHitsWhenFar / countFarGames) : 0.0;
-
-        int totalGlobalShots = globalNearShots + globalFarShots;
-        if (totalGlobalShots == 0) profile.style = "Unknown";
-        else {
-            double farRatio = (double) globalFarShots / totalGlobalShots;
-            if (farRatio > 0.65) profile.style = "Far";
-            else if (farRatio < 0.35) profile.style = "Near";
-            else profile.style = "Hybrid";
-        }
+            if (mainProfile.getStyle().equals(partnerProfile.getStyle()) && !mainProfile.getStyle().equals("Hybrid")) {
+                synergyNote += " (Style Conflict!)";
+            }
+            if (bestCombinedHits == 0) synergyNote = "Insufficient Data";
 
-        TeamRanking tr = rankings.stream().filter(r -> r.getTeamNumber() == teamNum).findFirst().orElse(null);
-        profile.accuracy = (tr != null) ? parseAcc(tr.getAccuracyFormatted()) : 0;
-        List<Double> scores = validMatches.stream().map(m -> (double) m.getTotalScore() / (m.getScoreType() == ScoreEntry.Type.ALLIANCE ? 2.0 : 1.0)).collect(Collectors.toList());
-        profile.stability = calculateStdDev(scores);
-        return profile;
-    }
+            double combinedAcc = (mainProfile.getAccuracy() + partnerProfile.getAccuracy()) / 2.0;
+            double combinedStability = Math.sqrt(Math.pow(mainProfile.getStability(), 2) + Math.pow(partnerProfile.getStability(), 2));
 
-    private double parseAcc(String accStr) {
-        if (accStr == null || accStr.equals("N/A")) return 0.0;
-        try {
-            return Double.parseDouble(accStr.replace("%", ""));
-        } catch (Exception e) {
-            return 0.0;
+            results.add(new AnalysisResult(partnerProfile.getTeamNumber(), bestCombinedHits, combinedAcc, combinedStability, synergyNote));
         }
-    }
 
-    private double calculateStdDev(List<Double> data) {
-        if (data == null || data.size() < 2) return 0.0;
-        double mean = data.stream().mapToDouble(d -> d).average().orElse(0.0);
-        return Math.sqrt(data.stream().mapToDouble(d -> Math.pow(d - mean, 2)).sum() / (data.size() - 1));
+        results.sort(Comparator.comparingDouble(AnalysisResult::getTotalEfficiency).reversed());
+        analysisTable.setItems(FXCollections.observableArrayList(results));
     }
 
     public static class AnalysisResult {
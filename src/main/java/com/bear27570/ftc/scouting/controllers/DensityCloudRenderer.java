@@ -0,0 +1,126 @@
+package com.bear27570.ftc.scouting.controllers;
+
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.nio.IntBuffer;
+import java.util.stream.IntStream;
+
+/**
+ * 概率云的离屏渲染：投射点按权重落到一张 float 网格上，再做可分离的高斯模糊（先按行、后按列两次一维卷积），
+ * 最后经 256 级调色板写成 ARGB 像素。
+ * <p>
+ * 二维高斯核 exp(-(dx² + dy²) / 2σ²) 等于两个一维核之积，结果与逐点叠加二维核一致（核的范围同为 [-3σ, 3σ)），
+ * 每个点的开销从 (6σ)² 次 exp 降到两次一维累加，且核只在构造时算一次。两次卷积按行 / 列分条在公共 ForkJoinPool 上并行，
+ * 每条只写自己的行或列，无需同步。不涉及任何 JavaFX 节点，可在后台线程调用；返回的图像交给 FX 线程绘制即可。
+ */
+final class DensityCloudRenderer {
+
+    // 每个并行任务处理的行数 / 列数
+    private static final int STRIP = 32;
+
+    private final int width;
+    private final int height;
+    private final int radius;
+    // kernel[d + radius] = exp(-d² / 2σ²)，d ∈ [-radius, radius)
+    private final float[] kernel;
+    // 按行存放的落点权重，只有 usedRows 标记的行非零
+    private final float[] splats;
+    private final boolean[] usedRows;
+
+    DensityCloudRenderer(int width, int height, double sigma) {
+        this.width = width;
+        this.height = height;
+        this.radius = (int) (sigma * 3);
+        this.kernel = new float[2 * radius];
+        double sigmaSq2 = 2 * sigma * sigma;
+        for (int d = -radius; d < radius; d++) kernel[d + radius] = (float) Math.exp(-(double) d * d / sigmaSq2);
+        this.splats = new float[width * height];
+        this.usedRows = new boolean[height];
+    }
+
+    /** 在 (x, y) 处累加一个权重为 weight 的点，画布外的点忽略 */
+    void splat(double x, double y, double weight) {
+        int cx = (int) x;
+        int cy = (int) y;
+        if (cx < 0 || cy < 0 || cx >= width || cy >= height) return;
+        splats[cy * width + cx] += (float) weight;
+        usedRows[cy] = true;
+    }
+
+    /**
+     * @param palette  256 级预乘 ARGB 颜色，下标为密度占峰值的比例 × 255
+     * @param minDensity 低于此密度的像素保持透明
+     * @param minPeak  归一化用的峰值下限，点很少时云不至于被拉满
+     */
+    WritableImage render(int[] palette, float minDensity, float minPeak) {
+        int[] rows = IntStream.range(0, height).filter(y -> usedRows[y]).toArray();
+
+        // 第一遍：有落点的行内横向散布，按行分条
+        float[] horizontal = new float[width * height];
+        IntStream.range(0, strips(rows.length)).parallel().forEach(s -> {
+            for (int i = s * STRIP, end = Math.min(rows.length, i + STRIP); i < end; i++) blurRow(rows[i], horizontal);
+        });
+
+        // 第二遍：把这些行纵向散布到整张图，按列分条，条内按行连续访问
+        float[] density = new float[width * height];
+        float peak = (float) IntStream.range(0, strips(width)).parallel()
+                .mapToDouble(s -> blurColumns(rows, horizontal, density, s * STRIP, Math.min(width, s * STRIP + STRIP)))
+                .max().orElse(0);
+
+        float scale = (palette.length - 1) / Math.max(peak, minPeak);
+        int[] pixels = new int[width * height];
+        IntStream.range(0, strips(height)).parallel().forEach(s -> {
+            for (int i = s * STRIP * width, end = Math.min(height, s * STRIP + STRIP) * width; i < end; i++) {
+                float d = density[i];
+                if (d > minDensity) pixels[i] = palette[Math.min(palette.length - 1, Math.round(d * scale))];
+            }
+        });
+
+        PixelBuffer<IntBuffer> buffer = new PixelBuffer<>(width, height, IntBuffer.wrap(pixels), PixelFormat.getIntArgbPreInstance());
+        return new WritableImage(buffer);
+    }
+
+    /** 颜色转成 PixelBuffer 要求的预乘 ARGB */
+    static int premultipliedArgb(Color color) {
+        double a = color.getOpacity();
+        return (int) Math.round(a * 255) << 24
+                | (int) Math.round(color.getRed() * a * 255) << 16
+                | (int) Math.round(color.getGreen() * a * 255) << 8
+                | (int) Math.round(color.getBlue() * a * 255);
+    }
+
+    private static int strips(int n) {
+        return (n + STRIP - 1) / STRIP;
+    }
+
+    private void blurRow(int y, float[] out) {
+        int row = y * width;
+        for (int sx = 0; sx < width; sx++) {
+            float v = splats[row + sx];
+            if (v == 0) continue;
+            for (int x = Math.max(0, sx - radius), end = Math.min(width, sx + radius); x < end; x++) {
+                out[row + x] += v * kernel[x - sx + radius];
+            }
+        }
+    }
+
+    /** 只写 [x0, x1) 列，返回这几列的最大密度 */
+    private float blurColumns(int[] rows, float[] in, float[] out, int x0, int x1) {
+        for (int sy : rows) {
+            int src = sy * width;
+            for (int y = Math.max(0, sy - radius), end = Math.min(height, sy + radius); y < end; y++) {
+                float k = kernel[y - sy + radius];
+                int dst = y * width;
+                for (int x = x0; x < x1; x++) out[dst + x] += k * in[src + x];
+            }
+        }
+        float peak = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = x0, i = y * width + x0; x < x1; x++, i++) peak = Math.max(peak, out[i]);
+        }
+        return peak;
+    }
+}
@@ -1,6 +1,7 @@
 package com.bear27570.ftc.scouting.controllers;
 
 import com.bear27570.ftc.scouting.services.NetworkService;
+import com.bear27570.ftc.scouting.utils.ShotEventCodec;
 import javafx.animation.PauseTransition;
 import javafx.fxml.FXML;
 import javafx.scene.Cursor;
@@ -25,7 +26,6 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 import java.util.Stack;
 
 public class FieldInputController {
@@ -276,49 +276,20 @@ public class FieldInputController {
         points.clear();
         undoStack.clear();
 
-        String[] entries = locationStr.split(";");
-        for (String entry : entries) {
-            // 🌟 修复：严谨拦截所有解析异常并记录脏数据上下文
-            if (entry == null || entry.trim().isEmpty()) continue;
-            try {
-                String[] parts = entry.split(":");
-                if (parts.length < 2) {
-                    log.error("⚠️ [FieldInput] 坐标片段缺少冒号分隔符，已跳过: {}", entry);
-                    continue;
-                }
-
-                int teamIdx = Integer.parseInt(parts[0]);
-                String[] coords = parts[1].split(",");
-
-                if (coords.length < 3) {
-                    log.error("⚠️ [FieldInput] 坐标数据不完整(需 x,y,state)，已跳过:  {}", entry);
-                    continue;
-                }
-
-                double x = Double.parseDouble(coords[0]);
-                double y = Double.parseDouble(coords[1]);
-                int state = Integer.parseInt(coords[2]);
-                long ts = (coords.length > 3) ? Long.parseLong(coords[3]) : 0;
-
-                points.add(new TeamPoint(x, y, teamIdx, state == 1, ts));
-
-            } catch (NumberFormatException e) {
-                log.error("❌ [FieldInput] 坐标数字解析失败，存在非法字符: '" + entry + "' | 详情: " + e.getMessage());
-            } catch (Exception e) {
-                log.error("❌ [FieldInput] 坐标解析发生未知异常: '" + entry + "' | 详情: " + e.getMessage(),e);
-            }
+        // 新旧两种格式均由游标解析，格式错误的片段会被跳过
+        ShotEventCodec.Cursor cursor = new ShotEventCodec.Cursor().reset(locationStr);
+        while (cursor.next()) {
+            points.add(new TeamPoint(cursor.x(), cursor.y(), cursor.team(), !cursor.isHit(), cursor.timestamp()));
         }
         updateUI();
     }
 
     private String getLocationsString() {
-        StringBuilder sb = new StringBuilder();
+        ShotEventCodec.Writer writer = new ShotEventCodec.Writer();
         for (TeamPoint p : points) {
-            int missInt = p.isMiss ? 1 : 0;
-            sb.append(p.teamIndex).append(":")
-                    .append(String.format(Locale.US,"%.1f,%.1f,%d,%d;", p.x, p.y, missInt, p.timestamp));
+            writer.add(p.teamIndex, p.x, p.y, p.isMiss ? ShotEventCodec.STATE_MISS : ShotEventCodec.STATE_HIT, p.timestamp);
         }
-        return sb.toString();
+        return writer.toStoredString();
     }
 
     @FXML
@@ -2,14 +2,15 @@ package com.bear27570.ftc.scouting.controllers;
 
 import com.bear27570.ftc.scouting.models.Competition;
 import com.bear27570.ftc.scouting.repository.CompetitionRepository;
+import com.bear27570.ftc.scouting.services.domain.RatingFormula;
 import javafx.fxml.FXML;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
 import javafx.stage.Stage;
-import net.objecthunter.exp4j.ExpressionBuilder;
 
 public class FormulaEditController {
     @FXML private TextField formulaField;
+    @FXML private TextField halfLifeField;
     @FXML private Label errorLabel;
 
     private Stage dialogStage;
@@ -22,6 +23,12 @@ public class FormulaEditController {
         this.competition = competition;
         this.competitionRepository = competitionRepository;
         formulaField.setText(competition.getRatingFormula());
+        halfLifeField.setText(competition.getRatingHalfLife() > 0 ? String.valueOf(competition.getRatingHalfLife()) : "0");
+        // 输入时即时校验，编译结果有缓存，保存时不会重复解析
+        formulaField.textProperty().addListener((obs, oldText, newText) -> {
+            RatingFormula compiled = RatingFormula.compile(newText);
+            errorLabel.setText(compiled.isValid() ? "" : "Invalid syntax: " + compiled.getError());
+        });
     }
 
     @FXML
@@ -32,23 +39,38 @@ public class FormulaEditController {
             return;
         }
 
+        RatingFormula compiled = RatingFormula.compile(formula);
+        if (!compiled.isValid()) {
+            errorLabel.setText("Invalid syntax: " + compiled.getError());
+            return;
+        }
+
+        double halfLife;
         try {
-            new ExpressionBuilder(formula)
-                    .variables("auto", "teleop", "total", "seq", "climb")
-                    .build();
-
-            // --- 使用注入的 Repo ---
-            competitionRepository.updateFormula(competition.getName(), formula);
-            competition.setRatingFormula(formula);
-            dialogStage.close();
-        } catch (Exception e) {
-            errorLabel.setText("Invalid syntax: " + e.getMessage());
+            String text = halfLifeField.getText().trim();
+            halfLife = text.isEmpty() ? 0 : Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            halfLife = -1;
+        }
+        if (halfLife < 0 || Double.isNaN(halfLife) || Double.isInfinite(halfLife)) {
+            errorLabel.setText("Half-life must be a non-negative number of matches.");
+            return;
+        }
+
+        // --- 使用注入的 Repo ---
+        competitionRepository.updateFormula(competition.getName(), formula);
+        competition.setRatingFormula(formula);
+        if (halfLife != competition.getRatingHalfLife()) {
+            competitionRepository.updateRatingHalfLife(competition.getName(), halfLife);
+            competition.setRatingHalfLife(halfLife);
         }
+        dialogStage.close();
     }
 
     @FXML
     private void handleReset() {
-        formulaField.setText("total");
+        formulaField.setText(RatingFormula.DEFAULT_FORMULA);
+        halfLifeField.setText("0");
     }
 
     @FXML
@@ -1,9 +1,12 @@
 package com.bear27570.ftc.scouting.controllers;
 
 import com.bear27570.ftc.scouting.models.ScoreEntry;
+import com.bear27570.ftc.scouting.models.ShotGrid;
+import com.bear27570.ftc.scouting.models.ShotSummary;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
 import com.bear27570.ftc.scouting.repository.PenaltyRepository;
+import com.bear27570.ftc.scouting.services.domain.ShotEventCache;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
@@ -16,7 +19,7 @@ import javafx.scene.control.Label;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.effect.DropShadow;
-import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
@@ -55,10 +58,17 @@ public class HeatmapController {
     @FXML private TableColumn<MatchDetailRow, String> colStatus;
     private static final Logger log = LoggerFactory.getLogger(HeatmapController.class);
     private int currentTeamNumber;
+    private ShotEventCache shotEventCache;
     private static final double ZONE_DIVIDER_Y = 400.0;
     private static final int POINTS_PER_HIT = 3;
     private static final double SIGMA = 35.0;
-    private static final int KERNEL_RADIUS = (int) (SIGMA * 3);
+    // 概率云调色板：下标为密度占峰值的比例 × 255
+    private static final int[] CLOUD_PALETTE = new int[256];
+    static {
+        for (int i = 0; i < CLOUD_PALETTE.length; i++) {
+            CLOUD_PALETTE[i] = DensityCloudRenderer.premultipliedArgb(getSmoothGradientColor(i / 255.0));
+        }
+    }
 
     public static class MatchDetailRow {
         private final ScoreEntry entry;
@@ -114,8 +124,10 @@ public class HeatmapController {
         AnimationUtils.attachGlidingHighlight(matchTable);
     }
 
-    public void setData(int teamNumber, List<ScoreEntry> matches, Map<Integer, PenaltyRepository.FullPenaltyRow> penaltyMap) {
+    public void setData(int teamNumber, List<ScoreEntry> matches, Map<Integer, PenaltyRepository.FullPenaltyRow> penaltyMap,
+                        ShotGrid shotGrid, ShotEventCache shotEventCache) {
         this.currentTeamNumber = teamNumber;
+        this.shotEventCache = shotEventCache;
         teamTitleLabel.setText("Team " + teamNumber + " Probability Cloud");
 
         updateStatusLabels(teamNumber, matches);
@@ -125,7 +137,9 @@ public class HeatmapController {
                 .collect(Collectors.toList());
         matchTable.setItems(FXCollections.observableArrayList(tableData));
 
-        new Thread(() -> calculateAndDraw(teamNumber, matches)).start();
+        int w = (int) heatmapCanvas.getWidth();
+        int h = (int) heatmapCanvas.getHeight();
+        new Thread(() -> calculateAndDraw(teamNumber, matches, shotGrid, w, h)).start();
     }
 
     private void updateStatusLabels(int teamNumber, List<ScoreEntry> matches) {
@@ -154,10 +168,8 @@ public class HeatmapController {
         RoutineStats(String combination) { this.combination = combination; }
     }
 
-    private void calculateAndDraw(int teamNumber, List<ScoreEntry> matches) {
-        List<Point> hitPoints = new ArrayList<>();
+    private void calculateAndDraw(int teamNumber, List<ScoreEntry> matches, ShotGrid shotGrid, int w, int h) {
         int nearRoleHits = 0, nearRoleMatches = 0, farRoleHits = 0, farRoleMatches = 0;
-        int globalFarShots = 0, globalFarHits = 0, globalNearShots = 0, globalNearHits = 0;
         int totalCycles = 0, matchesWithData = 0;
 
         Map<String, RoutineStats> routinesMap = new HashMap<>();
@@ -186,50 +198,21 @@ public class HeatmapController {
             int mHits = 0, mNearShots = 0, mFarShots = 0;
             List<Long> matchTimestamps = new ArrayList<>();
 
-            for (String p : locs.split(";")) {
-                if (p == null || p.trim().isEmpty()) continue;
-
-                try {
-                    String[] parts = p.split(":");
-                    if (parts.length < 2) {
-                        log.error("⚠️ [Heatmap] Match " + m.getMatchNumber() + " 缺少队标映射，已跳过: " + p);
-                        continue;
-                    }
-
-                    int pTeamIdx = Integer.parseInt(parts[0]);
-                    int actualTeamNum = (pTeamIdx == 1) ? m.getTeam1() : m.getTeam2();
-
-                    if (actualTeamNum == teamNumber) {
-                        String[] coords = parts[1].split(",");
-                        if (coords.length < 2) {
-                            log.error("⚠️ [Heatmap] Match " + m.getMatchNumber() + " 缺少 X/Y 轴数据，已跳过: " + p);
-                            continue;
-                        }
-
-                        double x = Double.parseDouble(coords[0]);
-                        double y = Double.parseDouble(coords[1]);
-                        int state = (coords.length >= 3) ? Integer.parseInt(coords[2]) : 0;
-                        long ts = (coords.length > 3) ? Long.parseLong(coords[3]) : 0;
-                        boolean isHit = (state == 0);
-
-                        if (ts > 0) matchTimestamps.add(ts);
-
-                        if (isHit) {
-                            double scaleX = 500.0 / 650.0;
-                            double scaleY = 500.0 / 650.0;
-                            hitPoints.add(new Point(x * scaleX, y * scaleY));
-                            mHits++;
-                        }
-
-                        if (y < ZONE_DIVIDER_Y) { mNearShots++; if (isHit) globalNearHits++; }
-                        else { mFarShots++; if (isHit) globalFarHits++; }
-                    }
-                } catch (NumberFormatException e) {
-                    log.error("❌ [Heatmap] 坐标数据非数字 (Match " + m.getMatchNumber() + "): '" + p + "' | 详情: " + e.getMessage());
-                } catch (Exception e) {
-                    log.error("❌ [Heatmap] 解析坐标流发生异常 (Match " + m.getMatchNumber() + "): '" + p + "' | 详情: " + e.getMessage());
-                    e.printStackTrace();
-                }
+            ShotEventCache.Shots shots = shotEventCache.get(m);
+            for (int i = 0; i < shots.size(); i++) {
+                int actualTeamNum = (shots.team(i) == 1) ? m.getTeam1() : m.getTeam2();
+                if (actualTeamNum != teamNumber) continue;
+
+                double x = shots.x(i);
+                double y = shots.y(i);
+                long ts = shots.timestamp(i);
+                boolean isHit = shots.isHit(i);
+
+                if (ts > 0) matchTimestamps.add(ts);
+                if (isHit) mHits++;
+
+                if (y < ZONE_DIVIDER_Y) mNearShots++;
+                else mFarShots++;
             }
 
             if (!matchTimestamps.isEmpty()) {
@@ -242,7 +225,6 @@ public class HeatmapController {
                 matchesWithData++;
             }
 
-            globalNearShots += mNearShots; globalFarShots += mFarShots;
             int mTotalShots = mNearShots + mFarShots;
             if (mTotalShots > 0) {
                 double ratio = (double) mFarShots / mTotalShots;
@@ -251,20 +233,24 @@ public class HeatmapController {
             }
         }
 
+        log.debug("[Heatmap] ShotEventCache hits={}, misses={}", shotEventCache.getHitCount(), shotEventCache.getMissCount());
+
         double finalNearAvg = nearRoleMatches == 0 ? 0 : (double) nearRoleHits / nearRoleMatches;
         double finalFarAvg = farRoleMatches == 0 ? 0 : (double) farRoleHits / farRoleMatches;
         double avgCycles = matchesWithData == 0 ? 0 : (double) totalCycles / matchesWithData;
 
-        int fFarShots = globalFarShots, fFarHits = globalFarHits, fNearShots = globalNearShots, fNearHits = globalNearHits;
+        // 分区统计与概率云取自预聚合的空间计数，与场次数无关
+        ShotSummary zones = shotGrid.zoneSummary();
+        WritableImage cloud = renderCloud(shotGrid, w, h);
 
         List<RoutineStats> sortedRoutines = new ArrayList<>(routinesMap.values());
         sortedRoutines.sort((a, b) -> Integer.compare(b.count, a.count));
         final int finalValidAutoMatches = validAutoMatches;
 
         Platform.runLater(() -> {
-            drawProbabilityCloud(hitPoints);
+            drawProbabilityCloud(cloud);
             updateRoutinesListUI(sortedRoutines, finalValidAutoMatches);
-            updateAnalysis(fFarShots, fFarHits, fNearShots, fNearHits, finalNearAvg, finalFarAvg, avgCycles);
+            updateAnalysis(zones.farShots(), zones.farHits(), zones.nearShots(), zones.nearHits(), finalNearAvg, finalFarAvg, avgCycles);
         });
     }
 
@@ -344,7 +330,22 @@ public class HeatmapController {
         }
     }
 
-    private void drawProbabilityCloud(List<Point> points) {
+    /** 后台线程渲染概率云，每个有命中的格子以格心为一个点、命中数为权重；没有命中时返回 null */
+    private static WritableImage renderCloud(ShotGrid shotGrid, int w, int h) {
+        DensityCloudRenderer renderer = new DensityCloudRenderer(w, h, SIGMA);
+        double scaleX = w / ShotGrid.FIELD_SIZE;
+        double scaleY = h / ShotGrid.FIELD_SIZE;
+        boolean any = false;
+        for (int cell = 0; cell < ShotGrid.CELLS; cell++) {
+            int hits = shotGrid.hits(cell);
+            if (hits <= 0) continue;
+            renderer.splat(ShotGrid.centerX(cell) * scaleX, ShotGrid.centerY(cell) * scaleY, hits);
+            any = true;
+        }
+        return any ? renderer.render(CLOUD_PALETTE, 0.001f, 1.5f) : null;
+    }
+
+    private void drawProbabilityCloud(WritableImage cloud) {
         int w = (int) heatmapCanvas.getWidth();
         int h = (int) heatmapCanvas.getHeight();
         GraphicsContext gc = heatmapCanvas.getGraphicsContext2D();
@@ -355,43 +356,12 @@ public class HeatmapController {
         double scaledDividerY = ZONE_DIVIDER_Y * (h / 650.0);
         gc.strokeLine(0, scaledDividerY, w, scaledDividerY);
 
-        if (points.isEmpty()) return;
-
-        double[][] densityMap = new double[w][h];
-        double maxDensity = 0;
-        double sigmaSq2 = 2 * SIGMA * SIGMA;
-
-        for (Point p : points) {
-            int cx = (int) p.x;
-            int cy = (int) p.y;
-            for (int x = Math.max(0, cx - KERNEL_RADIUS); x < Math.min(w, cx + KERNEL_RADIUS); x++) {
-                for (int y = Math.max(0, cy - KERNEL_RADIUS); y < Math.min(h, cy + KERNEL_RADIUS); y++) {
-                    double distSq = Math.pow(x - cx, 2) + Math.pow(y - cy, 2);
-                    densityMap[x][y] += Math.exp(-distSq / sigmaSq2);
-                    if (densityMap[x][y] > maxDensity) maxDensity = densityMap[x][y];
-                }
-            }
-        }
-
-        PixelWriter pw = gc.getPixelWriter();
-        for (int x = 0; x < w; x++) {
-            for (int y = 0; y < h; y++) {
-                if (densityMap[x][y] > 0.001) {
-                    double ratio = Math.min(1.0, densityMap[x][y] / Math.max(maxDensity, 1.5));
-                    pw.setColor(x, y, getSmoothGradientColor(ratio));
-                }
-            }
-        }
+        if (cloud != null) gc.drawImage(cloud, 0, 0);
     }
 
-    private Color getSmoothGradientColor(double ratio) {
+    private static Color getSmoothGradientColor(double ratio) {
         double opacity = Math.min(0.9, Math.pow(ratio, 0.45));
         double hue = 240 - ratio * 240;
         return Color.hsb(hue, 1.0, 1.0, opacity);
     }
-
-    private static class Point {
-        double x, y;
-        Point(double x, double y) { this.x = x; this.y = y; }
-    }
 }
\ No newline at end of file
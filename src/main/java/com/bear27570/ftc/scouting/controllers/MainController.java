@@ -7,6 +7,8 @@ import com.bear27570.ftc.scouting.repository.CompetitionRepository;
 import com.bear27570.ftc.scouting.services.NetworkService;
 import com.bear27570.ftc.scouting.services.domain.MatchDataService;
 import com.bear27570.ftc.scouting.services.domain.RankingService;
+import com.bear27570.ftc.scouting.services.domain.SeasonRankingService;
+import com.bear27570.ftc.scouting.services.domain.ScoreWritePipeline;
 import com.bear27570.ftc.scouting.services.domain.UserService;
 import com.bear27570.ftc.scouting.services.network.FtcScoutApiClient;
 import com.bear27570.ftc.scouting.utils.FxThread;
@@ -31,6 +33,7 @@ import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.prefs.Preferences;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
@@ -62,9 +65,15 @@ public class MainController {
     private CompetitionRepository competitionRepository;
     private UserService userService;
     private FtcScoutApiClient ftcScoutApiClient;
+    private ScoreWritePipeline scoreWritePipeline;
+
+    // 快照可能在写入线程上读取，按读取先后编号，避免较旧的快照覆盖界面上较新的数据
+    private final AtomicLong snapshotSequence = new AtomicLong();
+    private long appliedSnapshotSequence = 0; // 仅在 UI 线程访问
 
     private String officialEventName = null;
     private static final Logger log = LoggerFactory.getLogger(MainController.class);
+    private static final int EXPORT_PAGE_SIZE = 1000;
     private final SharedDataViewModel sharedViewModel = new SharedDataViewModel();
 
     public static class SyncPayload implements Serializable {
@@ -78,7 +87,9 @@ public class MainController {
 
     public void setDependencies(MainApplication mainApp, Competition competition, String username, boolean isHost,
                                 MatchDataService matchDataService, RankingService rankingService,
-                                CompetitionRepository competitionRepository, UserService userService) {
+                                SeasonRankingService seasonRankingService,
+                                CompetitionRepository competitionRepository, UserService userService,
+                                ScoreWritePipeline scoreWritePipeline) {
         this.mainApp = mainApp;
         this.currentCompetition = competition;
         this.currentUsername = username;
@@ -87,6 +98,8 @@ public class MainController {
         this.rankingService = rankingService;
         this.competitionRepository = competitionRepository;
         this.userService = userService;
+        this.scoreWritePipeline = scoreWritePipeline;
+        rankingService.invalidate(competition.getName()); // 进入赛事时以数据库为准重建排名缓存
 
         Competition localComp = competitionRepository.findByName(competition.getName());
         if (localComp != null && localComp.getOfficialEventName() != null && !localComp.getOfficialEventName().trim().isEmpty()) {
@@ -110,7 +123,7 @@ public class MainController {
         tabScoringController.setDependencies(this, matchDataService, currentCompetition, username, isHost);
         tabFtcScoutController.setDependencies(this, ftcScoutApiClient, currentCompetition, isHost);
 
-        tabRankingsController.setDependencies(this, mainApp, currentCompetition, isHost, sharedViewModel);
+        tabRankingsController.setDependencies(this, mainApp, currentCompetition, isHost, sharedViewModel, seasonRankingService);
         tabHistoryController.setDependencies(this, matchDataService, currentCompetition, username, isHost, sharedViewModel);
 
         if (isHost) {
@@ -157,6 +170,7 @@ public class MainController {
 
     private void startAsHost() {
         refreshAllDataFromDatabase();
+        scoreWritePipeline.setBatchListener(this::handleScoreBatchPersisted);
         NetworkService.getInstance().startHost(currentCompetition, this::handleScoreReceivedFromClient);
     }
 
@@ -178,38 +192,54 @@ public class MainController {
     }
 
     public void triggerDataRefreshAndBroadcast() {
-        refreshAllDataFromDatabase();
+        CompetitionSnapshot snapshot = refreshAllDataFromDatabase();
         if (isHost) {
-            broadcastUpdate();
+            // 广播直接复用刚算好的快照，不再重复查询与计算
+            broadcastUpdate(snapshot);
         }
     }
 
-    private void refreshAllDataFromDatabase() {
-        List<ScoreEntry> fullHistory = matchDataService.getHistory(currentCompetition.getName());
-        List<TeamRanking> newRankings = rankingService.calculateRankings(currentCompetition.getName());
-        Map<String, Double> reliabilities = rankingService.getSubmitterReliabilities(currentCompetition.getName());
+    private CompetitionSnapshot refreshAllDataFromDatabase() {
+        long sequence = snapshotSequence.incrementAndGet();
+        // 一次事务读出历史、排名与可信度
+        CompetitionSnapshot snapshot = rankingService.loadSnapshot(currentCompetition.getName());
+        applySnapshot(snapshot, sequence);
+        return snapshot;
+    }
+
+    private void applySnapshot(CompetitionSnapshot snapshot, long sequence) {
+        if (sequence < appliedSnapshotSequence) return;
+        appliedSnapshotSequence = sequence;
 
-        if (currentCompetition != null && isHost) {
-            currentCompetition = competitionRepository.findByName(currentCompetition.getName());
+        if (isHost && snapshot.getCompetition() != null) {
+            currentCompetition = snapshot.getCompetition();
         }
 
-        sharedViewModel.updateData(fullHistory, newRankings, reliabilities);
+        sharedViewModel.updateData(snapshot.getHistory(), snapshot.getRankings(), snapshot.getReliabilities());
         tabRankingsController.updateCompetition(currentCompetition);
 
         tabScoringController.updateCompetition(currentCompetition);
     }
 
-    private void broadcastUpdate() {
-        List<ScoreEntry> fullHistory = matchDataService.getHistory(currentCompetition.getName());
-        List<TeamRanking> newRankings = rankingService.calculateRankings(currentCompetition.getName());
-        NetworkService.getInstance().setCurrentBannedTeams(currentCompetition.getBannedTeams()); // 更新缓存
-        NetworkService.getInstance().broadcastUpdateToClients(new NetworkPacket(fullHistory, newRankings, officialEventName, currentCompetition.getBannedTeams()));
+    private void broadcastUpdate(CompetitionSnapshot snapshot) {
+        // 可能在写入线程上调用，此时 currentCompetition 尚未被 applySnapshot 替换，以快照里的为准
+        String bannedTeams = snapshot.getCompetition() != null ? snapshot.getCompetition().getBannedTeams() : currentCompetition.getBannedTeams();
+        NetworkService.getInstance().setCurrentBannedTeams(bannedTeams); // 更新缓存
+        NetworkService.getInstance().broadcastUpdateToClients(new NetworkPacket(snapshot.getHistory(), snapshot.getRankings(), officialEventName, bannedTeams));
     }
 
-    private void handleScoreReceivedFromClient(ScoreEntry scoreEntry) {
+    // HTTP 工作线程：只入队，落库、刷新与广播都在写入线程上按批进行
+    private boolean handleScoreReceivedFromClient(ScoreEntry scoreEntry) {
         scoreEntry.setSyncStatus(ScoreEntry.SyncStatus.SYNCED);
-        matchDataService.submitScore(currentCompetition.getName(), scoreEntry);
-        triggerDataRefreshAndBroadcast();
+        return scoreWritePipeline.submit(currentCompetition.getName(), scoreEntry);
+    }
+
+    // 写入线程：每批只读一次快照、刷新一次界面、广播一次
+    private void handleScoreBatchPersisted(String competitionName, List<ScoreEntry> entries) {
+        long sequence = snapshotSequence.incrementAndGet();
+        CompetitionSnapshot snapshot = rankingService.loadSnapshot(competitionName);
+        FxThread.run(() -> applySnapshot(snapshot, sequence));
+        broadcastUpdate(snapshot);
     }
 
     private void handleUpdateReceivedFromHost(NetworkPacket packet) {
@@ -472,33 +502,54 @@ public class MainController {
         String timestamp = new java.text.SimpleDateFormat("yyyyMMdd_HHmm").format(new java.util.Date());
         fileChooser.setInitialFileName(currentCompetition.getName() + "_" + type.replace(" ", "") + "_" + timestamp + ".csv");
         File file = fileChooser.showSaveDialog(competitionNameLabel.getScene().getWindow());
-        if (file != null) {
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-                if (type.equals("Match History")) writeMatchHistoryCSV(writer); else writeRankingsCSV(writer);
-                tabScoringController.getViewModel().setStatus("Exported successfully to " + file.getName(), "#32D74B");
-            } catch (IOException e) { tabScoringController.getViewModel().setError("Export Failed: " + e.getMessage()); }
+        if (file == null) return;
+        if (type.equals("Match History")) {
+            // 成绩历史直接从数据库分页读出，赛事再大也不经过 UI 列表，也不阻塞 FX 线程
+            String competitionName = currentCompetition.getName();
+            CompletableFuture.runAsync(() -> {
+                try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+                    writeMatchHistoryCSV(writer, competitionName);
+                    FxThread.run(() -> tabScoringController.getViewModel().setStatus("Exported successfully to " + file.getName(), "#32D74B"));
+                } catch (IOException | RuntimeException e) {
+                    FxThread.run(() -> tabScoringController.getViewModel().setError("Export Failed: " + e.getMessage()));
+                }
+            });
+            return;
         }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writeRankingsCSV(writer);
+            tabScoringController.getViewModel().setStatus("Exported successfully to " + file.getName(), "#32D74B");
+        } catch (IOException e) { tabScoringController.getViewModel().setError("Export Failed: " + e.getMessage()); }
     }
 
-    private void writeMatchHistoryCSV(BufferedWriter writer) throws IOException {
+    private void writeMatchHistoryCSV(BufferedWriter writer, String competitionName) throws IOException {
         writer.write("Match,Alliance,T1,T2,T1Auto,T2Auto,T1Proj,T2Proj,T1Row,T2Row,Teleop,Total,T1Seq,T1Climb,T2Seq,T2Climb,Submitter,Time,SyncStatus");
         writer.newLine();
-        for (ScoreEntry s : tabHistoryController.getScoreHistoryList()) {
-            writer.write(String.format("%d,%s,%d,%d,%d,%d,%s,%s,%s,%s,%d,%d,%b,%b,%b,%b,%s,%s,%s",
-                    s.getMatchNumber(), s.getAlliance(), s.getTeam1(), s.getTeam2(),
-                    s.getTeam1AutoScore(), s.getTeam2AutoScore(), s.getTeam1AutoProj(), s.getTeam2AutoProj(), s.getTeam1AutoRow(), s.getTeam2AutoRow(),
-                    s.getTeleopArtifacts(), s.getTotalScore(),
-                    s.isTeam1CanSequence(), s.isTeam1L2Climb(), s.isTeam2CanSequence(), s.isTeam2L2Climb(),
-                    s.getSubmitter(), s.getSubmissionTime(), s.getSyncStatus().name()));
-            writer.newLine();
+        // 按页读取：每页之间不占用数据库连接，写文件慢也不会拖住其他读写
+        List<ScoreEntry> page = matchDataService.getHistoryPage(competitionName, null, EXPORT_PAGE_SIZE);
+        while (!page.isEmpty()) {
+            for (ScoreEntry s : page) writeMatchHistoryRow(writer, s);
+            if (page.size() < EXPORT_PAGE_SIZE) break;
+            page = matchDataService.getHistoryPage(competitionName, page.get(page.size() - 1), EXPORT_PAGE_SIZE);
         }
     }
 
+    private static void writeMatchHistoryRow(BufferedWriter writer, ScoreEntry s) throws IOException {
+        writer.write(String.format("%d,%s,%d,%d,%d,%d,%s,%s,%s,%s,%d,%d,%b,%b,%b,%b,%s,%s,%s",
+                s.getMatchNumber(), s.getAlliance(), s.getTeam1(), s.getTeam2(),
+                s.getTeam1AutoScore(), s.getTeam2AutoScore(), s.getTeam1AutoProj(), s.getTeam2AutoProj(), s.getTeam1AutoRow(), s.getTeam2AutoRow(),
+                s.getTeleopArtifacts(), s.getTotalScore(),
+                s.isTeam1CanSequence(), s.isTeam1L2Climb(), s.isTeam2CanSequence(), s.isTeam2L2Climb(),
+                s.getSubmitter(), s.getSubmissionTime(), s.getSyncStatus().name()));
+        writer.newLine();
+    }
+
     private void writeRankingsCSV(BufferedWriter writer) throws IOException {
         writer.write("Rank,Team,Rating,Matches,Auto,Teleop,Accuracy,PenComm,PenOpp,L2Climb,Sequence"); writer.newLine();
         int rank = 1;
         for (TeamRanking r : tabRankingsController.getRankingsList()) {
-            writer.write(String.format("%d,%d,%s,%d,%s,%s,%s,%s,%s,%s,%s", rank++, r.getTeamNumber(), r.getRatingFormatted(), r.getMatchesPlayed(), r.getAvgAutoArtifactsFormatted(), r.getAvgTeleopArtifactsFormatted(), r.getAccuracyFormatted(), r.getAvgPenaltyCommittedFormatted(), r.getAvgOpponentPenaltyFormatted(), r.getL2Capable(), r.getCanSequence()));
+            String accuracy = r.getAccuracy() < 0 ? "N/A" : String.format("%.1f%%", r.getAccuracy());
+            writer.write(String.format("%d,%d,%.2f,%d,%.1f,%.1f,%s,%.1f,%.1f,%s,%s", rank++, r.getTeamNumber(), r.getRating(), r.getMatchesPlayed(), r.getAvgAutoArtifacts(), r.getAvgTeleopArtifacts(), accuracy, r.getAvgPenaltyCommitted(), r.getAvgOpponentPenalty(), r.getL2Capable(), r.getCanSequence()));
             writer.newLine();
         }
     }
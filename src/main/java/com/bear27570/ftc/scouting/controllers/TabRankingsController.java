@@ -3,10 +3,13 @@ package com.bear27570.ftc.scouting.controllers;
 
 import com.bear27570.ftc.scouting.MainApplication;
 import com.bear27570.ftc.scouting.models.Competition;
+import com.bear27570.ftc.scouting.models.DistributionStats;
 import com.bear27570.ftc.scouting.models.TeamRanking;
+import com.bear27570.ftc.scouting.services.domain.SeasonRankingService;
 import com.bear27570.ftc.scouting.utils.FxThread;
 import com.bear27570.ftc.scouting.viewmodels.SharedDataViewModel;
-import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
@@ -14,6 +17,7 @@ import javafx.scene.control.Label;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
+import javafx.scene.control.ToggleButton;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.HBox;
 import javafx.util.Callback;
@@ -22,22 +26,29 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class TabRankingsController {
 
+    private static final String LEGEND = "Penalty: Major=15, Minor=5. Auto Score now correctly skips matches with 0 points from average calculation. OPR/DPR/CCWM are least-squares estimates from official alliance scores.";
+
     @FXML private Label rankingLegendLabel;
     @FXML private Button editRatingButton;
+    @FXML private ToggleButton seasonViewToggle;
 
     @FXML private TableView<TeamRanking> rankingsTableView;
     @FXML private TableColumn<TeamRanking, Integer> rankTeamCol, rankMatchesCol;
     @FXML private TableColumn<TeamRanking, Double> rankAutoCol, rankTeleopCol;
     @FXML private TableColumn<TeamRanking, Double> rankRatingCol;
+    @FXML private TableColumn<TeamRanking, Double> rankOprCol, rankDprCol, rankCcwmCol;
+    @FXML private TableColumn<TeamRanking, DistributionStats> rankSpreadCol;
     @FXML private TableColumn<TeamRanking, Double> rankAccuracyCol;
     @FXML private TableColumn<TeamRanking, Double> rankPenCommCol, rankPenOppCol;
     @FXML private TableColumn<TeamRanking, String> rankSequenceCol, rankL2Col;
     @FXML private TableColumn<TeamRanking, Void> rankHeatmapCol;
-    @FXML private TableColumn<TeamRanking, List<Double>> rankTrendCol;
+    @FXML private TableColumn<TeamRanking, Double> rankTrendCol;
 
     private MainController mainController;
     private MainApplication mainApp;
@@ -45,6 +56,9 @@ public class TabRankingsController {
     private boolean isHost;
     private static final Logger log = LoggerFactory.getLogger(TabRankingsController.class);
     private SharedDataViewModel viewModel;
+    private SeasonRankingService seasonRankingService;
+    // 整季视图的数据是一次性算出的快照，不随本赛事的实时排名刷新
+    private final ObservableList<TeamRanking> seasonRankings = FXCollections.observableArrayList();
 
     @FXML
     public void initialize() {
@@ -58,6 +72,18 @@ public class TabRankingsController {
         rankRatingCol.setCellFactory(createNumberCellFactory("%.2f"));
         rankRatingCol.setStyle("-fx-alignment: CENTER;");
 
+        rankOprCol.setCellValueFactory(new PropertyValueFactory<>("opr"));
+        rankOprCol.setCellFactory(createNumberCellFactory("%.1f"));
+        rankOprCol.setStyle("-fx-alignment: CENTER;");
+
+        rankDprCol.setCellValueFactory(new PropertyValueFactory<>("dpr"));
+        rankDprCol.setCellFactory(createNumberCellFactory("%.1f"));
+        rankDprCol.setStyle("-fx-alignment: CENTER;");
+
+        rankCcwmCol.setCellValueFactory(new PropertyValueFactory<>("ccwm"));
+        rankCcwmCol.setCellFactory(createNumberCellFactory("%.1f"));
+        rankCcwmCol.setStyle("-fx-alignment: CENTER;");
+
         rankAutoCol.setCellValueFactory(new PropertyValueFactory<>("avgAutoArtifacts"));
         rankAutoCol.setCellFactory(createNumberCellFactory("%.1f"));
         rankAutoCol.setStyle("-fx-alignment: CENTER;");
@@ -66,11 +92,19 @@ public class TabRankingsController {
         rankTeleopCol.setCellFactory(createNumberCellFactory("%.1f"));
         rankTeleopCol.setStyle("-fx-alignment: CENTER;");
 
-        rankAccuracyCol.setCellValueFactory(cellData -> {
-            String accStr = cellData.getValue().getAccuracyFormatted().replace("%", "");
-            double val = accStr.equals("N/A") ? -1.0 : Double.parseDouble(accStr);
-            return new SimpleObjectProperty<>(val);
+        // 单场总贡献（分）的 P25 / P50 / P90，直接读累加器里的直方图，不回扫历史
+        rankSpreadCol.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().getTotalStats()));
+        rankSpreadCol.setCellFactory(tc -> new TableCell<>() {
+            @Override protected void updateItem(DistributionStats item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) setText(null);
+                else if (item.getCount() == 0) setText("-");
+                else setText(String.format("%.0f / %.0f / %.0f", item.getP25(), item.getP50(), item.getP90()));
+            }
         });
+        rankSpreadCol.setStyle("-fx-alignment: CENTER;");
+
+        rankAccuracyCol.setCellValueFactory(new PropertyValueFactory<>("accuracy"));
         rankAccuracyCol.setCellFactory(tc -> new TableCell<>() {
             @Override protected void updateItem(Double item, boolean empty) {
                 super.updateItem(item, empty);
@@ -129,7 +163,7 @@ public class TabRankingsController {
             }
         });
 // 重新定义 Trend 列：动能徽章 (Momentum Badge)
-        rankTrendCol.setCellValueFactory(new PropertyValueFactory<>("recentRatings"));
+        rankTrendCol.setCellValueFactory(new PropertyValueFactory<>("momentum"));
         rankTrendCol.setCellFactory(tc -> new TableCell<>() {
 
             // 声明 UI 组件
@@ -143,29 +177,17 @@ public class TabRankingsController {
             }
 
             @Override
-            protected void updateItem(List<Double> ratings, boolean empty) {
-                super.updateItem(ratings, empty);
+            protected void updateItem(Double momentum, boolean empty) {
+                super.updateItem(momentum, empty);
 
-                // 如果没有数据或比赛场次不足2场，不显示趋势
-                if (empty || ratings == null || ratings.size() < 2) {
+                // 如果没有数据或比赛场次不足2场，不显示趋势（getMomentum 返回 NaN）
+                if (empty || momentum == null || momentum.isNaN()) {
                     setGraphic(null);
                     return;
                 }
 
-                // 🧠 核心逻辑：动量计算 (Momentum Calculation)
-                // 总体平均分
-                double overallAvg = ratings.stream().mapToDouble(d -> d).average().orElse(0.0);
-
-                // 近期平均分（取最近2场的平均值，消除单场意外断线的干扰）
-                double recentAvg;
-                if (ratings.size() >= 3) {
-                    recentAvg = (ratings.get(ratings.size() - 1) + ratings.get(ratings.size() - 2)) / 2.0;
-                } else {
-                    recentAvg = ratings.get(ratings.size() - 1);
-                }
-
-                // 计算差值
-                double delta = recentAvg - overallAvg;
+                // 🧠 动量 = 近期平均分（最近2场，消除单场意外断线的干扰）− 窗口平均分，由 TeamRanking 直接算好
+                double delta = momentum;
 
                 // 🧹 清理之前的样式残留
                 badge.getStyleClass().removeAll("cyber-badge-success", "cyber-badge-danger", "cyber-badge-neutral");
@@ -200,16 +222,18 @@ public class TabRankingsController {
                 setAlignment(javafx.geometry.Pos.CENTER);
             }
         });
-        rankingLegendLabel.setText("Penalty: Major=15, Minor=5. Auto Score now correctly skips matches with 0 points from average calculation.");
+        rankingLegendLabel.setText(LEGEND);
         AnimationUtils.attachGlidingHighlight(rankingsTableView);
     }
 
-    public void setDependencies(MainController mainController, MainApplication mainApp, Competition competition, boolean isHost, SharedDataViewModel viewModel) {
+    public void setDependencies(MainController mainController, MainApplication mainApp, Competition competition, boolean isHost,
+                                SharedDataViewModel viewModel, SeasonRankingService seasonRankingService) {
         this.mainController = mainController;
         this.mainApp = mainApp;
         this.currentCompetition = competition;
         this.isHost = isHost;
         this.viewModel = viewModel;
+        this.seasonRankingService = seasonRankingService;
 
         if (editRatingButton != null) {
             editRatingButton.setVisible(isHost);
@@ -231,11 +255,51 @@ public class TabRankingsController {
         }
     }
 
+    @FXML
+    private void handleSeasonView() {
+        if (!seasonViewToggle.isSelected()) {
+            showCompetitionRankings();
+            return;
+        }
+        int season = currentCompetition.getEventSeason();
+        String scope = season > 0 ? "Season " + season : "All events";
+        rankingLegendLabel.setText("Computing " + scope + " rankings...");
+        // 逐个赛事读库并计算，放到后台线程
+        CompletableFuture.supplyAsync(() -> seasonRankingService.calculateSeasonRankings(season))
+                .thenAccept(rankings -> FxThread.run(() -> showSeasonRankings(scope, rankings)))
+                .exceptionally(ex -> {
+                    log.error("Season ranking failed", ex);
+                    FxThread.run(() -> {
+                        seasonViewToggle.setSelected(false);
+                        showCompetitionRankings();
+                        rankingLegendLabel.setText("Season rankings failed: " + ex.getMessage());
+                    });
+                    return null;
+                });
+    }
+
+    private void showSeasonRankings(String scope, List<TeamRanking> rankings) {
+        if (!seasonViewToggle.isSelected()) return; // 计算期间已切回本赛事
+        rankings.sort(Comparator.comparingDouble(TeamRanking::getRating).reversed());
+        seasonRankings.setAll(rankings);
+        rankingsTableView.setItems(seasonRankings);
+        rankingLegendLabel.setText(String.format("%s: %d teams. Each event is rated with its own formula, penalties and scout weights, then merged per team.",
+                scope, rankings.size()));
+    }
+
+    private void showCompetitionRankings() {
+        rankingsTableView.setItems(viewModel.getRankingsList());
+        rankingLegendLabel.setText(LEGEND);
+    }
+
     public void updateCompetition(Competition comp) {
         this.currentCompetition = comp;
         FxThread.run(() -> {
             if (currentCompetition != null && isHost) {
-                rankRatingCol.setText(currentCompetition.getRatingFormula().equals("total") ? "Rating" : "Rating *");
+                String header = currentCompetition.getRatingFormula().equals("total") ? "Rating" : "Rating *";
+                // 衰减模式下 rating 为按场次指数衰减的评分
+                if (currentCompetition.getRatingHalfLife() > 0) header += " ~";
+                rankRatingCol.setText(header);
             }
         });
     }
@@ -10,8 +10,12 @@ public class Competition implements Serializable {
     private String name;
     private String creatorUsername;
     private String ratingFormula;
+    // 衰减评分半衰期（场），0 表示使用全场平均
+    private double ratingHalfLife;
     private String hostAddress;
     private String bannedTeams = "";
+    // 数据版本号，由仓储层在每次写入成绩 / 判罚时推进
+    private long dataVersion;
 
     private int eventSeason;
     private String eventCode;
@@ -36,20 +40,24 @@ public class Competition implements Serializable {
     public String getCreatorUsername() { return creatorUsername; }
     public String getHostAddress() { return hostAddress; }
     public String getRatingFormula() { return ratingFormula; }
+    public double getRatingHalfLife() { return ratingHalfLife; }
     public int getEventSeason() { return eventSeason; }
     public String getEventCode() { return eventCode; }
     public String getOfficialEventName() { return officialEventName; }
     public String getBannedTeams() { return bannedTeams; }
+    public long getDataVersion() { return dataVersion; }
 
     // --- Setters (3. 补全之前因为 final 缺失的 Setters) ---
     public void setName(String name) { this.name = name; }
     public void setCreatorUsername(String creatorUsername) { this.creatorUsername = creatorUsername; }
     public void setHostAddress(String hostAddress) { this.hostAddress = hostAddress; }
     public void setRatingFormula(String ratingFormula) { this.ratingFormula = ratingFormula; }
+    public void setRatingHalfLife(double ratingHalfLife) { this.ratingHalfLife = ratingHalfLife; }
     public void setEventSeason(int eventSeason) { this.eventSeason = eventSeason; }
     public void setEventCode(String eventCode) { this.eventCode = eventCode; }
     public void setOfficialEventName(String officialEventName) { this.officialEventName = officialEventName; }
     public void setBannedTeams(String bannedTeams) { this.bannedTeams = bannedTeams; }
+    public void setDataVersion(long dataVersion) { this.dataVersion = dataVersion; }
 
     public boolean isTeamBanned(int teamNumber) {
         if (bannedTeams == null || bannedTeams.isEmpty()) return false;
@@ -0,0 +1,27 @@
+package com.bear27570.ftc.scouting.models;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 某一时刻赛事的完整视图：成绩历史、队伍排名与侦查员可信度，由同一份数据一次算出。
+ */
+public class CompetitionSnapshot {
+    private final Competition competition;
+    private final List<ScoreEntry> history;
+    private final List<TeamRanking> rankings;
+    private final Map<String, Double> reliabilities;
+
+    public CompetitionSnapshot(Competition competition, List<ScoreEntry> history,
+                               List<TeamRanking> rankings, Map<String, Double> reliabilities) {
+        this.competition = competition;
+        this.history = history;
+        this.rankings = rankings;
+        this.reliabilities = reliabilities;
+    }
+
+    public Competition getCompetition() { return competition; }
+    public List<ScoreEntry> getHistory() { return history; }
+    public List<TeamRanking> getRankings() { return rankings; }
+    public Map<String, Double> getReliabilities() { return reliabilities; }
+}
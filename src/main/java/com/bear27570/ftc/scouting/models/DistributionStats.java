@@ -0,0 +1,112 @@
+package com.bear27570.ftc.scouting.models;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * 单项单场数据的在线分布统计：Welford 均值 / 方差 + 定宽直方图分位数。
+ * 支持逐场增删（直方图计数可精确回退，这是选用定宽直方图而非 t-digest 的原因）以及跨赛事合并。
+ * 分位数在所在桶内线性插值，精度为一个桶宽。桶数随出现过的最大值按需扩容，单场总分等大数值不会被截到固定上界；
+ * 负值计入第一个桶，超过 MAX_BINS 的异常值计入最后一个桶。
+ */
+public class DistributionStats implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final double BIN_WIDTH = 1.0;
+    private static final int INITIAL_BINS = 64;
+    private static final int MAX_BINS = 1 << 16;
+
+    private int[] bins = new int[INITIAL_BINS];
+    private int count = 0;
+    private double mean = 0;
+    private double m2 = 0;
+
+    public DistributionStats() {
+    }
+
+    public DistributionStats(DistributionStats other) {
+        this.bins = other.bins.clone();
+        this.count = other.count;
+        this.mean = other.mean;
+        this.m2 = other.m2;
+    }
+
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        int bin = binOf(value);
+        ensureBins(bin + 1);
+        bins[bin]++;
+    }
+
+    /** add 的逆操作，value 必须与当初加入的值一致。 */
+    public void remove(double value) {
+        if (count <= 1) {
+            clear();
+            return;
+        }
+        double previousMean = mean;
+        count--;
+        mean = (previousMean * (count + 1) - value) / count;
+        m2 = Math.max(0, m2 - (value - mean) * (value - previousMean));
+        int bin = binOf(value);
+        if (bin < bins.length) bins[bin]--;
+    }
+
+    public DistributionStats merge(DistributionStats other) {
+        int combined = count + other.count;
+        if (combined == 0) return this;
+        double delta = other.mean - mean;
+        m2 += other.m2 + delta * delta * count * other.count / combined;
+        mean += delta * other.count / combined;
+        count = combined;
+        ensureBins(other.bins.length);
+        for (int i = 0; i < other.bins.length; i++) bins[i] += other.bins[i];
+        return this;
+    }
+
+    private void clear() {
+        Arrays.fill(bins, 0);
+        count = 0;
+        mean = 0;
+        m2 = 0;
+    }
+
+    private static int binOf(double value) {
+        int bin = (int) Math.floor(value / BIN_WIDTH);
+        return Math.max(0, Math.min(MAX_BINS - 1, bin));
+    }
+
+    // 按倍数扩容，逐场累加时摊还为常数
+    private void ensureBins(int size) {
+        if (size <= bins.length) return;
+        bins = Arrays.copyOf(bins, Math.min(MAX_BINS, Math.max(size, bins.length * 2)));
+    }
+
+    /**
+     * @param q 0..1；没有样本时返回 NaN
+     */
+    public double quantile(double q) {
+        if (count == 0) return Double.NaN;
+        double target = q * count;
+        int cumulative = 0;
+        for (int i = 0; i < bins.length; i++) {
+            if (bins[i] == 0) continue;
+            if (cumulative + bins[i] >= target) {
+                double fraction = (target - cumulative) / bins[i];
+                return (i + fraction) * BIN_WIDTH;
+            }
+            cumulative += bins[i];
+        }
+        return bins.length * BIN_WIDTH;
+    }
+
+    public int getCount() { return count; }
+    public double getMean() { return mean; }
+    public double getStdDev() { return count > 1 ? Math.sqrt(m2 / (count - 1)) : 0; }
+    public double getP25() { return quantile(0.25); }
+    public double getP50() { return quantile(0.50); }
+    public double getP90() { return quantile(0.90); }
+}
@@ -0,0 +1,61 @@
+package com.bear27570.ftc.scouting.models;
+
+import java.util.List;
+
+/**
+ * 联盟选拔模拟的推荐结果。
+ * choices 为我方第一个决策点上各选项的统计，按搜索访问次数从高到低排列（访问越多越可信）。
+ */
+public class DraftRecommendation {
+
+    public enum Action { PICK, ACCEPT, DECLINE }
+
+    public static class Choice {
+        private final Action action;
+        // 仅 PICK 有意义
+        private final int teamNumber;
+        private final int visits;
+        private final double championshipProbability;
+        private final double expectedAllianceStrength;
+
+        public Choice(Action action, int teamNumber, int visits, double championshipProbability, double expectedAllianceStrength) {
+            this.action = action;
+            this.teamNumber = teamNumber;
+            this.visits = visits;
+            this.championshipProbability = championshipProbability;
+            this.expectedAllianceStrength = expectedAllianceStrength;
+        }
+
+        public Action getAction() { return action; }
+        public int getTeamNumber() { return teamNumber; }
+        public int getVisits() { return visits; }
+        public double getChampionshipProbability() { return championshipProbability; }
+        public double getExpectedAllianceStrength() { return expectedAllianceStrength; }
+
+        @Override
+        public String toString() {
+            String what = action == Action.PICK ? "Pick " + teamNumber : action.name();
+            return String.format("%s: win %.1f%%, strength %.1f (%d visits)",
+                    what, championshipProbability * 100, expectedAllianceStrength, visits);
+        }
+    }
+
+    private final List<Choice> choices;
+    private final long iterations;
+    private final long statesEvaluated;
+
+    public DraftRecommendation(List<Choice> choices, long iterations, long statesEvaluated) {
+        this.choices = choices;
+        this.iterations = iterations;
+        this.statesEvaluated = statesEvaluated;
+    }
+
+    public List<Choice> getChoices() { return choices; }
+    public long getIterations() { return iterations; }
+    public long getStatesEvaluated() { return statesEvaluated; }
+
+    /** 推荐的选人顺序（只含 PICK 选项）。 */
+    public List<Integer> getPickList() {
+        return choices.stream().filter(c -> c.action == Action.PICK).map(Choice::getTeamNumber).toList();
+    }
+}
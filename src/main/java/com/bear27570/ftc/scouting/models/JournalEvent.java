@@ -0,0 +1,44 @@
+package com.bear27570.ftc.scouting.models;
+
+/**
+ * 提交日志中一条记录的负载（Gson 序列化）。
+ * 成绩以提交键（场次、联盟、提交人、提交时间）识别而非数据库 id：新增成绩在写库前还没有 id，
+ * 重建或在另一台设备上回放时 id 也不可能一致。
+ */
+public class JournalEvent {
+    private String competitionName;
+    private ScoreEntry score;
+    // 修改前的记录，修改可能改变场次或联盟，回放时据此移除旧键
+    private ScoreEntry previousScore;
+    private PenaltyEntry penalty;
+
+    public JournalEvent() {
+    }
+
+    public static JournalEvent scoreSaved(String competitionName, ScoreEntry score, ScoreEntry previousScore) {
+        JournalEvent event = new JournalEvent();
+        event.competitionName = competitionName;
+        event.score = score;
+        event.previousScore = previousScore;
+        return event;
+    }
+
+    public static JournalEvent scoreDeleted(String competitionName, ScoreEntry score) {
+        JournalEvent event = new JournalEvent();
+        event.competitionName = competitionName;
+        event.score = score;
+        return event;
+    }
+
+    public static JournalEvent penaltySaved(String competitionName, PenaltyEntry penalty) {
+        JournalEvent event = new JournalEvent();
+        event.competitionName = competitionName;
+        event.penalty = penalty;
+        return event;
+    }
+
+    public String getCompetitionName() { return competitionName; }
+    public ScoreEntry getScore() { return score; }
+    public ScoreEntry getPreviousScore() { return previousScore; }
+    public PenaltyEntry getPenalty() { return penalty; }
+}
@@ -0,0 +1,53 @@
+package com.bear27570.ftc.scouting.models;
+
+import java.util.List;
+
+/**
+ * 一场红蓝对阵的蒙特卡洛模拟结果。得分分位数为 {P10, P50, P90}。
+ */
+public class MatchPrediction {
+    private final int simulations;
+    private final double redWinProbability;
+    private final double blueWinProbability;
+    private final double tieProbability;
+    private final double redMeanScore;
+    private final double blueMeanScore;
+    private final int[] redPercentiles;
+    private final int[] bluePercentiles;
+    // 没有任何侦查记录的队伍，模拟中按 0 分计
+    private final List<Integer> teamsWithoutData;
+
+    public MatchPrediction(int simulations, double redWinProbability, double blueWinProbability, double tieProbability,
+                           double redMeanScore, double blueMeanScore, int[] redPercentiles, int[] bluePercentiles,
+                           List<Integer> teamsWithoutData) {
+        this.simulations = simulations;
+        this.redWinProbability = redWinProbability;
+        this.blueWinProbability = blueWinProbability;
+        this.tieProbability = tieProbability;
+        this.redMeanScore = redMeanScore;
+        this.blueMeanScore = blueMeanScore;
+        this.redPercentiles = redPercentiles;
+        this.bluePercentiles = bluePercentiles;
+        this.teamsWithoutData = teamsWithoutData;
+    }
+
+    public int getSimulations() { return simulations; }
+    public double getRedWinProbability() { return redWinProbability; }
+    public double getBlueWinProbability() { return blueWinProbability; }
+    public double getTieProbability() { return tieProbability; }
+    public double getRedMeanScore() { return redMeanScore; }
+    public double getBlueMeanScore() { return blueMeanScore; }
+    public int getRedP10() { return redPercentiles[0]; }
+    public int getRedP50() { return redPercentiles[1]; }
+    public int getRedP90() { return redPercentiles[2]; }
+    public int getBlueP10() { return bluePercentiles[0]; }
+    public int getBlueP50() { return bluePercentiles[1]; }
+    public int getBlueP90() { return bluePercentiles[2]; }
+    public List<Integer> getTeamsWithoutData() { return teamsWithoutData; }
+
+    @Override
+    public String toString() {
+        return String.format("Red %.1f%% (P50 %d) vs Blue %.1f%% (P50 %d), tie %.1f%%",
+                redWinProbability * 100, redPercentiles[1], blueWinProbability * 100, bluePercentiles[1], tieProbability * 100);
+    }
+}
@@ -5,6 +5,7 @@ import java.io.Serial;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Objects;
 
 public class ScoreEntry implements Serializable {
     @Serial
@@ -180,4 +181,21 @@ public class ScoreEntry implements Serializable {
     public void setSubmissionTime(String submissionTime) { this.submissionTime = submissionTime; }
     public void setClickLocations(String clickLocations) { this.clickLocations = clickLocations; }
     public void setSyncStatus(SyncStatus syncStatus) { this.syncStatus = syncStatus; }
-}
\ No newline at end of file
+
+    /** 比较除 id 与提交键之外会入库的全部列 */
+    public boolean hasSameContent(ScoreEntry other) {
+        return scoreType == other.scoreType
+                && team1 == other.team1 && team2 == other.team2
+                && team1AutoScore == other.team1AutoScore && team2AutoScore == other.team2AutoScore
+                && Objects.equals(team1AutoProj, other.team1AutoProj) && Objects.equals(team2AutoProj, other.team2AutoProj)
+                && Objects.equals(team1AutoRow, other.team1AutoRow) && Objects.equals(team2AutoRow, other.team2AutoRow)
+                && autoArtifacts == other.autoArtifacts && teleopArtifacts == other.teleopArtifacts
+                && team1CanSequence == other.team1CanSequence && team2CanSequence == other.team2CanSequence
+                && team1L2Climb == other.team1L2Climb && team2L2Climb == other.team2L2Climb
+                && team1Ignored == other.team1Ignored && team2Ignored == other.team2Ignored
+                && team1Broken == other.team1Broken && team2Broken == other.team2Broken
+                && totalScore == other.totalScore
+                && Objects.equals(clickLocations, other.clickLocations)
+                && syncStatus == other.syncStatus;
+    }
+}
@@ -0,0 +1,18 @@
+package com.bear27570.ftc.scouting.models;
+
+/**
+ * 一条成绩中两个队伍序号各自的投射统计，没有投射点的一方为 {@link ShotSummary#EMPTY}。
+ */
+public record ScoreShots(ShotSummary team1, ShotSummary team2) {
+
+    public static final ScoreShots EMPTY = new ScoreShots(ShotSummary.EMPTY, ShotSummary.EMPTY);
+
+    /** @param slot 队伍序号，1 或 2；其他序号的点不计入任何一方 */
+    public ShotSummary slot(int slot) {
+        return slot == 1 ? team1 : slot == 2 ? team2 : ShotSummary.EMPTY;
+    }
+
+    public ScoreShots withSlot(int slot, ShotSummary summary) {
+        return slot == 1 ? new ScoreShots(summary, team2) : new ScoreShots(team1, summary);
+    }
+}
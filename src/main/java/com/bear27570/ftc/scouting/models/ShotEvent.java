@@ -0,0 +1,26 @@
+package com.bear27570.ftc.scouting.models;
+
+import com.bear27570.ftc.scouting.utils.ShotEventCodec;
+
+import java.util.List;
+
+/**
+ * shot_events 表中的一行：从成绩的 clickLocations 展开的单个投射点。
+ * slot 为点在成绩内的队伍序号（1 = team1，2 = team2），team 为对应的实际队号。
+ */
+public record ShotEvent(int scoreId, int team, int slot, double x, double y, boolean hit, long ts) {
+
+    /**
+     * 把一条成绩的投射点逐个展开追加到 out。scoreId 取调用方给出的本地 id，
+     * 主机同步来的记录自带的是主机端 id，不能直接使用 entry.getId()。
+     */
+    public static void collect(int scoreId, ScoreEntry entry, ShotEventCodec.Cursor cursor, List<ShotEvent> out) {
+        cursor.reset(entry.getClickLocations());
+        while (cursor.next()) {
+            int slot = cursor.team();
+            // 与热力图一致：序号 1 以外的点都记在 team2 名下
+            out.add(new ShotEvent(scoreId, slot == 1 ? entry.getTeam1() : entry.getTeam2(), slot,
+                    cursor.x(), cursor.y(), cursor.isHit(), cursor.timestamp()));
+        }
+    }
+}
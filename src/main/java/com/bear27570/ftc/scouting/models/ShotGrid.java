@@ -0,0 +1,54 @@
+package com.bear27570.ftc.scouting.models;
+
+/**
+ * 某支队伍在一个赛事中的投射点空间计数：把 650×650 的场地切成 65×65 个 10 像素的格子，
+ * 每格记录出手与命中数（不含该队标记为故障的场次）。由 shot_grid 表读出，不可变。
+ * <p>
+ * 格宽取 10 像素，使近 / 远端分界线 {@link ShotSummary#ZONE_DIVIDER_Y} 正好落在格线上，分区统计可由格子精确求和。
+ * 格子编号为 row * SIZE + col，场地外的点归入最近的边缘格（见 ScoreDao.GRID_CELL）。
+ */
+public final class ShotGrid {
+
+    public static final double FIELD_SIZE = 650.0;
+    public static final double CELL_SIZE = 10.0;
+    public static final int SIZE = (int) (FIELD_SIZE / CELL_SIZE);
+    public static final int CELLS = SIZE * SIZE;
+    // 第 0 ~ NEAR_ROWS-1 行为近端
+    private static final int NEAR_ROWS = (int) (ShotSummary.ZONE_DIVIDER_Y / CELL_SIZE);
+
+    private final int[] shots;
+    private final int[] hits;
+
+    /** 数组按格子编号 row * SIZE + col 排列，长度为 {@link #CELLS}，构造后不再修改 */
+    public ShotGrid(int[] shots, int[] hits) {
+        this.shots = shots;
+        this.hits = hits;
+    }
+
+    public static double centerX(int cell) { return (cell % SIZE + 0.5) * CELL_SIZE; }
+    public static double centerY(int cell) { return (cell / SIZE + 0.5) * CELL_SIZE; }
+
+    public int shots(int cell) { return shots[cell]; }
+    public int hits(int cell) { return hits[cell]; }
+
+    public boolean isEmpty() {
+        for (int s : shots) if (s > 0) return false;
+        return true;
+    }
+
+    /** 按近 / 远端分区求和，结果与逐点统计一致 */
+    public ShotSummary zoneSummary() {
+        int nearShots = 0, nearHits = 0, farShots = 0, farHits = 0;
+        int nearCells = NEAR_ROWS * SIZE;
+        for (int c = 0; c < CELLS; c++) {
+            if (c < nearCells) {
+                nearShots += shots[c];
+                nearHits += hits[c];
+            } else {
+                farShots += shots[c];
+                farHits += hits[c];
+            }
+        }
+        return new ShotSummary(nearShots, nearHits, farShots, farHits);
+    }
+}
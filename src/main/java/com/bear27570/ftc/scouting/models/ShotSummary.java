@@ -0,0 +1,26 @@
+package com.bear27570.ftc.scouting.models;
+
+/**
+ * 一组投射点按近端 / 远端分区的出手与命中数，由 shot_events 在库内聚合得到。
+ */
+public record ShotSummary(int nearShots, int nearHits, int farShots, int farHits) {
+
+    // 以场地纵坐标划分近端 / 远端，小于该值为近端
+    public static final double ZONE_DIVIDER_Y = 400.0;
+    public static final ShotSummary EMPTY = new ShotSummary(0, 0, 0, 0);
+
+    public int shots() { return nearShots + farShots; }
+    public int hits() { return nearHits + farHits; }
+
+    /** 命中率百分比 (0-100)，没有出手时为 0。 */
+    public double accuracy() {
+        int shots = shots();
+        return shots > 0 ? hits() * 100.0 / shots : 0.0;
+    }
+
+    /** 远端出手占比 (0-1)，没有出手时为 0。 */
+    public double farRatio() {
+        int shots = shots();
+        return shots > 0 ? (double) farShots / shots : 0.0;
+    }
+}
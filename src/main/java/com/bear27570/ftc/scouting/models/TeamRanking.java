@@ -2,12 +2,32 @@
 package com.bear27570.ftc.scouting.models;
 
 import java.io.Serializable;
-import java.util.LinkedList;
-import java.util.List;
 
+/**
+ * 单支队伍的排名累加器。全部状态都是基本类型：近期评分放在定长环形缓冲区里，
+ * 单场评分的均值与方差用 Welford 算法在线维护，表格与导出直接读取数值 getter。
+ */
 public class TeamRanking implements Serializable {
-    private static final long serialVersionUID = 11L;
-    private final LinkedList<Double> recentRatings = new LinkedList<>();
+    private static final long serialVersionUID = 12L;
+    public static final int RECENT_WINDOW = 5;
+
+    // 环形缓冲区：recentHead 指向最旧的一场
+    private final double[] recentRatings = new double[RECENT_WINDOW];
+    private int recentHead = 0;
+    private int recentCount = 0;
+
+    // 单场评分的 Welford 累加量
+    private int ratingCount = 0;
+    private double ratingMean = 0;
+    private double ratingM2 = 0;
+
+    // 按场次指数衰减的评分，由排名引擎在衰减模式下维护
+    private double decayedRating = 0;
+
+    // 单场贡献的分布（不加权）；自动阶段与平均值一致，只统计有得分的场次
+    private final DistributionStats autoStats = new DistributionStats();
+    private final DistributionStats teleopStats = new DistributionStats();
+    private final DistributionStats totalStats = new DistributionStats();
 
     private final int teamNumber;
     private int matchesPlayed = 0;
@@ -27,17 +47,55 @@ public class TeamRanking implements Serializable {
     private double avgPenaltyCommitted = 0;
     private double avgOpponentPenalty = 0;
 
-    private boolean canSequence = false;
-    private boolean l2Capable = false;
+    // 用计数代替布尔值，才能在删除/修改单场记录时正确回退
+    private int sequenceMatches = 0;
+    private int l2Matches = 0;
 
     private int totalShots = 0;
     private int totalHits = 0;
     private double rating = 0;
 
+    // 基于官方联盟比分的最小二乘估计，CCWM = OPR - DPR
+    private double opr = 0;
+    private double dpr = 0;
+
     public TeamRanking(int teamNumber) {
         this.teamNumber = teamNumber;
     }
 
+    // 拷贝构造：排名引擎对外发布快照时使用，避免 UI / 网络层拿到引擎内部的累加器
+    public TeamRanking(TeamRanking other) {
+        this.teamNumber = other.teamNumber;
+        this.matchesPlayed = other.matchesPlayed;
+        this.totalWeight = other.totalWeight;
+        this.autoWeight = other.autoWeight;
+        this.sumAutoArtifacts = other.sumAutoArtifacts;
+        this.sumTeleopArtifacts = other.sumTeleopArtifacts;
+        this.sumPenaltyCommitted = other.sumPenaltyCommitted;
+        this.sumOpponentPenalty = other.sumOpponentPenalty;
+        this.avgAutoArtifacts = other.avgAutoArtifacts;
+        this.avgTeleopArtifacts = other.avgTeleopArtifacts;
+        this.avgPenaltyCommitted = other.avgPenaltyCommitted;
+        this.avgOpponentPenalty = other.avgOpponentPenalty;
+        this.sequenceMatches = other.sequenceMatches;
+        this.l2Matches = other.l2Matches;
+        this.totalShots = other.totalShots;
+        this.totalHits = other.totalHits;
+        this.rating = other.rating;
+        this.opr = other.opr;
+        this.dpr = other.dpr;
+        System.arraycopy(other.recentRatings, 0, this.recentRatings, 0, RECENT_WINDOW);
+        this.recentHead = other.recentHead;
+        this.recentCount = other.recentCount;
+        this.ratingCount = other.ratingCount;
+        this.ratingMean = other.ratingMean;
+        this.ratingM2 = other.ratingM2;
+        this.decayedRating = other.decayedRating;
+        this.autoStats.merge(other.autoStats);
+        this.teleopStats.merge(other.teleopStats);
+        this.totalStats.merge(other.totalStats);
+    }
+
     public void addMatchResult(double autoScore, double teleop, boolean sequence, boolean climb, int hits, int shots,
                                int penaltyCommitted, int penaltyFromOpponent, double weight,double matchRating) {
         matchesPlayed++;
@@ -48,57 +106,217 @@ public class TeamRanking implements Serializable {
         sumPenaltyCommitted += penaltyCommitted * weight;
         sumOpponentPenalty += penaltyFromOpponent * weight;
 
-        if (totalWeight > 0) {
-            avgTeleopArtifacts = sumTeleopArtifacts / totalWeight;
-            avgPenaltyCommitted = sumPenaltyCommitted / totalWeight;
-            avgOpponentPenalty = sumOpponentPenalty / totalWeight;
-        }
-
         // ★ 智能 Auto 平均分跳过机制：仅在自动得分大于 0 时，才将其计入自动阶段的权重(分母)和总分(分子)
         if (autoScore > 0) {
             sumAutoArtifacts += autoScore * weight;
             autoWeight += weight; // 只增加有有效记录场次的权重分母
+            autoStats.add(autoScore);
+        }
+        teleopStats.add(teleop);
+        totalStats.add(matchPoints(autoScore, teleop, sequence, climb));
+        recomputeAverages();
+
+        ratingCount++;
+        double delta = matchRating - ratingMean;
+        ratingMean += delta / ratingCount;
+        ratingM2 += delta * (matchRating - ratingMean);
+        rating = ratingMean;
+        pushRecentRating(matchRating);
+
+        if (sequence) this.sequenceMatches++;
+        if (climb) this.l2Matches++;
+        this.totalHits += hits;
+        this.totalShots += shots;
+    }
+
+    /**
+     * addMatchResult 的逆操作，参数必须与当初累加时完全一致。
+     * 近期评分无法回退，由调用方通过 clearRecentRatings / pushRecentRating 重新指定。
+     */
+    public void removeMatchResult(double autoScore, double teleop, boolean sequence, boolean climb, int hits, int shots,
+                                  int penaltyCommitted, int penaltyFromOpponent, double weight, double matchRating) {
+        matchesPlayed--;
+        totalWeight -= weight;
+
+        sumTeleopArtifacts -= teleop * weight;
+        sumPenaltyCommitted -= penaltyCommitted * weight;
+        sumOpponentPenalty -= penaltyFromOpponent * weight;
+
+        if (autoScore > 0) {
+            sumAutoArtifacts -= autoScore * weight;
+            autoWeight -= weight;
+            autoStats.remove(autoScore);
+        }
+        teleopStats.remove(teleop);
+        totalStats.remove(matchPoints(autoScore, teleop, sequence, climb));
+        recomputeAverages();
+
+        // Welford 的逆向更新；样本删空时直接归零，避免残留浮点误差
+        if (--ratingCount <= 0) {
+            ratingCount = 0;
+            ratingMean = 0;
+            ratingM2 = 0;
+        } else {
+            double previousMean = ratingMean;
+            ratingMean = (previousMean * (ratingCount + 1) - matchRating) / ratingCount;
+            ratingM2 = Math.max(0, ratingM2 - (matchRating - ratingMean) * (matchRating - previousMean));
+        }
+        rating = ratingMean;
+
+        if (sequence) this.sequenceMatches--;
+        if (climb) this.l2Matches--;
+        this.totalHits -= hits;
+        this.totalShots -= shots;
+    }
+
+    /**
+     * 把另一份累加器（通常来自另一个赛事）合并进来，返回 this。
+     * 合并满足结合律：(a.merge(b)).merge(c) 与 a.merge(b.merge(c)) 结果一致，可用于并行归约。
+     * 评分与 OPR / DPR 按场次加权平均；近期评分视 other 在 this 之后，拼接后保留最后 5 场。
+     */
+    public TeamRanking merge(TeamRanking other) {
+        if (other.teamNumber != teamNumber) {
+            throw new IllegalArgumentException("Cannot merge team " + other.teamNumber + " into team " + teamNumber);
+        }
+        int combinedMatches = matchesPlayed + other.matchesPlayed;
+        // Chan 等人的并行合并公式
+        int combinedCount = ratingCount + other.ratingCount;
+        if (combinedCount > 0) {
+            double delta = other.ratingMean - ratingMean;
+            ratingM2 += other.ratingM2 + delta * delta * ratingCount * other.ratingCount / combinedCount;
+            ratingMean += delta * other.ratingCount / combinedCount;
+            ratingCount = combinedCount;
+        }
+        rating = weightedMean(rating, other.rating, other.matchesPlayed, combinedMatches);
+        opr = weightedMean(opr, other.opr, other.matchesPlayed, combinedMatches);
+        dpr = weightedMean(dpr, other.dpr, other.matchesPlayed, combinedMatches);
+        decayedRating = weightedMean(decayedRating, other.decayedRating, other.matchesPlayed, combinedMatches);
+        matchesPlayed = combinedMatches;
+
+        totalWeight += other.totalWeight;
+        autoWeight += other.autoWeight;
+        sumAutoArtifacts += other.sumAutoArtifacts;
+        sumTeleopArtifacts += other.sumTeleopArtifacts;
+        sumPenaltyCommitted += other.sumPenaltyCommitted;
+        sumOpponentPenalty += other.sumOpponentPenalty;
+        recomputeAverages();
+
+        sequenceMatches += other.sequenceMatches;
+        l2Matches += other.l2Matches;
+        totalShots += other.totalShots;
+        totalHits += other.totalHits;
+        autoStats.merge(other.autoStats);
+        teleopStats.merge(other.teleopStats);
+        totalStats.merge(other.totalStats);
+
+        for (int i = 0; i < other.recentCount; i++) pushRecentRating(other.getRecentRating(i));
+        return this;
+    }
+
+    private double weightedMean(double mine, double theirs, int theirMatches, int combinedMatches) {
+        return combinedMatches > 0 ? (mine * matchesPlayed + theirs * theirMatches) / combinedMatches : 0;
+    }
+
+    // 单场总贡献（分）：与 ScoreEntry 的计分规则一致，手动每个 3 分、序列 10 分、L2 爬升 15 分；teleop 为本队分摊后的手动个数
+    private static double matchPoints(double autoScore, double teleop, boolean sequence, boolean climb) {
+        return autoScore + teleop * 3 + (sequence ? 10 : 0) + (climb ? 15 : 0);
+    }
+
+    private void recomputeAverages() {
+        // 浮点回退后可能残留极小的误差，权重归零时直接清空
+        if (totalWeight > 1e-9) {
+            avgTeleopArtifacts = sumTeleopArtifacts / totalWeight;
+            avgPenaltyCommitted = sumPenaltyCommitted / totalWeight;
+            avgOpponentPenalty = sumOpponentPenalty / totalWeight;
+        } else if (matchesPlayed == 0) {
+            avgTeleopArtifacts = 0;
+            avgPenaltyCommitted = 0;
+            avgOpponentPenalty = 0;
         }
 
-        if (autoWeight > 0) {
+        if (autoWeight > 1e-9) {
             avgAutoArtifacts = sumAutoArtifacts / autoWeight;
         } else {
             avgAutoArtifacts = 0;
         }
-        recentRatings.add(matchRating);
-        if (sequence) this.canSequence = true;
-        if (climb) this.l2Capable = true;
-        recentRatings.add(rating);
-        if(recentRatings.size() > 5) recentRatings.removeFirst();
-        this.totalHits += hits;
-        this.totalShots += shots;
     }
 
     public int getTeamNumber() { return teamNumber; }
     public int getMatchesPlayed() { return matchesPlayed; }
-    public List<Double> getRecentRatings() {
-        return recentRatings;
+
+    /** 追加一场评分，缓冲区满时覆盖最旧的一场。 */
+    public void pushRecentRating(double matchRating) {
+        if (recentCount < RECENT_WINDOW) {
+            recentRatings[(recentHead + recentCount++) % RECENT_WINDOW] = matchRating;
+        } else {
+            recentRatings[recentHead] = matchRating;
+            recentHead = (recentHead + 1) % RECENT_WINDOW;
+        }
+    }
+
+    public void clearRecentRatings() {
+        recentHead = 0;
+        recentCount = 0;
+    }
+
+    public int getRecentCount() { return recentCount; }
+
+    /** @param index 0 为窗口内最旧的一场 */
+    public double getRecentRating(int index) {
+        if (index < 0 || index >= recentCount) throw new IndexOutOfBoundsException(index);
+        return recentRatings[(recentHead + index) % RECENT_WINDOW];
+    }
+
+    /**
+     * 近期动量：最近两场（不足 3 场时取最近一场）的均值减去窗口均值；不足 2 场返回 NaN。
+     */
+    public double getMomentum() {
+        if (recentCount < 2) return Double.NaN;
+        double sum = 0;
+        for (int i = 0; i < recentCount; i++) sum += getRecentRating(i);
+        double last = getRecentRating(recentCount - 1);
+        double recent = recentCount >= 3 ? (last + getRecentRating(recentCount - 2)) / 2.0 : last;
+        return recent - sum / recentCount;
+    }
+
+    public DistributionStats getAutoStats() { return autoStats; }
+    public DistributionStats getTeleopStats() { return teleopStats; }
+    public DistributionStats getTotalStats() { return totalStats; }
+
+    /** 近期窗口（最近 RECENT_WINDOW 场）的平均评分。 */
+    public double getWindowRating() {
+        if (recentCount == 0) return 0;
+        double sum = 0;
+        for (int i = 0; i < recentCount; i++) sum += recentRatings[(recentHead + i) % RECENT_WINDOW];
+        return sum / recentCount;
+    }
+
+    public double getDecayedRating() { return decayedRating; }
+    public void setDecayedRating(double decayedRating) { this.decayedRating = decayedRating; }
+
+    public double getRatingStdDev() {
+        return ratingCount > 1 ? Math.sqrt(ratingM2 / (ratingCount - 1)) : 0;
     }
-    public String getAvgAutoArtifactsFormatted() { return String.format("%.1f", avgAutoArtifacts); }
-    public String getAvgTeleopArtifactsFormatted() { return String.format("%.1f", avgTeleopArtifacts); }
-    public String getAvgPenaltyCommittedFormatted() { return String.format("%.1f", avgPenaltyCommitted); }
-    public String getAvgOpponentPenaltyFormatted() { return String.format("%.1f", avgOpponentPenalty); }
 
     public double getAvgAutoArtifacts() { return avgAutoArtifacts; }
     public double getAvgTeleopArtifacts() { return avgTeleopArtifacts; }
     public double getAvgPenaltyCommitted() { return avgPenaltyCommitted; }
     public double getAvgOpponentPenalty() { return avgOpponentPenalty; }
 
-    public String getCanSequence() { return canSequence ? "Yes" : "No"; }
-    public String getL2Capable() { return l2Capable ? "Yes" : "No"; }
+    public String getCanSequence() { return sequenceMatches > 0 ? "Yes" : "No"; }
+    public String getL2Capable() { return l2Matches > 0 ? "Yes" : "No"; }
 
-    public String getAccuracyFormatted() {
-        if (totalShots == 0) return "N/A";
-        double acc = (double) totalHits / totalShots * 100.0;
-        return String.format("%.1f%%", acc);
+    /** 命中率百分比，没有任何出手记录时返回 -1。 */
+    public double getAccuracy() {
+        return totalShots == 0 ? -1 : (double) totalHits / totalShots * 100.0;
     }
 
     public double getRating() { return rating; }
     public void setRating(double rating) { this.rating = rating; }
-    public String getRatingFormatted() { return String.format("%.2f", rating); }
+
+    public double getOpr() { return opr; }
+    public void setOpr(double opr) { this.opr = opr; }
+    public double getDpr() { return dpr; }
+    public void setDpr(double dpr) { this.dpr = dpr; }
+    public double getCcwm() { return opr - dpr; }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.bear27570.ftc.scouting.repository;
+
+import com.bear27570.ftc.scouting.models.Competition;
+import com.bear27570.ftc.scouting.models.ScoreEntry;
+import com.bear27570.ftc.scouting.models.ScoreShots;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次性读取某个赛事刷新界面所需的全部原始数据。
+ */
+public interface CompetitionDataRepository {
+    /**
+     * 在同一个只读事务内读取赛事信息、全部成绩、判罚与库内聚合的投射统计，保证互相一致。
+     */
+    CompetitionData loadAll(String competitionName);
+
+    class CompetitionData {
+        public final Competition competition;
+        public final List<ScoreEntry> scores;
+        public final Map<Integer, PenaltyRepository.FullPenaltyRow> penalties;
+        // 按成绩 id，见 ScoreRepository.findShotSummaries
+        public final Map<Integer, ScoreShots> shots;
+
+        public CompetitionData(Competition competition, List<ScoreEntry> scores,
+                               Map<Integer, PenaltyRepository.FullPenaltyRow> penalties,
+                               Map<Integer, ScoreShots> shots) {
+            this.competition = competition;
+            this.scores = scores;
+            this.penalties = penalties;
+            this.shots = shots;
+        }
+    }
+}
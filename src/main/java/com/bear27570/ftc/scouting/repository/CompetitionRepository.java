@@ -7,6 +7,7 @@ public interface CompetitionRepository {
     List<Competition> findAll();
     Competition findByName(String name);
     void updateFormula(String competitionName, String newFormula);
+    void updateRatingHalfLife(String competitionName, double halfLife);
     boolean create(String name, String creatorUsername, String ratingFormula);
     void updateEventInfo(String competitionName, int season, String eventCode, String officialName);
     void ensureLocalCompetitionSync(Competition competition);
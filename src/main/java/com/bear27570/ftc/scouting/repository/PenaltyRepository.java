@@ -1,10 +1,13 @@
 package com.bear27570.ftc.scouting.repository;
 
 import com.bear27570.ftc.scouting.models.PenaltyEntry;
+import java.util.List;
 import java.util.Map;
 
 public interface PenaltyRepository {
     void savePenaltyEntry(String competitionName, PenaltyEntry entry);
+    /** 整批在一个事务内按 (赛事, 场次) 合并，只覆盖各条目所属联盟的列 */
+    void savePenaltiesBatch(String competitionName, List<PenaltyEntry> entries);
     Map<Integer, FullPenaltyRow> getFullPenalties(String competitionName);
 
     class FullPenaltyRow {
@@ -2,17 +2,46 @@
 package com.bear27570.ftc.scouting.repository;
 
 import com.bear27570.ftc.scouting.models.ScoreEntry;
+import com.bear27570.ftc.scouting.models.ScoreShots;
+import com.bear27570.ftc.scouting.models.ShotGrid;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public interface ScoreRepository {
     void save(String competitionName, ScoreEntry entry);
     void update(ScoreEntry entry);
+    /** 整批在一个事务内写入（id > 0 的按修改处理），失败时抛出异常且整批回滚 */
+    void saveAll(String competitionName, List<ScoreEntry> entries);
     void delete(int id);
+    ScoreEntry findById(int id); // 不存在时返回 null
+    String findCompetitionName(int id);
     List<ScoreEntry> findByCompetition(String competitionName);
+    /**
+     * 与 findByCompetition 同序，边读边处理，内存占用与赛事规模无关。
+     * 返回的流占用一个数据库连接，调用方必须用 try-with-resources 关闭。
+     */
+    Stream<ScoreEntry> streamByCompetition(String competitionName);
+    /**
+     * 键集分页，与 findByCompetition 同序：返回排在 after 之后的至多 limit 行，after 为 null 时从第一行开始。
+     * 返回少于 limit 行表示已到末尾。
+     */
+    List<ScoreEntry> findPageByCompetition(String competitionName, ScoreEntry after, int limit);
     List<ScoreEntry> findByTeam(String competitionName, int teamNumber);
+    /**
+     * 赛事内每条成绩按队伍序号与近 / 远端分区的投射统计。写入成绩时已在库内聚合好，读取时不再解码坐标串。
+     * 以成绩 id 为键；没有投射点的成绩不在结果中。
+     */
+    Map<Integer, ScoreShots> findShotSummaries(String competitionName);
+    /** 某支队伍在赛事中的投射点空间计数，写入成绩时已增量维护好，读取量与场次数无关 */
+    ShotGrid findShotGrid(String competitionName, int teamNumber);
 
     // 新增离线同步相关接口
     List<ScoreEntry> findPendingExports(String competitionName);
     void updateStatuses(List<Integer> ids, ScoreEntry.SyncStatus status);
-    void syncWithHostData(String competitionName, List<ScoreEntry> hostData);
+    /**
+     * 按提交键（场次、联盟、提交人、提交时间）合并，已存在且内容相同的行跳过。
+     * @return 实际写入（新增或内容有变化）的行，空列表表示本地已一致
+     */
+    List<ScoreEntry> mergeSubmissions(String competitionName, List<ScoreEntry> entries);
 }
\ No newline at end of file
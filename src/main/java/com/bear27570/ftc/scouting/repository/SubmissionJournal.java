@@ -0,0 +1,487 @@
+package com.bear27570.ftc.scouting.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * 只追加的内存映射提交日志，写库之前先记一笔，用于启动时核对 / 补齐 H2 以及按序号向其他设备复制。
+ * <p>
+ * 日志按固定大小分段，每段是一个整体映射的文件，文件名为该段第一条记录的序号。
+ * 段头：magic(4) + 版本(4) + 首序号(8)；记录：长度(4) + CRC32C(4) + 序号(8) + 类型(1) + 负载。
+ * 长度与 CRC 覆盖 序号 + 类型 + 负载，长度字段最后写入，进程中途崩溃留下的半条记录会在打开时被识别并截掉。
+ * 追加只写页缓存，不逐条 fsync：进程崩溃不丢数据，断电保护依赖换段（后台）与关闭时的 force。
+ * <p>
+ * 调用方在记录写入 H2 之后调用 {@link #applied}（写库失败时调用 {@link #abandoned}），每确认 CHECKPOINT_INTERVAL 条推进一次检查点，检查点不越过尚未确认的记录，
+ * 异常退出后启动时只需回放这之后的部分。检查点序号单独存在 checkpoint 文件里（magic(4) + 序号(8) + CRC32C(4)），打开时直接读取，不必扫描日志。
+ * 整段都在检查点之前的段随写检查点删除（Windows 上映射中的文件删不掉时留到下次启动、映射之前再删），
+ * 因此启动时只校验检查点之后的段，日志大小与启动耗时不随运行时间增长；按序号读取时，已删除部分不再可读。
+ * <p>
+ * H2 以 AUTO_SERVER 方式供多个实例共用，日志却只能有一个写者：打开时对目录下的 lock 文件加排他锁，
+ * 已被其他进程（或本进程的另一个实例）占用时构造失败，调用方按不记日志运行。
+ */
+public class SubmissionJournal implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(SubmissionJournal.class);
+
+    public static final int DEFAULT_SEGMENT_SIZE = 16 << 20;
+    private static final int MAGIC = 0x46544A31; // "FTJ1"
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER = 16;
+    private static final int RECORD_HEADER = 17;
+    private static final int BODY_OFFSET = 8;
+    private static final String SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String LOCK_FILE = "lock";
+    private static final int CHECKPOINT_MAGIC = 0x46544B31; // "FTK1"
+    private static final int CHECKPOINT_INTERVAL = 256;
+    // 每隔这么多条记录在内存里记一个位置，按序号读取时不必从段首逐条扫描
+    private static final int INDEX_INTERVAL = 64;
+
+    public enum RecordType {
+        SCORE_SAVED, SCORE_DELETED, PENALTY_SAVED,
+        // 旧版本写在日志里的检查点，现改存 checkpoint 文件；打开旧日志时仍会识别
+        CHECKPOINT;
+
+        byte code() { return (byte) (ordinal() + 1); }
+
+        static RecordType of(byte code) {
+            RecordType[] values = values();
+            return code >= 1 && code <= values.length ? values[code - 1] : null;
+        }
+    }
+
+    public record Record(long sequence, RecordType type, byte[] payload) {
+    }
+
+    private static final class Segment {
+        final Path path;
+        final long firstSequence;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        // 已完整写入的字节数，读者只读到这里为止
+        volatile int end;
+        // 第 k 项是序号 firstSequence + k * INDEX_INTERVAL 的记录位置；indexCount 最后写入，读者先读它
+        int[] index = new int[64];
+        volatile int indexCount = 0;
+
+        Segment(Path path, long firstSequence, FileChannel channel, MappedByteBuffer buffer, int end) {
+            this.path = path;
+            this.firstSequence = firstSequence;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.end = end;
+        }
+
+        void indexRecord(long sequence, int position) {
+            if ((sequence - firstSequence) % INDEX_INTERVAL != 0) return;
+            int count = indexCount;
+            if (count == index.length) index = Arrays.copyOf(index, count * 2);
+            index[count] = position;
+            indexCount = count + 1;
+        }
+
+        // 不晚于 sequence 的最近一个索引位置
+        int positionBefore(long sequence) {
+            int count = indexCount;
+            int[] snapshot = index;
+            long k = (sequence - firstSequence) / INDEX_INTERVAL;
+            if (k <= 0 || count == 0) return SEGMENT_HEADER;
+            return snapshot[(int) Math.min(k, count - 1)];
+        }
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final CRC32C crc = new CRC32C(); // 仅在持锁追加时使用
+    private volatile long lastSequence = 0;
+    // 此序号及之前的记录均已确认写入 H2
+    private volatile long checkpoint = 0;
+    // 已追加、尚未确认写入 H2 也未放弃的序号（仅在持锁时访问）
+    private final NavigableSet<Long> pending = new TreeSet<>();
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private boolean closed = false;
+
+    public SubmissionJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public SubmissionJournal(Path directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        this.lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.lock = tryLock(lockChannel);
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Journal directory " + directory + " is in use by another instance");
+        }
+        try {
+            open();
+        } catch (IOException | RuntimeException e) {
+            segments.forEach(segment -> closeQuietly(segment.channel));
+            closeQuietly(lockChannel);
+            throw e;
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null; // 同一进程里已有实例持有
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void open() throws IOException {
+        checkpoint = readCheckpoint();
+
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            // 下一段从检查点之内开始，说明本段整段都已落库，不必映射
+            if (i + 1 < files.size() && firstSequenceOf(files.get(i + 1)) <= checkpoint + 1) {
+                deleteSegmentFile(file);
+                continue;
+            }
+            Segment segment = openExisting(file);
+            if (segment != null) segments.add(segment);
+        }
+        if (segments.isEmpty()) {
+            // 序号接着检查点往后排，新记录不会被误当作已落库
+            segments.add(createSegment(checkpoint + 1));
+            lastSequence = checkpoint;
+        } else {
+            recoverTail(segments.get(segments.size() - 1));
+        }
+        // 日志尾部在断电时丢失的情况下，检查点不能超过实际存在的记录
+        checkpoint = Math.min(checkpoint, lastSequence);
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /** 仍保留的最早一条记录的序号，更早的记录随检查点删除 */
+    public long getFirstSequence() {
+        return segments.get(0).firstSequence;
+    }
+
+    /**
+     * @return 分配给这条记录的序号（从 1 开始连续递增）
+     */
+    public synchronized long append(RecordType type, byte[] payload) throws IOException {
+        if (closed) throw new IOException("Journal is closed");
+        int bodyLength = BODY_OFFSET + 1 + payload.length;
+        if (SEGMENT_HEADER + 8 + bodyLength > segmentSize) {
+            throw new IllegalArgumentException("Journal record of " + payload.length + " bytes exceeds segment size");
+        }
+        long sequence = lastSequence + 1;
+        Segment segment = segments.get(segments.size() - 1);
+        int position = segment.end;
+        if (position + 8 + bodyLength > segmentSize) {
+            // 旧段的落盘交给后台，不占用追加路径
+            MappedByteBuffer full = segment.buffer;
+            CompletableFuture.runAsync(full::force);
+            segment = createSegment(sequence);
+            segments.add(segment);
+            position = segment.end;
+        }
+
+        MappedByteBuffer buffer = segment.buffer;
+        buffer.putLong(position + BODY_OFFSET, sequence);
+        buffer.put(position + BODY_OFFSET + 8, type.code());
+        buffer.put(position + RECORD_HEADER, payload);
+        crc.reset();
+        crc.update(buffer.slice(position + BODY_OFFSET, bodyLength));
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.putInt(position, bodyLength);
+
+        segment.indexRecord(sequence, position);
+        segment.end = position + 8 + bodyLength;
+        lastSequence = sequence;
+        pending.add(sequence);
+        return sequence;
+    }
+
+    /** 这条记录已写入 H2；攒够一批时顺带推进检查点 */
+    public synchronized void applied(long sequence) {
+        release(sequence);
+    }
+
+    /**
+     * 这条记录对应的写库失败，且失败已经报告给调用方（异常上抛、从机保留为待同步稍后重传），不再阻挡检查点。
+     * 记录本身仍留在日志里：检查点越过它之前崩溃的话，启动回放会再尝试一次。
+     */
+    public synchronized void abandoned(long sequence) {
+        release(sequence);
+    }
+
+    private void release(long sequence) {
+        if (!pending.remove(sequence) || closed) return;
+        if (safeSequence() - checkpoint < CHECKPOINT_INTERVAL) return;
+        try {
+            checkpoint(safeSequence());
+        } catch (IOException e) {
+            log.warn("Failed to write journal checkpoint: {}", e.getMessage());
+        }
+    }
+
+    /** 把检查点推进到所有已确认的记录，例如正常退出、写入队列已排空时 */
+    public synchronized void checkpoint() throws IOException {
+        if (closed) throw new IOException("Journal is closed");
+        checkpoint(safeSequence());
+    }
+
+    // 最早一条未确认记录之前的位置
+    private long safeSequence() {
+        return pending.isEmpty() ? lastSequence : pending.first() - 1;
+    }
+
+    // 写 checkpoint 文件，并删除整段都在它之前的段
+    private void checkpoint(long sequence) throws IOException {
+        if (sequence <= checkpoint) return;
+        writeCheckpoint(sequence);
+        checkpoint = sequence;
+        while (segments.size() > 1 && segments.get(1).firstSequence <= sequence + 1) {
+            Segment old = segments.remove(0);
+            old.channel.close();
+            deleteSegmentFile(old.path);
+        }
+    }
+
+    /**
+     * 读取序号不小于 fromSequence 的记录，供复制端按序号增量拉取；不阻塞追加。
+     */
+    public List<Record> read(long fromSequence, int maxRecords) {
+        List<Record> result = new ArrayList<>(Math.min(maxRecords, 1024));
+        scan(fromSequence, record -> {
+            result.add(record);
+            return result.size() < maxRecords;
+        });
+        return result;
+    }
+
+    /** 从 fromSequence 起按顺序回放全部记录 */
+    public void replay(long fromSequence, Consumer<Record> consumer) {
+        scan(fromSequence, record -> {
+            consumer.accept(record);
+            return true;
+        });
+    }
+
+    public synchronized void force() {
+        if (!closed) segments.get(segments.size() - 1).buffer.force();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        for (Segment segment : segments) {
+            try {
+                segment.buffer.force();
+                segment.channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close journal segment {}: {}", segment.path.getFileName(), e.getMessage());
+            }
+        }
+        try {
+            lock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            log.warn("Failed to release journal lock: {}", e.getMessage());
+        }
+    }
+
+    private interface RecordVisitor {
+        boolean visit(Record record);
+    }
+
+    private void scan(long fromSequence, RecordVisitor visitor) {
+        long upTo = lastSequence;
+        // 检查点会删除头部的段，按下标遍历前先复制一份
+        Segment[] snapshot = segments.toArray(new Segment[0]);
+        // 跳过整段都在 fromSequence 之前的段
+        int start = 0;
+        for (int i = snapshot.length - 1; i >= 0; i--) {
+            if (snapshot[i].firstSequence <= fromSequence) {
+                start = i;
+                break;
+            }
+        }
+        CRC32C check = new CRC32C();
+        for (int i = start; i < snapshot.length; i++) {
+            Segment segment = snapshot[i];
+            MappedByteBuffer buffer = segment.buffer;
+            int end = segment.end;
+            int position = segment.positionBefore(fromSequence);
+            while (position < end) {
+                int bodyLength = buffer.getInt(position);
+                long sequence = buffer.getLong(position + BODY_OFFSET);
+                if (sequence > upTo) return;
+                if (sequence >= fromSequence) {
+                    check.reset();
+                    check.update(buffer.slice(position + BODY_OFFSET, bodyLength));
+                    if ((int) check.getValue() != buffer.getInt(position + 4)) {
+                        throw new IllegalStateException("Journal record " + sequence + " failed CRC check in " + segment.path.getFileName());
+                    }
+                    byte[] payload = new byte[bodyLength - BODY_OFFSET - 1];
+                    buffer.get(position + RECORD_HEADER, payload);
+                    if (!visitor.visit(new Record(sequence, RecordType.of(buffer.get(position + BODY_OFFSET + 8)), payload))) return;
+                }
+                position += 8 + bodyLength;
+            }
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) return 0;
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() != 16 || buffer.getInt(0) != CHECKPOINT_MAGIC) {
+            log.warn("Ignoring unrecognized journal checkpoint file");
+            return 0;
+        }
+        CRC32C check = new CRC32C();
+        check.update(buffer.array(), 4, 8);
+        if ((int) check.getValue() != buffer.getInt(12)) {
+            log.warn("Journal checkpoint file failed CRC check, replaying from the start");
+            return 0;
+        }
+        return buffer.getLong(4);
+    }
+
+    // 先写临时文件再原子替换，断电时要么是旧检查点要么是新检查点
+    private void writeCheckpoint(long sequence) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putInt(0, CHECKPOINT_MAGIC);
+        buffer.putLong(4, sequence);
+        CRC32C check = new CRC32C();
+        check.update(buffer.array(), 4, 8);
+        buffer.putInt(12, (int) check.getValue());
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(buffer);
+            channel.force(false);
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static long firstSequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    // 删除失败（如 Windows 上仍被映射）不影响正确性，下次启动会再删
+    private static void deleteSegmentFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Journal segment {} not deleted yet: {}", file.getFileName(), e.getMessage());
+        }
+    }
+
+    private Segment createSegment(long firstSequence) throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", firstSequence, SUFFIX));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, firstSequence);
+        return new Segment(file, firstSequence, channel, buffer, SEGMENT_HEADER);
+    }
+
+    private Segment openExisting(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            log.warn("Ignoring unrecognized journal segment {}", file.getFileName());
+            channel.close();
+            return null;
+        }
+        return new Segment(file, buffer.getLong(8), channel, buffer, segmentSize);
+    }
+
+    /**
+     * 逐段校验到最后一条完整记录为止。最后一段之后的残缺数据清零，避免新记录与残留字节拼出看似合法的记录。
+     */
+    private void recoverTail(Segment tail) {
+        long[] last = {0};
+        for (Segment segment : segments) {
+            last[0] = segment.firstSequence - 1;
+            segment.end = validEnd(segment, last);
+        }
+        MappedByteBuffer buffer = tail.buffer;
+        int end = tail.end;
+        if (end + 4 <= segmentSize && buffer.getInt(end) != 0) {
+            log.warn("Journal {} has a torn record at offset {}, truncating", tail.path.getFileName(), end);
+            for (int p = end; p < segmentSize; p++) {
+                if (buffer.get(p) != 0) buffer.put(p, (byte) 0);
+            }
+        }
+        lastSequence = last[0];
+    }
+
+    private int validEnd(Segment segment, long[] lastSequenceOut) {
+        MappedByteBuffer buffer = segment.buffer;
+        CRC32C check = new CRC32C();
+        long expected = segment.firstSequence;
+        int position = SEGMENT_HEADER;
+        while (position + RECORD_HEADER <= segmentSize) {
+            int bodyLength = buffer.getInt(position);
+            if (bodyLength < BODY_OFFSET + 1 || position + 8 + bodyLength > segmentSize) break;
+            if (buffer.getLong(position + BODY_OFFSET) != expected) break;
+            check.reset();
+            check.update(buffer.slice(position + BODY_OFFSET, bodyLength));
+            if ((int) check.getValue() != buffer.getInt(position + 4)) break;
+            segment.indexRecord(expected, position);
+            if (buffer.get(position + BODY_OFFSET + 8) == RecordType.CHECKPOINT.code()) checkpoint = Math.max(checkpoint, expected);
+            lastSequenceOut[0] = expected;
+            expected++;
+            position += 8 + bodyLength;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,22 @@
+package com.bear27570.ftc.scouting.repository;
+
+import com.bear27570.ftc.scouting.models.TeamRanking;
+
+import java.util.List;
+
+/**
+ * 物化排名：每个数据版本只计算一次，结果存入 team_rankings 表，版本不变期间直接读取。
+ */
+public interface TeamRankingRepository {
+    /**
+     * 物化排名与赛事当前数据版本一致时返回它们，否则（从未物化或已有新写入）返回 null。
+     */
+    List<TeamRanking> findCurrent(String competitionName);
+
+    /**
+     * 以 dataVersion 的名义写入一份排名。
+     * 该版本已物化过，或期间又有新的写入导致版本前进时不会写入。
+     * @return 是否真正写入
+     */
+    boolean store(String competitionName, long dataVersion, List<TeamRanking> rankings);
+}
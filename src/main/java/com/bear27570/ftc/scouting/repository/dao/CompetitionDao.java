@@ -2,13 +2,15 @@
 package com.bear27570.ftc.scouting.repository.dao;
 
 import com.bear27570.ftc.scouting.models.Competition;
-import org.jdbi.v3.sqlobject.config.RegisterBeanMapper;
+import com.bear27570.ftc.scouting.repository.mapper.CompetitionMapper;
+import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
 import org.jdbi.v3.sqlobject.customizer.Bind;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
 import java.util.List;
+import java.util.Optional;
 
-@RegisterBeanMapper(Competition.class)
+@RegisterRowMapper(CompetitionMapper.class)
 public interface CompetitionDao {
     @SqlQuery("SELECT * FROM competitions")
     List<Competition> findAll();
@@ -16,18 +18,32 @@ public interface CompetitionDao {
     @SqlQuery("SELECT * FROM competitions WHERE name = :name")
     Competition findByName(@Bind("name") String name);
 
+    @SqlQuery("SELECT id FROM competitions WHERE name = :name")
+    Optional<Integer> findId(@Bind("name") String name);
+
     @SqlQuery("SELECT COUNT(*) FROM competitions WHERE name = :name")
     int checkExists(@Bind("name") String name);
 
     @SqlUpdate("INSERT INTO competitions(name, creatorUsername, ratingFormula, eventSeason, eventCode, officialEventName, bannedTeams) VALUES(:name, :creator, :formula, :season, :code, :officialName, :bannedTeams)")
     void insert(@Bind("name") String name, @Bind("creator") String creator, @Bind("formula") String formula, @Bind("season") int season, @Bind("code") String code, @Bind("officialName") String officialName, @Bind("bannedTeams") String bannedTeams);
 
-    @SqlUpdate("UPDATE competitions SET ratingFormula = :formula WHERE name = :name")
+    // 公式与黑名单都会影响排名，因此同样推进数据版本
+    @SqlUpdate("UPDATE competitions SET ratingFormula = :formula, dataVersion = dataVersion + 1 WHERE name = :name")
     void updateFormula(@Bind("name") String name, @Bind("formula") String formula);
 
+    @SqlUpdate("UPDATE competitions SET ratingHalfLife = :halfLife, dataVersion = dataVersion + 1 WHERE name = :name")
+    void updateRatingHalfLife(@Bind("name") String name, @Bind("halfLife") double halfLife);
+
     @SqlUpdate("UPDATE competitions SET eventSeason = :season, eventCode = :code, officialEventName = :officialName WHERE name = :name")
     void updateEventInfo(@Bind("name") String name, @Bind("season") int season, @Bind("code") String code, @Bind("officialName") String officialName);
 
-    @SqlUpdate("UPDATE competitions SET bannedTeams = :bannedTeams WHERE name = :name")
+    @SqlUpdate("UPDATE competitions SET bannedTeams = :bannedTeams, dataVersion = dataVersion + 1 WHERE name = :name")
     void updateBannedTeams(@Bind("name") String name, @Bind("bannedTeams") String bannedTeams);
+
+    @SqlUpdate("UPDATE competitions SET dataVersion = dataVersion + 1 WHERE name = :name")
+    void bumpDataVersion(@Bind("name") String name);
+
+    // 只知道成绩 id 的写操作（修改 / 删除）用它推进所属赛事的版本，须在改动 scores 之前调用
+    @SqlUpdate("UPDATE competitions SET dataVersion = dataVersion + 1 WHERE id = (SELECT competitionId FROM scores WHERE id = :id)")
+    void bumpDataVersionForScore(@Bind("id") int scoreId);
 }
\ No newline at end of file
@@ -6,18 +6,18 @@ import org.jdbi.v3.sqlobject.statement.SqlUpdate;
 import java.util.List;
 
 public interface MembershipDao {
-    @SqlQuery("SELECT status FROM memberships WHERE username = :username AND competitionName = :compName")
-    String getStatus(@Bind("username") String username, @Bind("compName") String compName);
+    @SqlQuery("SELECT status FROM memberships WHERE username = :username AND competitionId = :compId")
+    String getStatus(@Bind("username") String username, @Bind("compId") int compId);
 
-    @SqlUpdate("INSERT INTO memberships(username, competitionName, status) VALUES(:username, :compName, :status)")
-    void insert(@Bind("username") String username, @Bind("compName") String compName, @Bind("status") String status);
+    @SqlUpdate("INSERT INTO memberships(username, competitionId, status) VALUES(:username, :compId, :status)")
+    void insert(@Bind("username") String username, @Bind("compId") int compId, @Bind("status") String status);
 
-    @SqlUpdate("UPDATE memberships SET status = :status WHERE username = :username AND competitionName = :compName")
-    int updateStatus(@Bind("username") String username, @Bind("compName") String compName, @Bind("status") String status);
+    @SqlUpdate("UPDATE memberships SET status = :status WHERE username = :username AND competitionId = :compId")
+    int updateStatus(@Bind("username") String username, @Bind("compId") int compId, @Bind("status") String status);
 
-    @SqlUpdate("DELETE FROM memberships WHERE username = :username AND competitionName = :compName")
-    void delete(@Bind("username") String username, @Bind("compName") String compName);
+    @SqlUpdate("DELETE FROM memberships WHERE username = :username AND competitionId = :compId")
+    void delete(@Bind("username") String username, @Bind("compId") int compId);
 
-    @SqlQuery("SELECT username FROM memberships WHERE competitionName = :compName AND status = :status")
-    List<String> findUsersByStatus(@Bind("compName") String compName, @Bind("status") String status);
+    @SqlQuery("SELECT username FROM memberships WHERE competitionId = :compId AND status = :status")
+    List<String> findUsersByStatus(@Bind("compId") int compId, @Bind("status") String status);
 }
\ No newline at end of file
@@ -1,29 +1,60 @@
 package com.bear27570.ftc.scouting.repository.dao;
 
 import com.bear27570.ftc.scouting.models.ScoreEntry;
-import org.jdbi.v3.sqlobject.config.RegisterBeanMapper;
+import com.bear27570.ftc.scouting.models.ShotEvent;
+import com.bear27570.ftc.scouting.models.ShotGrid;
+import com.bear27570.ftc.scouting.models.ShotSummary;
+import com.bear27570.ftc.scouting.repository.mapper.BindScoreEntry;
+import com.bear27570.ftc.scouting.repository.mapper.ScoreEntryMapper;
+import com.bear27570.ftc.scouting.utils.ShotEventCodec;
+import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
 import org.jdbi.v3.sqlobject.customizer.Bind;
-import org.jdbi.v3.sqlobject.customizer.BindBean;
 import org.jdbi.v3.sqlobject.customizer.BindList;
+import org.jdbi.v3.sqlobject.customizer.BindMethods;
+import org.jdbi.v3.sqlobject.customizer.FetchSize;
 import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-@RegisterBeanMapper(ScoreEntry.class) // 魔法：自动将 ResultSet 映射为 ScoreEntry 对象
+@RegisterRowMapper(ScoreEntryMapper.class) // 手写映射：每个结果集只解析一次列号，逐行不走反射
 public interface ScoreDao {
 
-    @SqlUpdate("INSERT INTO scores (competitionName, scoreType, matchNumber, alliance, team1, team2, " +
+    String INSERT_SQL = "INSERT INTO scores (competitionId, scoreType, matchNumber, alliance, team1, team2, " +
             "team1AutoScore, team2AutoScore, team1AutoProj, team2AutoProj, team1AutoRow, team2AutoRow, " +
             "autoArtifacts, teleopArtifacts, team1CanSequence, team2CanSequence, team1L2Climb, team2L2Climb, " +
             "team1Ignored, team2Ignored, team1Broken, team2Broken, totalScore, clickLocations, submitter, submissionTime, syncStatus) " +
-            "VALUES (:compName, :scoreType, :matchNumber, :alliance, :team1, :team2, " +
+            "VALUES (:compId, :scoreType, :matchNumber, :alliance, :team1, :team2, " +
             ":team1AutoScore, :team2AutoScore, :team1AutoProj, :team2AutoProj, :team1AutoRow, :team2AutoRow, " +
             ":autoArtifacts, :teleopArtifacts, :team1CanSequence, :team2CanSequence, :team1L2Climb, :team2L2Climb, " +
-            ":team1Ignored, :team2Ignored, :team1Broken, :team2Broken, :totalScore, :clickLocations, :submitter, :submissionTime, :syncStatus)")
+            ":team1Ignored, :team2Ignored, :team1Broken, :team2Broken, :totalScore, :clickLocations, :submitter, :submissionTime, :syncStatus)";
+
+    @SqlUpdate(INSERT_SQL)
+    @GetGeneratedKeys("id")
+    int insert(@BindScoreEntry ScoreEntry entry, @Bind("compId") int compId);
+
+    // 主机写入队列的组提交：整批一次往返，返回的 id 与 entries 一一对应
+    @SqlBatch(INSERT_SQL)
     @GetGeneratedKeys("id")
-    int insert(@BindBean ScoreEntry entry, @Bind("compName") String compName);
+    int[] insertAll(@BindScoreEntry List<ScoreEntry> entries, @Bind("compId") int compId);
+
+    /**
+     * 主机数据同步：用主机版本整行覆盖本地 id 为 localId 的成绩（提交键不变，记录类型随主机），整批一次往返。
+     * 不用 MERGE ... KEY：旧版同步会重复插入，本地同一提交键可能已有多行，MERGE 遇到这种数据直接报唯一性冲突。
+     * entries 与 localIds 一一对应，同一条主机数据可以对应多个本地行。
+     */
+    @SqlBatch("UPDATE scores SET scoreType=:scoreType, matchNumber=:matchNumber, alliance=:alliance, team1=:team1, team2=:team2, " +
+            "team1AutoScore=:team1AutoScore, team2AutoScore=:team2AutoScore, team1AutoProj=:team1AutoProj, team2AutoProj=:team2AutoProj, " +
+            "team1AutoRow=:team1AutoRow, team2AutoRow=:team2AutoRow, autoArtifacts=:autoArtifacts, teleopArtifacts=:teleopArtifacts, " +
+            "team1CanSequence=:team1CanSequence, team2CanSequence=:team2CanSequence, team1L2Climb=:team1L2Climb, team2L2Climb=:team2L2Climb, " +
+            "team1Ignored=:team1Ignored, team2Ignored=:team2Ignored, team1Broken=:team1Broken, team2Broken=:team2Broken, " +
+            "totalScore=:totalScore, clickLocations=:clickLocations, syncStatus=:syncStatus WHERE id=:localId")
+    void overwriteAll(@BindScoreEntry List<ScoreEntry> entries, @Bind("localId") List<Integer> localIds);
 
     @SqlUpdate("UPDATE scores SET matchNumber=:matchNumber, alliance=:alliance, team1=:team1, team2=:team2, " +
             "team1AutoScore=:team1AutoScore, team2AutoScore=:team2AutoScore, team1AutoProj=:team1AutoProj, team2AutoProj=:team2AutoProj, " +
@@ -31,24 +62,202 @@ public interface ScoreDao {
             "team1CanSequence=:team1CanSequence, team2CanSequence=:team2CanSequence, team1L2Climb=:team1L2Climb, team2L2Climb=:team2L2Climb, " +
             "team1Ignored=:team1Ignored, team2Ignored=:team2Ignored, team1Broken=:team1Broken, team2Broken=:team2Broken, " +
             "totalScore=:totalScore, clickLocations=:clickLocations, syncStatus=:syncStatus WHERE id=:id")
-    void update(@BindBean ScoreEntry entry);
+    void update(@BindScoreEntry ScoreEntry entry);
 
     @SqlUpdate("DELETE FROM scores WHERE id = :id")
     void delete(@Bind("id") int id);
 
-    @SqlUpdate("DELETE FROM scores WHERE competitionName = :compName")
-    void deleteAllByCompetition(@Bind("compName") String compName);
+    @SqlUpdate("DELETE FROM scores WHERE competitionId = :compId")
+    void deleteAllByCompetition(@Bind("compId") int compId);
+
+    @SqlQuery("SELECT * FROM scores WHERE id = :id")
+    Optional<ScoreEntry> findById(@Bind("id") int id);
+
+    @SqlQuery("SELECT c.name FROM scores s JOIN competitions c ON c.id = s.competitionId WHERE s.id = :id")
+    Optional<String> findCompetitionName(@Bind("id") int id);
+
+    // ORDER BY 带上 competitionId 才能与 idx_scores_comp_match_id 的列前缀对齐，按索引顺序输出而不必整体排序。
+    // 外键自带的单列索引代价估算相同，绑定参数时优化器会选中它再整体排序，因此显式指定索引
+    String BY_COMPETITION = "SELECT * FROM scores USE INDEX (idx_scores_comp_match_id) WHERE competitionId = :compId";
+    String COMPETITION_ORDER = " ORDER BY competitionId, matchNumber DESC, id DESC";
+
+    @SqlQuery(BY_COMPETITION + COMPETITION_ORDER)
+    List<ScoreEntry> findByCompetition(@Bind("compId") int compId);
+
+    int STREAM_FETCH_SIZE = 500;
+
+    // 与 findByCompetition 同序的游标读取，结果集不整体进内存；流关闭前占用所在的连接
+    @SqlQuery(BY_COMPETITION + COMPETITION_ORDER)
+    @FetchSize(STREAM_FETCH_SIZE)
+    Stream<ScoreEntry> streamByCompetition(@Bind("compId") int compId);
+
+    // 键集分页：从上一页最后一行 (matchNumber, id) 之后继续。行值比较能直接定位到索引中的起点，不随页码变慢
+    @SqlQuery(BY_COMPETITION + " AND (matchNumber, id) < (:afterMatch, :afterId)" + COMPETITION_ORDER + " LIMIT :limit")
+    List<ScoreEntry> findPageAfter(@Bind("compId") int compId, @Bind("afterMatch") int afterMatch,
+                                   @Bind("afterId") int afterId, @Bind("limit") int limit);
+
+    // 经 score_teams 的 (team, score_id) 索引范围扫描，再按主键回表
+    @SqlQuery("SELECT s.* FROM score_teams st JOIN scores s ON s.id = st.score_id " +
+            "WHERE st.team = :teamNum AND s.competitionId = :compId ORDER BY s.matchNumber DESC, s.id DESC")
+    List<ScoreEntry> findByTeam(@Bind("compId") int compId, @Bind("teamNum") int teamNum);
+
+    @SqlQuery("SELECT * FROM scores WHERE competitionId = :compId AND syncStatus IN ('UNSYNCED', 'EXPORTED')")
+    List<ScoreEntry> findPendingExports(@Bind("compId") int compId);
+
+    // 队伍出场表由成绩行本身派生，插入或修改成绩后在同一事务内调用；删除成绩时由外键级联清理
+    @SqlUpdate("INSERT INTO score_teams(score_id, team, slot) " +
+            "SELECT id, team1, 1 FROM scores WHERE id = :id AND team1 IS NOT NULL " +
+            "UNION ALL SELECT id, team2, 2 FROM scores WHERE id = :id AND scoreType = 'ALLIANCE' AND team2 IS NOT NULL AND team2 <> team1")
+    void indexTeams(@Bind("id") int id);
+
+    @SqlBatch("INSERT INTO score_teams(score_id, team, slot) " +
+            "SELECT id, team1, 1 FROM scores WHERE id = :id AND team1 IS NOT NULL " +
+            "UNION ALL SELECT id, team2, 2 FROM scores WHERE id = :id AND scoreType = 'ALLIANCE' AND team2 IS NOT NULL AND team2 <> team1")
+    void indexTeamsAll(@Bind("id") int[] ids);
+
+    @SqlUpdate("DELETE FROM score_teams WHERE score_id = :id")
+    void unindexTeams(@Bind("id") int id);
+
+    @SqlBatch("DELETE FROM score_teams WHERE score_id = :id")
+    void unindexTeamsAll(@Bind("id") int[] ids);
+
+    // 投射点表同样由成绩行派生，与出场表一起维护；删除成绩时由外键级联清理
+    @SqlBatch("INSERT INTO shot_events(score_id, team, slot, x, y, hit, ts) VALUES (:scoreId, :team, :slot, :x, :y, :hit, :ts)")
+    void insertShots(@BindMethods List<ShotEvent> events);
+
+    // 逐成绩预聚合近 / 远端计数，全赛事统计只读这张小表；只统计序号 1、2 的点
+    String COUNT_ZONES = "INSERT INTO shot_zone_counts(score_id, slot, nearShots, nearHits, farShots, farHits) " +
+            "SELECT score_id, slot, " +
+            "COUNT(*) FILTER (WHERE y < " + ShotSummary.ZONE_DIVIDER_Y + "), " +
+            "COUNT(*) FILTER (WHERE y < " + ShotSummary.ZONE_DIVIDER_Y + " AND hit), " +
+            "COUNT(*) FILTER (WHERE y >= " + ShotSummary.ZONE_DIVIDER_Y + "), " +
+            "COUNT(*) FILTER (WHERE y >= " + ShotSummary.ZONE_DIVIDER_Y + " AND hit) " +
+            "FROM shot_events WHERE score_id = :id AND slot IN (1, 2) GROUP BY score_id, slot";
+
+    @SqlUpdate(COUNT_ZONES)
+    void countZones(@Bind("id") int id);
+
+    @SqlBatch(COUNT_ZONES)
+    void countZonesAll(@Bind("id") List<Integer> ids);
+
+    @SqlUpdate("DELETE FROM shot_events WHERE score_id = :id")
+    void deleteShots(@Bind("id") int id);
+
+    @SqlUpdate("DELETE FROM shot_zone_counts WHERE score_id = :id")
+    void deleteZoneCounts(@Bind("id") int id);
+
+    @SqlBatch("DELETE FROM shot_events WHERE score_id = :id")
+    void deleteShotsAll(@Bind("id") List<Integer> ids);
+
+    @SqlBatch("DELETE FROM shot_zone_counts WHERE score_id = :id")
+    void deleteZoneCountsAll(@Bind("id") List<Integer> ids);
+
+    default void indexShots(int id, ScoreEntry entry) {
+        List<ShotEvent> events = new ArrayList<>();
+        ShotEvent.collect(id, entry, new ShotEventCodec.Cursor(), events);
+        if (events.isEmpty()) return;
+        insertShots(events);
+        countZones(id);
+    }
+
+    default void unindexShots(int id) {
+        deleteShots(id);
+        deleteZoneCounts(id);
+    }
+
+    // 格子编号与 ShotGrid 一致：row * SIZE + col，场地外的点归入边缘格
+    String GRID_CELL = "LEAST(" + (ShotGrid.SIZE - 1) + ", GREATEST(0, CAST(FLOOR(e.y / " + ShotGrid.CELL_SIZE + ") AS INT))) * " + ShotGrid.SIZE +
+            " + LEAST(" + (ShotGrid.SIZE - 1) + ", GREATEST(0, CAST(FLOOR(e.x / " + ShotGrid.CELL_SIZE + ") AS INT)))";
+
+    // 与热力图取点规则一致：不含该队故障的场次；单人模式下 slot 2 的点只在 team1 = team2 时算
+    String UPDATE_GRID = "MERGE INTO shot_grid g USING (" +
+            "SELECT s.competitionId, e.team, " + GRID_CELL + " AS cell, COUNT(*) AS shots, COUNT(*) FILTER (WHERE e.hit) AS hits " +
+            "FROM shot_events e JOIN scores s ON s.id = e.score_id " +
+            "WHERE e.score_id = :id AND e.team IS NOT NULL " +
+            "AND (e.slot = 1 OR s.scoreType = 'ALLIANCE' OR s.team2 = s.team1) " +
+            "AND NOT ((s.team1 = e.team AND s.team1Broken) IS TRUE OR (s.team2 = e.team AND s.team2Broken) IS TRUE) " +
+            "GROUP BY s.competitionId, e.team, cell) d " +
+            "ON g.competitionId = d.competitionId AND g.team = d.team AND g.cell = d.cell " +
+            "WHEN MATCHED THEN UPDATE SET shots = g.shots + :sign * d.shots, hits = g.hits + :sign * d.hits " +
+            "WHEN NOT MATCHED THEN INSERT (competitionId, team, cell, shots, hits) VALUES (d.competitionId, d.team, d.cell, :sign * d.shots, :sign * d.hits)";
+
+    /**
+     * 把一条成绩的投射点计入（sign = 1）或扣出（sign = -1）shot_grid。
+     * 扣出按库中现有的成绩行与投射点计算，必须在修改或删除它们之前执行。
+     */
+    @SqlUpdate(UPDATE_GRID)
+    void updateGrid(@Bind("id") int id, @Bind("sign") int sign);
+
+    @SqlBatch(UPDATE_GRID)
+    void updateGridAll(@Bind("id") List<Integer> ids, @Bind("sign") int sign);
+
+    /** events 为 ids 对应成绩的全部投射点，ids 中原有的投射点与计数先被清除；shot_grid 由调用方另行增减 */
+    default void reindexShotsAll(List<Integer> ids, List<ShotEvent> events) {
+        if (ids.isEmpty()) return;
+        deleteShotsAll(ids);
+        deleteZoneCountsAll(ids);
+        if (events.isEmpty()) return;
+        insertShots(events);
+        countZonesAll(ids);
+    }
+
+    default int insertIndexed(ScoreEntry entry, int compId) {
+        int id = insert(entry, compId);
+        indexTeams(id);
+        indexShots(id, entry);
+        updateGrid(id, 1);
+        return id;
+    }
+
+    default void insertAllIndexed(List<ScoreEntry> entries, int compId) {
+        int[] ids = insertAll(entries, compId);
+        List<Integer> shotIds = new ArrayList<>();
+        List<ShotEvent> events = new ArrayList<>();
+        ShotEventCodec.Cursor cursor = new ShotEventCodec.Cursor();
+        for (int i = 0; i < ids.length; i++) {
+            entries.get(i).setId(ids[i]);
+            int before = events.size();
+            ShotEvent.collect(ids[i], entries.get(i), cursor, events);
+            if (events.size() > before) shotIds.add(ids[i]);
+        }
+        indexTeamsAll(ids);
+        if (!events.isEmpty()) {
+            insertShots(events);
+            countZonesAll(shotIds);
+            updateGridAll(shotIds, 1);
+        }
+    }
+
+    default void updateIndexed(ScoreEntry entry) {
+        updateGrid(entry.getId(), -1);
+        update(entry);
+        unindexTeams(entry.getId());
+        indexTeams(entry.getId());
+        unindexShots(entry.getId());
+        indexShots(entry.getId(), entry);
+        updateGrid(entry.getId(), 1);
+    }
 
-    @SqlQuery("SELECT * FROM scores WHERE competitionName = :compName ORDER BY matchNumber DESC, id DESC")
-    List<ScoreEntry> findByCompetition(@Bind("compName") String compName);
+    /** overwriteAll 之后重建出场表、投射点与空间计数，entries 与 localIds 一一对应 */
+    default void overwriteAllIndexed(List<ScoreEntry> entries, List<Integer> localIds) {
+        int[] ids = localIds.stream().mapToInt(Integer::intValue).toArray();
+        List<ShotEvent> events = new ArrayList<>();
+        ShotEventCodec.Cursor cursor = new ShotEventCodec.Cursor();
+        for (int i = 0; i < ids.length; i++) ShotEvent.collect(ids[i], entries.get(i), cursor, events);
 
-    @SqlQuery("SELECT * FROM scores WHERE competitionName = :compName AND (team1 = :teamNum OR (scoreType = 'ALLIANCE' AND team2 = :teamNum)) ORDER BY matchNumber DESC, id DESC")
-    List<ScoreEntry> findByTeam(@Bind("compName") String compName, @Bind("teamNum") int teamNum);
+        updateGridAll(localIds, -1);
+        overwriteAll(entries, localIds);
+        unindexTeamsAll(ids);
+        indexTeamsAll(ids);
+        reindexShotsAll(localIds, events);
+        updateGridAll(localIds, 1);
+    }
 
-    @SqlQuery("SELECT * FROM scores WHERE competitionName = :compName AND syncStatus IN ('UNSYNCED', 'EXPORTED')")
-    List<ScoreEntry> findPendingExports(@Bind("compName") String compName);
-    @SqlQuery("SELECT * FROM scores WHERE competitionName = :compName AND matchNumber = :matchNum AND alliance = :alliance")
-    ScoreEntry findByMatchAndAlliance(@Bind("compName") String compName, @Bind("matchNum") int matchNum, @Bind("alliance") String alliance);
+    // 出场表与投射点由外键级联删除，空间计数要先按旧内容扣出
+    default void deleteIndexed(int id) {
+        updateGrid(id, -1);
+        delete(id);
+    }
 
     // 优雅的批量更新，无需手动拼接问号
     @SqlUpdate("UPDATE scores SET syncStatus = :status WHERE id IN (<ids>)")
@@ -0,0 +1,23 @@
+package com.bear27570.ftc.scouting.repository.impl;
+
+import com.bear27570.ftc.scouting.repository.CompetitionDataRepository;
+import com.bear27570.ftc.scouting.repository.DatabaseManager;
+import com.bear27570.ftc.scouting.repository.dao.CompetitionDao;
+import com.bear27570.ftc.scouting.repository.dao.ScoreDao;
+import org.jdbi.v3.core.transaction.TransactionIsolationLevel;
+
+public class CompetitionDataRepositoryJdbiImpl implements CompetitionDataRepository {
+
+    @Override
+    public CompetitionData loadAll(String competitionName) {
+        // REPEATABLE_READ 在 H2 中为快照读，各次查询看到的是同一时刻的数据
+        return DatabaseManager.getJdbi().inTransaction(TransactionIsolationLevel.REPEATABLE_READ, handle -> {
+            int competitionId = CompetitionIds.resolve(handle, competitionName);
+            return new CompetitionData(
+                    handle.attach(CompetitionDao.class).findByName(competitionName),
+                    handle.attach(ScoreDao.class).findByCompetition(competitionId),
+                    PenaltyRepositoryJdbiImpl.queryFullPenalties(handle, competitionName),
+                    ScoreRepositoryJdbiImpl.queryShotSummaries(handle, competitionId));
+        });
+    }
+}
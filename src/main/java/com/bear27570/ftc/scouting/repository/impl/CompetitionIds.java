@@ -0,0 +1,61 @@
+package com.bear27570.ftc.scouting.repository.impl;
+
+import com.bear27570.ftc.scouting.repository.DatabaseManager;
+import com.bear27570.ftc.scouting.repository.dao.CompetitionDao;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 赛事名称到整数代理键的缓存，按 Jdbi 实例（即每个数据库）各存一份。对外仍以名称标识赛事，
+ * 各仓储在查询子表前经此换成 id，每个名称只查一次库。
+ * 删除赛事时移除对应项（同名重建会分到新 id）；其他进程删除并重建同名赛事时缓存的 id 会失效，
+ * 用它的写事务会被外键拒绝并回滚，回滚时同样移除，下一次重新查库。
+ */
+final class CompetitionIds {
+    // 库中没有该赛事；id 从 1 开始分配，用它查询子表不会命中任何行，写入会被外键拒绝
+    static final int MISSING = 0;
+
+    // 弱引用键：Jdbi 实例被丢弃（如测试换库）后，它的缓存随之回收，不会串到新库上
+    private static final Map<Jdbi, Map<String, Integer>> caches = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private CompetitionIds() {
+    }
+
+    private static Map<String, Integer> cache(Jdbi jdbi) {
+        return caches.computeIfAbsent(jdbi, k -> new ConcurrentHashMap<>());
+    }
+
+    static int resolve(String competitionName) {
+        if (competitionName == null) return MISSING;
+        Jdbi jdbi = DatabaseManager.getJdbi();
+        Integer id = cache(jdbi).get(competitionName);
+        if (id != null) return id;
+        return jdbi.withHandle(handle -> resolve(handle, competitionName));
+    }
+
+    /** 事务内调用，未命中缓存时在同一连接上查询 */
+    static int resolve(Handle handle, String competitionName) {
+        if (competitionName == null) return MISSING;
+        Map<String, Integer> ids = cache(handle.getJdbi());
+        Integer id = ids.get(competitionName);
+        if (id != null) {
+            // 事务失败可能正是因为这个 id 已过期，回滚后丢掉它；只移除这一个值，不误删回滚期间别处写入的新 id
+            if (handle.isInTransaction()) handle.afterRollback(() -> ids.remove(competitionName, id));
+            return id;
+        }
+        // 不存在的名称不缓存，稍后创建的赛事仍能查到
+        Optional<Integer> found = handle.attach(CompetitionDao.class).findId(competitionName);
+        found.ifPresent(value -> ids.put(competitionName, value));
+        return found.orElse(MISSING);
+    }
+
+    static void evict(Jdbi jdbi, String competitionName) {
+        if (competitionName != null) cache(jdbi).remove(competitionName);
+    }
+}
@@ -4,6 +4,7 @@ import com.bear27570.ftc.scouting.models.Competition;
 import com.bear27570.ftc.scouting.repository.CompetitionRepository;
 import com.bear27570.ftc.scouting.repository.DatabaseManager;
 import com.bear27570.ftc.scouting.repository.dao.CompetitionDao;
+import org.jdbi.v3.core.Jdbi;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,6 +24,9 @@ public class CompetitionRepositoryJdbiImpl implements CompetitionRepository {
     @Override
     public void updateFormula(String compName, String newFormula) { dao().updateFormula(compName, newFormula); }
 
+    @Override
+    public void updateRatingHalfLife(String compName, double halfLife) { dao().updateRatingHalfLife(compName, halfLife); }
+
     @Override
     public boolean create(String name, String creator, String formula) {
         try {
@@ -65,13 +69,10 @@ public class CompetitionRepositoryJdbiImpl implements CompetitionRepository {
     @Override
     public boolean deleteByName(String name) {
         try {
-            // 企业级安全级联删除，使用闭包控制事务
-            DatabaseManager.getJdbi().useTransaction(handle -> {
-                handle.execute("DELETE FROM scores WHERE competitionName = ?", name);
-                handle.execute("DELETE FROM penalties WHERE competitionName = ?", name);
-                handle.execute("DELETE FROM memberships WHERE competitionName = ?", name);
-                handle.execute("DELETE FROM competitions WHERE name = ?", name);
-            });
+            // 成绩、判罚、物化排名与成员关系经外键 ON DELETE CASCADE 随赛事行一并删除
+            Jdbi jdbi = DatabaseManager.getJdbi();
+            jdbi.useHandle(handle -> handle.execute("DELETE FROM competitions WHERE name = ?", name));
+            CompetitionIds.evict(jdbi, name);
             return true;
         } catch (Exception e) {
             log.error("Failed to delete competition", e);
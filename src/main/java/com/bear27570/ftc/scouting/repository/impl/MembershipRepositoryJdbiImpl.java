@@ -4,37 +4,52 @@ import com.bear27570.ftc.scouting.models.Membership;
 import com.bear27570.ftc.scouting.repository.DatabaseManager;
 import com.bear27570.ftc.scouting.repository.MembershipRepository;
 import com.bear27570.ftc.scouting.repository.dao.MembershipDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.List;
 
 public class MembershipRepositoryJdbiImpl implements MembershipRepository {
+    private static final Logger log = LoggerFactory.getLogger(MembershipRepositoryJdbiImpl.class);
+
     private MembershipDao dao() { return DatabaseManager.getJdbi().onDemand(MembershipDao.class); }
 
     @Override
     public void addMembership(String username, String competitionName, Membership.Status status) {
-        String existingStatus = dao().getStatus(username, competitionName);
-        if (existingStatus == null) {
-            dao().insert(username, competitionName, status.name());
-        } else if (existingStatus.equals("PENDING") && status == Membership.Status.APPROVED) {
-            dao().updateStatus(username, competitionName, status.name());
-        }
+        // 放在事务里：缓存的赛事 id 过期导致外键失败时，回滚会让 CompetitionIds 丢掉它
+        DatabaseManager.getJdbi().useTransaction(handle -> {
+            int competitionId = CompetitionIds.resolve(handle, competitionName);
+            if (competitionId == CompetitionIds.MISSING) {
+                // 外键不允许成员关系挂在不存在的赛事上，旧版会写下一条孤立的行
+                log.warn("Membership of {} not recorded: competition '{}' does not exist", username, competitionName);
+                return;
+            }
+            MembershipDao dao = handle.attach(MembershipDao.class);
+            String existingStatus = dao.getStatus(username, competitionId);
+            if (existingStatus == null) {
+                dao.insert(username, competitionId, status.name());
+            } else if (existingStatus.equals("PENDING") && status == Membership.Status.APPROVED) {
+                dao.updateStatus(username, competitionId, status.name());
+            }
+        });
     }
 
     @Override
     public Membership.Status getMembershipStatus(String username, String competitionName) {
-        String status = dao().getStatus(username, competitionName);
+        String status = dao().getStatus(username, CompetitionIds.resolve(competitionName));
         return status != null ? Membership.Status.valueOf(status) : null;
     }
 
     @Override
-    public void removeMembership(String username, String compName) { dao().delete(username, compName); }
+    public void removeMembership(String username, String compName) { dao().delete(username, CompetitionIds.resolve(compName)); }
 
     @Override
     public List<String> getMembersByStatus(String compName, Membership.Status status) {
-        return dao().findUsersByStatus(compName, status.name());
+        return dao().findUsersByStatus(CompetitionIds.resolve(compName), status.name());
     }
 
     @Override
     public void updateMembershipStatus(String username, String compName, Membership.Status newStatus) {
-        dao().updateStatus(username, compName, newStatus.name());
+        dao().updateStatus(username, CompetitionIds.resolve(compName), newStatus.name());
     }
 }
\ No newline at end of file
@@ -3,7 +3,12 @@ package com.bear27570.ftc.scouting.repository.impl;
 import com.bear27570.ftc.scouting.models.PenaltyEntry;
 import com.bear27570.ftc.scouting.repository.DatabaseManager;
 import com.bear27570.ftc.scouting.repository.PenaltyRepository;
+import com.bear27570.ftc.scouting.repository.dao.CompetitionDao;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.statement.PreparedBatch;
+
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class PenaltyRepositoryJdbiImpl implements PenaltyRepository {
@@ -11,13 +16,14 @@ public class PenaltyRepositoryJdbiImpl implements PenaltyRepository {
     @Override
     public void savePenaltyEntry(String compName, PenaltyEntry entry) {
         DatabaseManager.getJdbi().useTransaction(handle -> {
-            boolean exists = handle.createQuery("SELECT 1 FROM penalties WHERE competitionName=? AND matchNumber=?")
-                    .bind(0, compName).bind(1, entry.getMatchNumber())
+            int compId = CompetitionIds.resolve(handle, compName);
+            boolean exists = handle.createQuery("SELECT 1 FROM penalties WHERE competitionId=? AND matchNumber=?")
+                    .bind(0, compId).bind(1, entry.getMatchNumber())
                     .mapTo(Boolean.class).findFirst().orElse(false);
 
             if (!exists) {
-                handle.execute("INSERT INTO penalties (competitionName, matchNumber, redMajor, redMinor, blueMajor, blueMinor, redScore, blueScore) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
-                        compName, entry.getMatchNumber(),
+                handle.execute("INSERT INTO penalties (competitionId, matchNumber, redMajor, redMinor, blueMajor, blueMinor, redScore, blueScore) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                        compId, entry.getMatchNumber(),
                         entry.getAlliance().equalsIgnoreCase("RED") ? entry.getMajorCount() : 0,
                         entry.getAlliance().equalsIgnoreCase("RED") ? entry.getMinorCount() : 0,
                         entry.getAlliance().equalsIgnoreCase("BLUE") ? entry.getMajorCount() : 0,
@@ -26,29 +32,61 @@ public class PenaltyRepositoryJdbiImpl implements PenaltyRepository {
                         entry.getAlliance().equalsIgnoreCase("BLUE") ? entry.getOfficialScore() : 0);
             } else {
                 if (entry.getAlliance().equalsIgnoreCase("RED")) {
-                    handle.execute("UPDATE penalties SET redMajor=?, redMinor=?, redScore=? WHERE competitionName=? AND matchNumber=?",
-                            entry.getMajorCount(), entry.getMinorCount(), entry.getOfficialScore(), compName, entry.getMatchNumber());
+                    handle.execute("UPDATE penalties SET redMajor=?, redMinor=?, redScore=? WHERE competitionId=? AND matchNumber=?",
+                            entry.getMajorCount(), entry.getMinorCount(), entry.getOfficialScore(), compId, entry.getMatchNumber());
                 } else {
-                    handle.execute("UPDATE penalties SET blueMajor=?, blueMinor=?, blueScore=? WHERE competitionName=? AND matchNumber=?",
-                            entry.getMajorCount(), entry.getMinorCount(), entry.getOfficialScore(), compName, entry.getMatchNumber());
+                    handle.execute("UPDATE penalties SET blueMajor=?, blueMinor=?, blueScore=? WHERE competitionId=? AND matchNumber=?",
+                            entry.getMajorCount(), entry.getMinorCount(), entry.getOfficialScore(), compId, entry.getMatchNumber());
                 }
             }
+            handle.attach(CompetitionDao.class).bumpDataVersion(compName);
+        });
+    }
+
+    /**
+     * 红蓝两方各一个 MERGE 批次：H2 的 MERGE 只改写列出的列，同一场次先后合并红方和蓝方不会互相覆盖，
+     * 新插入的行未列出的一方取默认值 0，与 savePenaltyEntry 的插入行为一致。
+     */
+    @Override
+    public void savePenaltiesBatch(String compName, List<PenaltyEntry> entries) {
+        if (entries.isEmpty()) return;
+        DatabaseManager.getJdbi().useTransaction(handle -> {
+            int compId = CompetitionIds.resolve(handle, compName);
+            PreparedBatch red = handle.prepareBatch("MERGE INTO penalties (competitionId, matchNumber, redMajor, redMinor, redScore) " +
+                    "KEY (competitionId, matchNumber) VALUES (:compId, :matchNumber, :major, :minor, :score)");
+            PreparedBatch blue = handle.prepareBatch("MERGE INTO penalties (competitionId, matchNumber, blueMajor, blueMinor, blueScore) " +
+                    "KEY (competitionId, matchNumber) VALUES (:compId, :matchNumber, :major, :minor, :score)");
+            for (PenaltyEntry entry : entries) {
+                PreparedBatch batch = entry.getAlliance().equalsIgnoreCase("RED") ? red : blue;
+                batch.bind("compId", compId)
+                        .bind("matchNumber", entry.getMatchNumber())
+                        .bind("major", entry.getMajorCount())
+                        .bind("minor", entry.getMinorCount())
+                        .bind("score", entry.getOfficialScore())
+                        .add();
+            }
+            if (red.size() > 0) red.execute();
+            if (blue.size() > 0) blue.execute();
+            handle.attach(CompetitionDao.class).bumpDataVersion(compName);
         });
     }
 
     @Override
     public Map<Integer, FullPenaltyRow> getFullPenalties(String compName) {
-        return DatabaseManager.getJdbi().withHandle(handle ->
-                handle.createQuery("SELECT * FROM penalties WHERE competitionName = :compName")
-                        .bind("compName", compName)
-                        .reduceResultSet(new HashMap<Integer, FullPenaltyRow>(), (acc, rs, ctx) -> {
-                            acc.put(rs.getInt("matchNumber"), new FullPenaltyRow(
-                                    rs.getInt("redMajor"), rs.getInt("redMinor"),
-                                    rs.getInt("blueMajor"), rs.getInt("blueMinor"),
-                                    rs.getInt("redScore"), rs.getInt("blueScore")
-                            ));
-                            return acc;
-                        })
-        );
+        return DatabaseManager.getJdbi().withHandle(handle -> queryFullPenalties(handle, compName));
+    }
+
+    // 供需要在同一事务内读取判罚的仓储复用
+    static Map<Integer, FullPenaltyRow> queryFullPenalties(Handle handle, String compName) {
+        return handle.createQuery("SELECT * FROM penalties WHERE competitionId = :compId")
+                .bind("compId", CompetitionIds.resolve(handle, compName))
+                .reduceResultSet(new HashMap<Integer, FullPenaltyRow>(), (acc, rs, ctx) -> {
+                    acc.put(rs.getInt("matchNumber"), new FullPenaltyRow(
+                            rs.getInt("redMajor"), rs.getInt("redMinor"),
+                            rs.getInt("blueMajor"), rs.getInt("blueMinor"),
+                            rs.getInt("redScore"), rs.getInt("blueScore")
+                    ));
+                    return acc;
+                });
     }
 }
\ No newline at end of file
@@ -1,13 +1,23 @@
 package com.bear27570.ftc.scouting.repository.impl;
 
 import com.bear27570.ftc.scouting.models.ScoreEntry;
+import com.bear27570.ftc.scouting.models.ScoreShots;
+import com.bear27570.ftc.scouting.models.ShotGrid;
+import com.bear27570.ftc.scouting.models.ShotSummary;
 import com.bear27570.ftc.scouting.repository.DatabaseManager;
 import com.bear27570.ftc.scouting.repository.ScoreRepository;
+import com.bear27570.ftc.scouting.repository.dao.CompetitionDao;
 import com.bear27570.ftc.scouting.repository.dao.ScoreDao;
+import org.jdbi.v3.core.Handle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * 现代企业级实现：使用 JDBI 彻底接管数据持久层
@@ -21,7 +31,12 @@ public class ScoreRepositoryJdbiImpl implements ScoreRepository {
     @Override
     public void save(String competitionName, ScoreEntry entry) {
         try {
-            int generatedId = getDao().insert(entry, competitionName);
+            // 写入与版本号推进放在同一事务内，物化排名据此判断是否过期
+            int generatedId = DatabaseManager.getJdbi().inTransaction(handle -> {
+                int id = handle.attach(ScoreDao.class).insertIndexed(entry, CompetitionIds.resolve(handle, competitionName));
+                handle.attach(CompetitionDao.class).bumpDataVersion(competitionName);
+                return id;
+            });
             entry.setId(generatedId);
         } catch (Exception e) {
             log.error("[DAO Error] Failed to save score: " + e.getMessage());
@@ -30,27 +45,135 @@ public class ScoreRepositoryJdbiImpl implements ScoreRepository {
 
     @Override
     public void update(ScoreEntry entry) {
-        getDao().update(entry);
+        DatabaseManager.getJdbi().useTransaction(handle -> {
+            handle.attach(CompetitionDao.class).bumpDataVersionForScore(entry.getId());
+            handle.attach(ScoreDao.class).updateIndexed(entry);
+        });
+    }
+
+    @Override
+    public void saveAll(String competitionName, List<ScoreEntry> entries) {
+        List<ScoreEntry> inserts = new ArrayList<>();
+        List<ScoreEntry> updates = new ArrayList<>();
+        for (ScoreEntry e : entries) (e.getId() > 0 ? updates : inserts).add(e);
+        try {
+            DatabaseManager.getJdbi().useTransaction(handle -> {
+                ScoreDao dao = handle.attach(ScoreDao.class);
+                CompetitionDao competitionDao = handle.attach(CompetitionDao.class);
+                for (ScoreEntry e : updates) {
+                    competitionDao.bumpDataVersionForScore(e.getId());
+                    dao.updateIndexed(e);
+                }
+                if (!inserts.isEmpty()) {
+                    dao.insertAllIndexed(inserts, CompetitionIds.resolve(handle, competitionName));
+                    competitionDao.bumpDataVersion(competitionName);
+                }
+            });
+        } catch (RuntimeException e) {
+            // 事务已回滚，回填的 id 不再有效
+            inserts.forEach(s -> s.setId(0));
+            throw e;
+        }
     }
 
     @Override
     public void delete(int id) {
-        getDao().delete(id);
+        DatabaseManager.getJdbi().useTransaction(handle -> {
+            handle.attach(CompetitionDao.class).bumpDataVersionForScore(id);
+            handle.attach(ScoreDao.class).deleteIndexed(id);
+        });
+    }
+
+    @Override
+    public ScoreEntry findById(int id) {
+        return getDao().findById(id).orElse(null);
+    }
+
+    @Override
+    public String findCompetitionName(int id) {
+        return getDao().findCompetitionName(id).orElse(null);
     }
 
     @Override
     public List<ScoreEntry> findByCompetition(String competitionName) {
-        return getDao().findByCompetition(competitionName);
+        return getDao().findByCompetition(CompetitionIds.resolve(competitionName));
+    }
+
+    /**
+     * onDemand 会在方法返回时归还连接，游标随之失效，因此这里自己持有连接，流关闭时一并归还。
+     * H2 默认在执行查询时就把整个结果集算完（超出内存的部分落到临时文件），在这条连接上临时打开惰性执行，
+     * 配合按索引有序的查询才是真正边读边取。
+     */
+    @Override
+    public Stream<ScoreEntry> streamByCompetition(String competitionName) {
+        Handle handle = DatabaseManager.getJdbi().open();
+        try {
+            int competitionId = CompetitionIds.resolve(handle, competitionName);
+            handle.execute("SET LAZY_QUERY_EXECUTION TRUE");
+            return handle.attach(ScoreDao.class).streamByCompetition(competitionId).onClose(() -> {
+                try {
+                    handle.execute("SET LAZY_QUERY_EXECUTION FALSE");
+                } finally {
+                    handle.close();
+                }
+            });
+        } catch (RuntimeException e) {
+            handle.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public List<ScoreEntry> findPageByCompetition(String competitionName, ScoreEntry after, int limit) {
+        int competitionId = CompetitionIds.resolve(competitionName);
+        if (after == null) {
+            return getDao().findPageAfter(competitionId, Integer.MAX_VALUE, Integer.MAX_VALUE, limit);
+        }
+        return getDao().findPageAfter(competitionId, after.getMatchNumber(), after.getId(), limit);
     }
 
     @Override
     public List<ScoreEntry> findByTeam(String competitionName, int teamNumber) {
-        return getDao().findByTeam(competitionName, teamNumber);
+        return getDao().findByTeam(CompetitionIds.resolve(competitionName), teamNumber);
+    }
+
+    @Override
+    public Map<Integer, ScoreShots> findShotSummaries(String competitionName) {
+        return DatabaseManager.getJdbi().withHandle(handle ->
+                queryShotSummaries(handle, CompetitionIds.resolve(handle, competitionName)));
+    }
+
+    // 供需要在同一事务内读取投射统计的仓储复用；读的是写入时预聚合的 shot_zone_counts，每条成绩至多两行
+    static Map<Integer, ScoreShots> queryShotSummaries(Handle handle, int competitionId) {
+        return handle.createQuery("SELECT z.* FROM scores s JOIN shot_zone_counts z ON z.score_id = s.id WHERE s.competitionId = :compId")
+                .bind("compId", competitionId)
+                .reduceResultSet(new HashMap<Integer, ScoreShots>(), (acc, rs, ctx) -> {
+                    int slot = rs.getInt("slot");
+                    ShotSummary summary = new ShotSummary(rs.getInt("nearShots"), rs.getInt("nearHits"),
+                            rs.getInt("farShots"), rs.getInt("farHits"));
+                    acc.compute(rs.getInt("score_id"), (id, shots) -> (shots != null ? shots : ScoreShots.EMPTY).withSlot(slot, summary));
+                    return acc;
+                });
+    }
+
+    @Override
+    public ShotGrid findShotGrid(String competitionName, int teamNumber) {
+        int[][] counts = DatabaseManager.getJdbi().withHandle(handle ->
+                handle.createQuery("SELECT cell, shots, hits FROM shot_grid WHERE competitionId = :compId AND team = :team")
+                        .bind("compId", CompetitionIds.resolve(handle, competitionName))
+                        .bind("team", teamNumber)
+                        .reduceResultSet(new int[2][ShotGrid.CELLS], (acc, rs, ctx) -> {
+                            int cell = rs.getInt("cell");
+                            acc[0][cell] = rs.getInt("shots");
+                            acc[1][cell] = rs.getInt("hits");
+                            return acc;
+                        }));
+        return new ShotGrid(counts[0], counts[1]);
     }
 
     @Override
     public List<ScoreEntry> findPendingExports(String competitionName) {
-        return getDao().findPendingExports(competitionName);
+        return getDao().findPendingExports(CompetitionIds.resolve(competitionName));
     }
 
     @Override
@@ -59,38 +182,64 @@ public class ScoreRepositoryJdbiImpl implements ScoreRepository {
         getDao().updateStatuses(ids, status);
     }
 
+    /**
+     * 先按提交键把本地记录读进哈希表，与传入数据逐条比对，只写新增或内容有变化的行：本地已有的按 id 整批覆盖，其余整批插入。
+     * 同步主机数据时，本地尚未同步、主机也已收到的提交会被主机版本原地覆盖；主机没有的待同步记录保持原样，稍后继续上传。
+     * 旧版同步留下的同键重复行会被一并覆盖，不会让整个同步事务失败。
+     */
     @Override
-    public void syncWithHostData(String competitionName, List<ScoreEntry> hostData) {
-        DatabaseManager.getJdbi().useTransaction(handle -> {
+    public List<ScoreEntry> mergeSubmissions(String competitionName, List<ScoreEntry> hostData) {
+        for (ScoreEntry hs : hostData) {
+            // 提交键统一用空串代替 NULL，与之前同步写入的行一致
+            if (hs.getSubmitter() == null) hs.setSubmitter("");
+            if (hs.getSubmissionTime() == null) hs.setSubmissionTime("");
+        }
+        return DatabaseManager.getJdbi().inTransaction(handle -> {
             ScoreDao dao = handle.attach(ScoreDao.class);
+            int competitionId = CompetitionIds.resolve(handle, competitionName);
 
-            List<ScoreEntry> localPending = dao.findPendingExports(competitionName);
+            Map<SubmissionKey, List<ScoreEntry>> local = new HashMap<>();
+            for (ScoreEntry e : dao.findByCompetition(competitionId)) {
+                local.computeIfAbsent(submissionKey(e), k -> new ArrayList<>(1)).add(e);
+            }
 
-            // 💡 架构师改造：废弃全量删除重建，改用优雅的 UPSERT 增量更新机制
+            // 同一提交在主机数据里重复出现时以最后一条为准
+            Map<SubmissionKey, ScoreEntry> changed = new LinkedHashMap<>();
             for (ScoreEntry hs : hostData) {
-                hs.setSyncStatus(ScoreEntry.SyncStatus.SYNCED);
-
-                // 依据 FTC 业务逻辑：同一赛事、同一场次、同一联盟的数据具有唯一性
-                ScoreEntry existing = dao.findByMatchAndAlliance(competitionName, hs.getMatchNumber(), hs.getAlliance());
-
-                if (existing != null) {
-                    hs.setId(existing.getId()); // 绑定本地 ID
-                    dao.update(hs);             // 覆盖更新本地数据
-                } else {
-                    dao.insert(hs, competitionName); // 新数据直接插入
-                }
+                SubmissionKey key = submissionKey(hs);
+                List<ScoreEntry> existing = local.get(key);
+                if (existing == null || existing.stream().anyMatch(e -> !e.hasSameContent(hs))) changed.put(key, hs);
+                else changed.remove(key);
             }
-
-            // 补录本地未同步的数据 (防冲突)
-            for (ScoreEntry pending : localPending) {
-                boolean alreadyInHost = hostData.stream().anyMatch(h ->
-                        h.getSubmitter().equals(pending.getSubmitter()) &&
-                                h.getSubmissionTime().equals(pending.getSubmissionTime())
-                );
-                if (!alreadyInHost) {
-                    dao.insert(pending, competitionName);
+            if (changed.isEmpty()) return List.<ScoreEntry>of();
+
+            List<ScoreEntry> overwrites = new ArrayList<>();
+            List<Integer> localIds = new ArrayList<>();
+            List<ScoreEntry> inserts = new ArrayList<>();
+            for (Map.Entry<SubmissionKey, ScoreEntry> e : changed.entrySet()) {
+                List<ScoreEntry> existing = local.get(e.getKey());
+                if (existing == null) {
+                    inserts.add(e.getValue());
+                    continue;
                 }
+                for (ScoreEntry stored : existing) {
+                    overwrites.add(e.getValue());
+                    localIds.add(stored.getId());
+                }
+                e.getValue().setId(existing.get(0).getId());
             }
+            if (!overwrites.isEmpty()) dao.overwriteAllIndexed(overwrites, localIds);
+            if (!inserts.isEmpty()) dao.insertAllIndexed(inserts, competitionId);
+            handle.attach(CompetitionDao.class).bumpDataVersion(competitionName);
+            return new ArrayList<>(changed.values());
         });
     }
-}
\ No newline at end of file
+
+    // 识别同一条提交：(场次, 联盟, 提交人, 提交时间)，赛事由调用方限定
+    private record SubmissionKey(int matchNumber, String alliance, String submitter, String submissionTime) {
+    }
+
+    private static SubmissionKey submissionKey(ScoreEntry e) {
+        return new SubmissionKey(e.getMatchNumber(), e.getAlliance(), e.getSubmitter(), e.getSubmissionTime());
+    }
+}
@@ -0,0 +1,59 @@
+package com.bear27570.ftc.scouting.repository.impl;
+
+import com.bear27570.ftc.scouting.models.TeamRanking;
+import com.bear27570.ftc.scouting.repository.DatabaseManager;
+import com.bear27570.ftc.scouting.repository.TeamRankingRepository;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.jdbi.v3.core.statement.PreparedBatch;
+import org.jdbi.v3.core.transaction.TransactionIsolationLevel;
+
+import java.util.List;
+
+public class TeamRankingRepositoryJdbiImpl implements TeamRankingRepository {
+
+    // 完整的累加器状态以 JSON 存放，与网络同步时 TeamRanking 的序列化方式一致；允许 NaN 以免个别异常值导致整批写入失败
+    private final Gson gson = new GsonBuilder().serializeSpecialFloatingPointValues().create();
+
+    @Override
+    public List<TeamRanking> findCurrent(String competitionName) {
+        return DatabaseManager.getJdbi().inTransaction(TransactionIsolationLevel.REPEATABLE_READ, handle -> {
+            boolean current = handle.createQuery("SELECT dataVersion = rankedVersion FROM competitions WHERE name = :name")
+                    .bind("name", competitionName)
+                    .mapTo(Boolean.class).findOne().orElse(false);
+            if (!current) return null;
+            return handle.createQuery("SELECT payload FROM team_rankings WHERE competitionId = :compId ORDER BY rating DESC, teamNumber")
+                    .bind("compId", CompetitionIds.resolve(handle, competitionName))
+                    .map((rs, ctx) -> gson.fromJson(rs.getString("payload"), TeamRanking.class))
+                    .list();
+        });
+    }
+
+    @Override
+    public boolean store(String competitionName, long dataVersion, List<TeamRanking> rankings) {
+        return DatabaseManager.getJdbi().inTransaction(handle -> {
+            // 先占住版本：行锁保证与并发写入串行，条件不满足说明已物化或数据又变了
+            int claimed = handle.createUpdate("UPDATE competitions SET rankedVersion = :v WHERE name = :name AND dataVersion = :v AND rankedVersion <> :v")
+                    .bind("v", dataVersion)
+                    .bind("name", competitionName)
+                    .execute();
+            if (claimed == 0) return false;
+
+            int compId = CompetitionIds.resolve(handle, competitionName);
+            handle.execute("DELETE FROM team_rankings WHERE competitionId = ?", compId);
+            if (!rankings.isEmpty()) {
+                PreparedBatch batch = handle.prepareBatch("INSERT INTO team_rankings (competitionId, teamNumber, rating, matchesPlayed, payload) VALUES (:compId, :team, :rating, :matches, :payload)");
+                for (TeamRanking r : rankings) {
+                    batch.bind("compId", compId)
+                            .bind("team", r.getTeamNumber())
+                            .bind("rating", r.getRating())
+                            .bind("matches", r.getMatchesPlayed())
+                            .bind("payload", gson.toJson(r))
+                            .add();
+                }
+                batch.execute();
+            }
+            return true;
+        });
+    }
+}
@@ -0,0 +1,64 @@
+package com.bear27570.ftc.scouting.repository.mapper;
+
+import com.bear27570.ftc.scouting.models.ScoreEntry;
+import org.jdbi.v3.core.statement.SqlStatement;
+import org.jdbi.v3.sqlobject.customizer.SqlStatementCustomizerFactory;
+import org.jdbi.v3.sqlobject.customizer.SqlStatementCustomizingAnnotation;
+import org.jdbi.v3.sqlobject.customizer.SqlStatementParameterCustomizer;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Type;
+
+/**
+ * 以 ScoreEntry 的属性名绑定命名参数，取代 @BindBean 的反射取值；用在 @SqlBatch 的列表参数上时逐个元素绑定。
+ * 枚举按名称绑定，与 ScoreEntryMapper 读回时一致。
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+@SqlStatementCustomizingAnnotation(BindScoreEntry.Factory.class)
+public @interface BindScoreEntry {
+
+    class Factory implements SqlStatementCustomizerFactory {
+        @Override
+        public SqlStatementParameterCustomizer createForParameter(Annotation annotation, Class<?> sqlObjectType,
+                                                                  Method method, Parameter param, int index, Type paramType) {
+            return (stmt, arg) -> bind(stmt, (ScoreEntry) arg);
+        }
+
+        private static void bind(SqlStatement<?> stmt, ScoreEntry e) {
+            stmt.bind("id", e.getId())
+                    .bind("scoreType", e.getScoreType() != null ? e.getScoreType().name() : null)
+                    .bind("matchNumber", e.getMatchNumber())
+                    .bind("alliance", e.getAlliance())
+                    .bind("team1", e.getTeam1())
+                    .bind("team2", e.getTeam2())
+                    .bind("team1AutoScore", e.getTeam1AutoScore())
+                    .bind("team2AutoScore", e.getTeam2AutoScore())
+                    .bind("team1AutoProj", e.getTeam1AutoProj())
+                    .bind("team2AutoProj", e.getTeam2AutoProj())
+                    .bind("team1AutoRow", e.getTeam1AutoRow())
+                    .bind("team2AutoRow", e.getTeam2AutoRow())
+                    .bind("autoArtifacts", e.getAutoArtifacts())
+                    .bind("teleopArtifacts", e.getTeleopArtifacts())
+                    .bind("team1CanSequence", e.isTeam1CanSequence())
+                    .bind("team2CanSequence", e.isTeam2CanSequence())
+                    .bind("team1L2Climb", e.isTeam1L2Climb())
+                    .bind("team2L2Climb", e.isTeam2L2Climb())
+                    .bind("team1Ignored", e.isTeam1Ignored())
+                    .bind("team2Ignored", e.isTeam2Ignored())
+                    .bind("team1Broken", e.isTeam1Broken())
+                    .bind("team2Broken", e.isTeam2Broken())
+                    .bind("totalScore", e.getTotalScore())
+                    .bind("clickLocations", e.getClickLocations())
+                    .bind("submitter", e.getSubmitter())
+                    .bind("submissionTime", e.getSubmissionTime())
+                    .bind("syncStatus", e.getSyncStatus() != null ? e.getSyncStatus().name() : null);
+        }
+    }
+}
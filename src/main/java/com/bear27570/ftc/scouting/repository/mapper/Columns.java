@@ -0,0 +1,32 @@
+package com.bear27570.ftc.scouting.repository.mapper;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 结果集列名到列号的查找表，忽略大小写（H2 返回的列名全为大写）。
+ */
+final class Columns {
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    Columns(ResultSetMetaData meta) throws SQLException {
+        for (int i = meta.getColumnCount(); i >= 1; i--) {
+            // 倒序放入，同名列（如 JOIN 结果）以第一个为准
+            indexes.put(meta.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+        }
+    }
+
+    /** @return 列号（从 1 开始），没有该列时返回 0 */
+    int indexOf(String column) {
+        return indexes.getOrDefault(column.toLowerCase(Locale.ROOT), 0);
+    }
+
+    static <E extends Enum<E>> E enumAt(ResultSet rs, int index, Class<E> type) throws SQLException {
+        String value = rs.getString(index);
+        return value == null ? null : Enum.valueOf(type, value);
+    }
+}
@@ -0,0 +1,59 @@
+package com.bear27570.ftc.scouting.repository.mapper;
+
+import com.bear27570.ftc.scouting.models.Competition;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * competitions 表到 Competition 的手写映射，规则同 {@link ScoreEntryMapper}。
+ * hostAddress 只在运行时设置，不在表中。
+ */
+public class CompetitionMapper implements RowMapper<Competition> {
+
+    @Override
+    public Competition map(ResultSet rs, StatementContext ctx) throws SQLException {
+        return specialize(rs, ctx).map(rs, ctx);
+    }
+
+    @Override
+    public RowMapper<Competition> specialize(ResultSet rs, StatementContext ctx) throws SQLException {
+        return new Bound(rs.getMetaData());
+    }
+
+    private static final class Bound implements RowMapper<Competition> {
+        private final int name, creatorUsername, ratingFormula, ratingHalfLife, bannedTeams, dataVersion;
+        private final int eventSeason, eventCode, officialEventName;
+
+        Bound(ResultSetMetaData meta) throws SQLException {
+            Columns columns = new Columns(meta);
+            name = columns.indexOf("name");
+            creatorUsername = columns.indexOf("creatorUsername");
+            ratingFormula = columns.indexOf("ratingFormula");
+            ratingHalfLife = columns.indexOf("ratingHalfLife");
+            bannedTeams = columns.indexOf("bannedTeams");
+            dataVersion = columns.indexOf("dataVersion");
+            eventSeason = columns.indexOf("eventSeason");
+            eventCode = columns.indexOf("eventCode");
+            officialEventName = columns.indexOf("officialEventName");
+        }
+
+        @Override
+        public Competition map(ResultSet rs, StatementContext ctx) throws SQLException {
+            Competition c = new Competition();
+            if (name > 0) c.setName(rs.getString(name));
+            if (creatorUsername > 0) c.setCreatorUsername(rs.getString(creatorUsername));
+            if (ratingFormula > 0) c.setRatingFormula(rs.getString(ratingFormula));
+            if (ratingHalfLife > 0) c.setRatingHalfLife(rs.getDouble(ratingHalfLife));
+            if (bannedTeams > 0) c.setBannedTeams(rs.getString(bannedTeams));
+            if (dataVersion > 0) c.setDataVersion(rs.getLong(dataVersion));
+            if (eventSeason > 0) c.setEventSeason(rs.getInt(eventSeason));
+            if (eventCode > 0) c.setEventCode(rs.getString(eventCode));
+            if (officialEventName > 0) c.setOfficialEventName(rs.getString(officialEventName));
+            return c;
+        }
+    }
+}
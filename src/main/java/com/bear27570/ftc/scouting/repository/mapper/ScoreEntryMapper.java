@@ -0,0 +1,101 @@
+package com.bear27570.ftc.scouting.repository.mapper;
+
+import com.bear27570.ftc.scouting.models.ScoreEntry;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * scores 表到 ScoreEntry 的手写映射，取代 BeanMapper 的逐行反射。
+ * 列号在每个结果集上只解析一次（specialize），之后逐行按列号读取并直接调用 setter。
+ * 结果集中没有的列保持 ScoreEntry 默认值；NULL 的数值 / 布尔列读作 0 / false，与 BeanMapper 一致。
+ */
+public class ScoreEntryMapper implements RowMapper<ScoreEntry> {
+
+    @Override
+    public ScoreEntry map(ResultSet rs, StatementContext ctx) throws SQLException {
+        return specialize(rs, ctx).map(rs, ctx);
+    }
+
+    @Override
+    public RowMapper<ScoreEntry> specialize(ResultSet rs, StatementContext ctx) throws SQLException {
+        return new Bound(rs.getMetaData());
+    }
+
+    private static final class Bound implements RowMapper<ScoreEntry> {
+        // 0 表示结果集中没有该列
+        private final int id, scoreType, matchNumber, alliance, team1, team2;
+        private final int team1AutoScore, team2AutoScore, team1AutoProj, team2AutoProj, team1AutoRow, team2AutoRow;
+        private final int autoArtifacts, teleopArtifacts;
+        private final int team1CanSequence, team2CanSequence, team1L2Climb, team2L2Climb;
+        private final int team1Ignored, team2Ignored, team1Broken, team2Broken;
+        private final int totalScore, clickLocations, submitter, submissionTime, syncStatus;
+
+        Bound(ResultSetMetaData meta) throws SQLException {
+            Columns columns = new Columns(meta);
+            id = columns.indexOf("id");
+            scoreType = columns.indexOf("scoreType");
+            matchNumber = columns.indexOf("matchNumber");
+            alliance = columns.indexOf("alliance");
+            team1 = columns.indexOf("team1");
+            team2 = columns.indexOf("team2");
+            team1AutoScore = columns.indexOf("team1AutoScore");
+            team2AutoScore = columns.indexOf("team2AutoScore");
+            team1AutoProj = columns.indexOf("team1AutoProj");
+            team2AutoProj = columns.indexOf("team2AutoProj");
+            team1AutoRow = columns.indexOf("team1AutoRow");
+            team2AutoRow = columns.indexOf("team2AutoRow");
+            autoArtifacts = columns.indexOf("autoArtifacts");
+            teleopArtifacts = columns.indexOf("teleopArtifacts");
+            team1CanSequence = columns.indexOf("team1CanSequence");
+            team2CanSequence = columns.indexOf("team2CanSequence");
+            team1L2Climb = columns.indexOf("team1L2Climb");
+            team2L2Climb = columns.indexOf("team2L2Climb");
+            team1Ignored = columns.indexOf("team1Ignored");
+            team2Ignored = columns.indexOf("team2Ignored");
+            team1Broken = columns.indexOf("team1Broken");
+            team2Broken = columns.indexOf("team2Broken");
+            totalScore = columns.indexOf("totalScore");
+            clickLocations = columns.indexOf("clickLocations");
+            submitter = columns.indexOf("submitter");
+            submissionTime = columns.indexOf("submissionTime");
+            syncStatus = columns.indexOf("syncStatus");
+        }
+
+        @Override
+        public ScoreEntry map(ResultSet rs, StatementContext ctx) throws SQLException {
+            ScoreEntry e = new ScoreEntry();
+            if (id > 0) e.setId(rs.getInt(id));
+            if (scoreType > 0) e.setScoreType(Columns.enumAt(rs, scoreType, ScoreEntry.Type.class));
+            if (matchNumber > 0) e.setMatchNumber(rs.getInt(matchNumber));
+            if (alliance > 0) e.setAlliance(rs.getString(alliance));
+            if (team1 > 0) e.setTeam1(rs.getInt(team1));
+            if (team2 > 0) e.setTeam2(rs.getInt(team2));
+            if (team1AutoScore > 0) e.setTeam1AutoScore(rs.getInt(team1AutoScore));
+            if (team2AutoScore > 0) e.setTeam2AutoScore(rs.getInt(team2AutoScore));
+            if (team1AutoProj > 0) e.setTeam1AutoProj(rs.getString(team1AutoProj));
+            if (team2AutoProj > 0) e.setTeam2AutoProj(rs.getString(team2AutoProj));
+            if (team1AutoRow > 0) e.setTeam1AutoRow(rs.getString(team1AutoRow));
+            if (team2AutoRow > 0) e.setTeam2AutoRow(rs.getString(team2AutoRow));
+            if (autoArtifacts > 0) e.setAutoArtifacts(rs.getInt(autoArtifacts));
+            if (teleopArtifacts > 0) e.setTeleopArtifacts(rs.getInt(teleopArtifacts));
+            if (team1CanSequence > 0) e.setTeam1CanSequence(rs.getBoolean(team1CanSequence));
+            if (team2CanSequence > 0) e.setTeam2CanSequence(rs.getBoolean(team2CanSequence));
+            if (team1L2Climb > 0) e.setTeam1L2Climb(rs.getBoolean(team1L2Climb));
+            if (team2L2Climb > 0) e.setTeam2L2Climb(rs.getBoolean(team2L2Climb));
+            if (team1Ignored > 0) e.setTeam1Ignored(rs.getBoolean(team1Ignored));
+            if (team2Ignored > 0) e.setTeam2Ignored(rs.getBoolean(team2Ignored));
+            if (team1Broken > 0) e.setTeam1Broken(rs.getBoolean(team1Broken));
+            if (team2Broken > 0) e.setTeam2Broken(rs.getBoolean(team2Broken));
+            if (totalScore > 0) e.setTotalScore(rs.getInt(totalScore));
+            if (clickLocations > 0) e.setClickLocations(rs.getString(clickLocations));
+            if (submitter > 0) e.setSubmitter(rs.getString(submitter));
+            if (submissionTime > 0) e.setSubmissionTime(rs.getString(submissionTime));
+            if (syncStatus > 0) e.setSyncStatus(Columns.enumAt(rs, syncStatus, ScoreEntry.SyncStatus.class));
+            return e;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class NetworkService {
     public static class UdpBeaconData {
@@ -62,7 +63,10 @@ public class NetworkService {
     public void setOnMemberJoinCallback(Runnable callback) { this.onMemberJoinCallback = callback; }
     public void setCurrentBannedTeams(String bannedTeams) { this.currentBannedTeams = bannedTeams; }
 
-    public synchronized void startHost(Competition competition, Consumer<ScoreEntry> onScoreReceived) {
+    /**
+     * @param onScoreReceived 在 HTTP 工作线程上调用，返回 false 表示主机暂时无法接收（写入队列已满）
+     */
+    public synchronized void startHost(Competition competition, Predicate<ScoreEntry> onScoreReceived) {
         this.hostingCompetitionName = competition.getName();
         if (running) return;
         stop();
@@ -130,7 +134,7 @@ class HostManager {
 
     HostManager(NetworkService core) { this.core = core; }
 
-    Javalin start(Consumer<ScoreEntry> onScoreReceived) {
+    Javalin start(Predicate<ScoreEntry> onScoreReceived) {
         return Javalin.create(config -> {
             config.startup.showJavalinBanner = false;
 
@@ -156,7 +160,11 @@ class HostManager {
             config.routes.post("/api/score", ctx -> {
                 try {
                     NetworkPacket req = core.gson.fromJson(ctx.body(), NetworkPacket.class);
-                    if (onScoreReceived != null) Platform.runLater(() -> onScoreReceived.accept(req.getScoreEntry()));
+                    // 只要不是 200，从机就会把这条成绩留在本地待同步，下次收到广播时重传
+                    if (onScoreReceived != null && !onScoreReceived.test(req.getScoreEntry())) {
+                        ctx.status(503).result("Host Busy");
+                        return;
+                    }
                     ctx.status(200).result("Score Received");
                 } catch (Exception e) { ctx.status(400).result("Invalid Score"); }
             });
@@ -0,0 +1,401 @@
+// File: DraftSimulator.java
+package com.bear27570.ftc.scouting.services.domain;
+
+import com.bear27570.ftc.scouting.models.DraftRecommendation;
+import com.bear27570.ftc.scouting.models.TeamRanking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * 联盟选拔模拟器。
+ * <p>
+ * 按排位顺序模拟选拔：每轮由当时排位最高的空闲队伍担任队长（被上位联盟选走的队长由后面的队伍递补），
+ * 其他队长的选择按队伍实力做 softmax 抽样，其他受邀队伍总是接受；被拒绝的队伍不能再被邀请，但仍可递补为队长。
+ * 我方的决策（担任队长时选谁、受邀时接受还是拒绝）用开环蒙特卡洛树搜索，
+ * 收益为选拔结束后我方联盟按淘汰赛对阵表夺冠的概率（联盟间单场胜率取实力差的 logistic）。
+ * <p>
+ * 搜索采用根并行：每个线程拥有独立的树与 SplittableRandom，最后合并根节点统计。
+ * 搜索过程只操作按排位编号的基本类型数组，不接触 TeamRanking 对象。
+ */
+public class DraftSimulator {
+
+    public static class Settings {
+        /** 联盟数，须为 2 / 4 / 8（淘汰赛对阵表） */
+        public int alliances = 4;
+        /** 每个队长选几支队伍 */
+        public int picksPerAlliance = 1;
+        /** 第二轮起是否倒序选人 */
+        public boolean serpentine = false;
+        public int iterations = 200_000;
+        /** 我方选人时只在实力前若干名中搜索 */
+        public int candidateLimit = 10;
+        /** 其他队长选人的随机程度，越小越接近“总选最强” */
+        public double captainTemperature = 0.15;
+        public long seed = System.nanoTime();
+    }
+
+    private static final int ACCEPT = -1;
+    private static final int DECLINE = -2;
+    private static final double EXPLORATION = 0.7;
+
+    private final ForkJoinPool pool;
+
+    public DraftSimulator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public DraftSimulator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @param seedOrder 按排位从高到低排列的队伍（可直接按 rating 排序后传入）
+     * @param ourTeam   我方队号，必须在 seedOrder 中
+     */
+    public DraftRecommendation recommend(List<TeamRanking> seedOrder, int ourTeam, Settings settings) {
+        Problem problem = new Problem(seedOrder, ourTeam, settings);
+        int workers = Math.max(1, Math.min(pool.getParallelism(), settings.iterations / 1_000));
+        SplittableRandom root = new SplittableRandom(settings.seed);
+        SplittableRandom[] streams = new SplittableRandom[workers];
+        for (int w = 0; w < workers; w++) streams[w] = root.split();
+
+        List<Worker> finished = pool.submit(() -> IntStream.range(0, workers).parallel()
+                .mapToObj(w -> {
+                    Worker worker = new Worker(problem, streams[w]);
+                    int share = settings.iterations / workers + (w < settings.iterations % workers ? 1 : 0);
+                    for (int i = 0; i < share; i++) worker.iterate();
+                    return worker;
+                })
+                .toList()).join();
+
+        // 合并各线程的根节点统计
+        Map<Integer, double[]> merged = new HashMap<>(); // action -> {visits, valueSum, strengthSum}
+        long states = 0;
+        for (Worker worker : finished) {
+            states += worker.states;
+            Node r = worker.root;
+            for (int i = 0; i < r.size; i++) {
+                double[] acc = merged.computeIfAbsent(r.actions[i], k -> new double[3]);
+                acc[0] += r.visits[i];
+                acc[1] += r.valueSum[i];
+                acc[2] += r.strengthSum[i];
+            }
+        }
+
+        List<DraftRecommendation.Choice> choices = new ArrayList<>();
+        merged.forEach((action, acc) -> {
+            DraftRecommendation.Action kind = action == ACCEPT ? DraftRecommendation.Action.ACCEPT
+                    : action == DECLINE ? DraftRecommendation.Action.DECLINE : DraftRecommendation.Action.PICK;
+            int team = kind == DraftRecommendation.Action.PICK ? problem.teamNumbers[action] : 0;
+            choices.add(new DraftRecommendation.Choice(kind, team, (int) acc[0], acc[1] / acc[0], acc[2] / acc[0]));
+        });
+        choices.sort(Comparator.comparingInt(DraftRecommendation.Choice::getVisits).reversed());
+        return new DraftRecommendation(choices, settings.iterations, states);
+    }
+
+    /**
+     * 不可变的问题描述，所有线程共享。队伍以排位序号 0..n-1 表示。
+     */
+    private static final class Problem {
+        final int n;
+        final int[] teamNumbers;
+        final double[] strength;
+        final int[] byStrength; // 按实力从高到低的序号
+        final int us;
+        final int alliances;
+        final int picks;
+        final boolean serpentine;
+        final int candidateLimit;
+        final double pickScale;     // 其他队长 softmax 的尺度
+        final double allianceScale; // 联盟对战 logistic 的尺度
+        final int[] bracket;        // 淘汰赛对阵表中各位置对应的联盟序号
+
+        Problem(List<TeamRanking> seedOrder, int ourTeam, Settings s) {
+            if (s.alliances != 2 && s.alliances != 4 && s.alliances != 8) {
+                throw new IllegalArgumentException("alliances must be 2, 4 or 8");
+            }
+            n = seedOrder.size();
+            teamNumbers = new int[n];
+            strength = new double[n];
+            int found = -1;
+            for (int i = 0; i < n; i++) {
+                teamNumbers[i] = seedOrder.get(i).getTeamNumber();
+                strength[i] = seedOrder.get(i).getRating();
+                if (teamNumbers[i] == ourTeam) found = i;
+            }
+            if (found < 0) throw new IllegalArgumentException("Team " + ourTeam + " is not in the ranking list");
+            us = found;
+            alliances = s.alliances;
+            picks = s.picksPerAlliance;
+            serpentine = s.serpentine;
+            candidateLimit = Math.max(1, s.candidateLimit);
+            byStrength = IntStream.range(0, n).boxed()
+                    .sorted((a, b) -> Double.compare(strength[b], strength[a]))
+                    .mapToInt(Integer::intValue).toArray();
+
+            double mean = Arrays.stream(strength).average().orElse(0);
+            double var = Arrays.stream(strength).map(v -> (v - mean) * (v - mean)).average().orElse(0);
+            double sd = Math.sqrt(var) > 1e-9 ? Math.sqrt(var) : 1.0;
+            pickScale = Math.max(1e-6, s.captainTemperature) * sd;
+            allianceScale = sd * Math.sqrt(1 + picks);
+
+            int[] order = {0};
+            while (order.length < alliances) {
+                int size = order.length * 2;
+                int[] next = new int[size];
+                for (int i = 0; i < order.length; i++) {
+                    next[2 * i] = order[i];
+                    next[2 * i + 1] = size - 1 - order[i];
+                }
+                order = next;
+            }
+            bracket = order;
+        }
+    }
+
+    /**
+     * 开环搜索树节点：只记录我方的动作序列，对手的随机行为不展开。
+     */
+    private static final class Node {
+        int size;
+        int[] actions = new int[4];
+        int[] visits = new int[4];
+        double[] valueSum = new double[4];
+        double[] strengthSum = new double[4];
+        Node[] children = new Node[4];
+        int totalVisits;
+
+        int slotOf(int action) {
+            for (int i = 0; i < size; i++) if (actions[i] == action) return i;
+            return -1;
+        }
+
+        int add(int action) {
+            if (size == actions.length) {
+                int cap = size * 2;
+                actions = Arrays.copyOf(actions, cap);
+                visits = Arrays.copyOf(visits, cap);
+                valueSum = Arrays.copyOf(valueSum, cap);
+                strengthSum = Arrays.copyOf(strengthSum, cap);
+                children = Arrays.copyOf(children, cap);
+            }
+            actions[size] = action;
+            return size++;
+        }
+    }
+
+    /**
+     * 单线程搜索器，所有状态缓冲区在迭代间复用。
+     */
+    private static final class Worker {
+        final Problem p;
+        final SplittableRandom rnd;
+        final Node root = new Node();
+        long states;
+
+        // 选拔状态
+        final int[] allianceOf;
+        final boolean[] declined;
+        final int[] captains;
+        final double[] allianceStrength;
+        final double[] weights;
+        final int[] legal;
+
+        // 本次迭代经过的树节点
+        final Node[] pathNodes;
+        final int[] pathSlots;
+        int depth;
+        Node cursor;
+        boolean inTree;
+
+        Worker(Problem p, SplittableRandom rnd) {
+            this.p = p;
+            this.rnd = rnd;
+            allianceOf = new int[p.n];
+            declined = new boolean[p.n];
+            captains = new int[p.alliances];
+            allianceStrength = new double[p.alliances];
+            weights = new double[p.n];
+            legal = new int[Math.max(p.candidateLimit, 2)];
+            int maxDecisions = p.n + p.alliances * (1 + p.picks) + 1;
+            pathNodes = new Node[maxDecisions];
+            pathSlots = new int[maxDecisions];
+        }
+
+        void iterate() {
+            Arrays.fill(allianceOf, -1);
+            Arrays.fill(declined, false);
+            Arrays.fill(allianceStrength, 0);
+            depth = 0;
+            cursor = root;
+            inTree = true;
+
+            draft:
+            for (int round = 0; round < p.picks; round++) {
+                boolean reversed = p.serpentine && round % 2 == 1;
+                for (int k = 0; k < p.alliances; k++) {
+                    int a = reversed ? p.alliances - 1 - k : k;
+                    if (round == 0) {
+                        int captain = highestSeededFree();
+                        if (captain < 0) break draft;
+                        join(captain, a);
+                        captains[a] = captain;
+                    }
+                    if (!pick(a)) break draft;
+                    states++;
+                }
+            }
+
+            int ours = allianceOf[p.us];
+            double reward = ours < 0 ? 0 : championshipProbability(ours);
+            double ourStrength = ours < 0 ? 0 : allianceStrength[ours];
+            for (int d = 0; d < depth; d++) {
+                Node node = pathNodes[d];
+                int slot = pathSlots[d];
+                node.totalVisits++;
+                node.visits[slot]++;
+                node.valueSum[slot] += reward;
+                node.strengthSum[slot] += ourStrength;
+            }
+        }
+
+        /** 联盟 a 选一支队伍，没有可选队伍时返回 false。 */
+        private boolean pick(int a) {
+            if (captains[a] == p.us) {
+                int count = ourCandidates();
+                if (count == 0) return false;
+                join(decide(count), a);
+                return true;
+            }
+            while (true) {
+                int t = sampleCaptainPick();
+                if (t < 0) return false;
+                if (t != p.us) {
+                    join(t, a);
+                    return true;
+                }
+                legal[0] = ACCEPT;
+                legal[1] = DECLINE;
+                if (decide(2) == ACCEPT) {
+                    join(t, a);
+                    return true;
+                }
+                declined[p.us] = true; // 拒绝后本队长重新选人
+            }
+        }
+
+        private void join(int team, int alliance) {
+            allianceOf[team] = alliance;
+            allianceStrength[alliance] += p.strength[team];
+        }
+
+        private int highestSeededFree() {
+            for (int i = 0; i < p.n; i++) if (allianceOf[i] < 0) return i;
+            return -1;
+        }
+
+        private int ourCandidates() {
+            int count = 0;
+            for (int i = 0; i < p.n && count < p.candidateLimit; i++) {
+                int t = p.byStrength[i];
+                if (allianceOf[t] < 0 && !declined[t]) legal[count++] = t;
+            }
+            return count;
+        }
+
+        private int sampleCaptainPick() {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int t = 0; t < p.n; t++) {
+                if (allianceOf[t] < 0 && !declined[t] && p.strength[t] > max) max = p.strength[t];
+            }
+            if (max == Double.NEGATIVE_INFINITY) return -1;
+            double total = 0;
+            for (int t = 0; t < p.n; t++) {
+                weights[t] = (allianceOf[t] < 0 && !declined[t]) ? Math.exp((p.strength[t] - max) / p.pickScale) : 0;
+                total += weights[t];
+            }
+            double r = rnd.nextDouble() * total;
+            int last = -1;
+            for (int t = 0; t < p.n; t++) {
+                if (weights[t] == 0) continue;
+                last = t;
+                r -= weights[t];
+                if (r <= 0) return t;
+            }
+            return last;
+        }
+
+        /**
+         * 在 legal[0..count) 中为我方选一个动作：树内用 UCT（未尝试过的动作优先，每次迭代只扩展一个新节点），
+         * 树外用默认策略（选最强 / 接受）。
+         */
+        private int decide(int count) {
+            if (!inTree) return legal[0];
+
+            Node node = cursor;
+            int chosenSlot = -1;
+            for (int i = 0; i < count; i++) {
+                int slot = node.slotOf(legal[i]);
+                if (slot < 0 || node.visits[slot] == 0) {
+                    chosenSlot = slot < 0 ? node.add(legal[i]) : slot;
+                    inTree = false; // 扩展一个新动作后转入默认策略
+                    break;
+                }
+            }
+            if (chosenSlot < 0) {
+                double logTotal = Math.log(node.totalVisits);
+                double best = Double.NEGATIVE_INFINITY;
+                for (int i = 0; i < count; i++) {
+                    int slot = node.slotOf(legal[i]);
+                    double score = node.valueSum[slot] / node.visits[slot]
+                            + EXPLORATION * Math.sqrt(logTotal / node.visits[slot]);
+                    if (score > best) {
+                        best = score;
+                        chosenSlot = slot;
+                    }
+                }
+            }
+
+            pathNodes[depth] = node;
+            pathSlots[depth++] = chosenSlot;
+            if (node.children[chosenSlot] == null) node.children[chosenSlot] = new Node();
+            cursor = node.children[chosenSlot];
+            return node.actions[chosenSlot];
+        }
+
+        // 淘汰赛对阵表上逐轮递推各联盟的晋级概率
+        private double championshipProbability(int ours) {
+            int size = p.bracket.length;
+            double[] alive = new double[size];
+            double[] next = new double[size];
+            Arrays.fill(alive, 1.0);
+            for (int block = 2; block <= size; block *= 2) {
+                int half = block / 2;
+                for (int i = 0; i < size; i++) {
+                    int start = (i / block) * block;
+                    int oppFrom = (i - start) < half ? start + half : start;
+                    double win = 0;
+                    for (int j = oppFrom; j < oppFrom + half; j++) {
+                        win += alive[j] * winProbability(p.bracket[i], p.bracket[j]);
+                    }
+                    next[i] = alive[i] * win;
+                }
+                System.arraycopy(next, 0, alive, 0, size);
+            }
+            for (int i = 0; i < size; i++) if (p.bracket[i] == ours) return alive[i];
+            return 0;
+        }
+
+        private double winProbability(int a, int b) {
+            return 1.0 / (1.0 + Math.exp(-(allianceStrength[a] - allianceStrength[b]) / p.allianceScale));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.bear27570.ftc.scouting.services.domain;
+
+import com.bear27570.ftc.scouting.models.JournalEvent;
+import com.bear27570.ftc.scouting.models.PenaltyEntry;
+import com.bear27570.ftc.scouting.models.ScoreEntry;
+import com.bear27570.ftc.scouting.repository.CompetitionRepository;
+import com.bear27570.ftc.scouting.repository.PenaltyRepository;
+import com.bear27570.ftc.scouting.repository.ScoreRepository;
+import com.bear27570.ftc.scouting.repository.SubmissionJournal;
+import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用提交日志核对或补齐 H2：先把日志折叠成每个提交键的最终状态（保存或已删除），再与库中数据逐条比较。
+ * 只处理日志里出现过的提交，日志启用之前的旧数据保持原样。直接调用仓储层，不会再次写入日志。
+ */
+public class JournalReplayService {
+    private static final Logger log = LoggerFactory.getLogger(JournalReplayService.class);
+
+    public record Report(long records, int scoresRestored, int scoresRemoved, int penaltiesRestored) {
+        public boolean isConsistent() {
+            return scoresRestored == 0 && scoresRemoved == 0 && penaltiesRestored == 0;
+        }
+    }
+
+    private record SubmissionKey(int matchNumber, String alliance, String submitter, String submissionTime) {
+        static SubmissionKey of(ScoreEntry e) {
+            return new SubmissionKey(e.getMatchNumber(), e.getAlliance(),
+                    e.getSubmitter() != null ? e.getSubmitter() : "",
+                    e.getSubmissionTime() != null ? e.getSubmissionTime() : "");
+        }
+    }
+
+    private record PenaltyKey(int matchNumber, boolean red) {
+    }
+
+    private final SubmissionJournal journal;
+    private final ScoreRepository scoreRepository;
+    private final PenaltyRepository penaltyRepository;
+    private final CompetitionRepository competitionRepository;
+    private final Gson gson = new Gson();
+
+    public JournalReplayService(SubmissionJournal journal, ScoreRepository scoreRepository,
+                                PenaltyRepository penaltyRepository, CompetitionRepository competitionRepository) {
+        this.journal = journal;
+        this.scoreRepository = scoreRepository;
+        this.penaltyRepository = penaltyRepository;
+        this.competitionRepository = competitionRepository;
+    }
+
+    /** 回放仍保留的全部日志并与 H2 比较，只报告差异，不写库 */
+    public Report verify() {
+        return reconcile(journal.getFirstSequence(), false);
+    }
+
+    /**
+     * 启动时调用：回放最后一个检查点之后的记录，把崩溃前已记日志但没来得及落库的变更补进 H2，然后写入新检查点。
+     */
+    public Report recover() throws IOException {
+        Report report = reconcile(journal.getCheckpoint() + 1, true);
+        checkpoint();
+        return report;
+    }
+
+    /** 回放仍保留的全部日志补齐 H2，用于数据库文件损坏时重建；检查点之前已删除的段无法恢复 */
+    public Report rebuild() throws IOException {
+        Report report = reconcile(journal.getFirstSequence(), true);
+        checkpoint();
+        return report;
+    }
+
+    /** 调用方保证此前的日志记录都已写入 H2，例如正常退出、写入队列已排空时 */
+    public void checkpoint() throws IOException {
+        journal.checkpoint();
+    }
+
+    private Report reconcile(long fromSequence, boolean apply) {
+        // null 值表示该提交最终被删除
+        Map<String, Map<SubmissionKey, ScoreEntry>> scores = new LinkedHashMap<>();
+        Map<String, Map<PenaltyKey, PenaltyEntry>> penalties = new LinkedHashMap<>();
+        long[] records = {0};
+        journal.replay(fromSequence, record -> {
+            records[0]++;
+            if (record.type() == null || record.type() == SubmissionJournal.RecordType.CHECKPOINT) return;
+            JournalEvent event = gson.fromJson(new String(record.payload(), StandardCharsets.UTF_8), JournalEvent.class);
+            if (event.getCompetitionName() == null) return;
+            switch (record.type()) {
+                case SCORE_SAVED -> {
+                    Map<SubmissionKey, ScoreEntry> byKey = scores.computeIfAbsent(event.getCompetitionName(), k -> new LinkedHashMap<>());
+                    SubmissionKey key = SubmissionKey.of(event.getScore());
+                    if (event.getPreviousScore() != null) {
+                        SubmissionKey previousKey = SubmissionKey.of(event.getPreviousScore());
+                        if (!previousKey.equals(key)) byKey.put(previousKey, null);
+                    }
+                    byKey.put(key, event.getScore());
+                }
+                case SCORE_DELETED -> scores.computeIfAbsent(event.getCompetitionName(), k -> new LinkedHashMap<>())
+                        .put(SubmissionKey.of(event.getScore()), null);
+                case PENALTY_SAVED -> {
+                    PenaltyEntry penalty = event.getPenalty();
+                    penalties.computeIfAbsent(event.getCompetitionName(), k -> new LinkedHashMap<>())
+                            .put(new PenaltyKey(penalty.getMatchNumber(), "RED".equalsIgnoreCase(penalty.getAlliance())), penalty);
+                }
+                default -> {
+                }
+            }
+        });
+
+        int restored = 0, removed = 0, penaltiesRestored = 0;
+        for (Map.Entry<String, Map<SubmissionKey, ScoreEntry>> comp : scores.entrySet()) {
+            if (competitionRepository.findByName(comp.getKey()) == null) continue; // 赛事已被删除
+            int[] counts = reconcileScores(comp.getKey(), comp.getValue(), apply);
+            restored += counts[0];
+            removed += counts[1];
+        }
+        for (Map.Entry<String, Map<PenaltyKey, PenaltyEntry>> comp : penalties.entrySet()) {
+            if (competitionRepository.findByName(comp.getKey()) == null) continue;
+            penaltiesRestored += reconcilePenalties(comp.getKey(), comp.getValue(), apply);
+        }
+
+        Report report = new Report(records[0], restored, removed, penaltiesRestored);
+        if (!report.isConsistent()) {
+            log.warn("[Journal] {} from sequence {}: {}", apply ? "Repaired" : "Found", fromSequence, report);
+        }
+        return report;
+    }
+
+    private int[] reconcileScores(String competitionName, Map<SubmissionKey, ScoreEntry> expected, boolean apply) {
+        Map<SubmissionKey, ScoreEntry> stored = new HashMap<>();
+        for (ScoreEntry e : scoreRepository.findByCompetition(competitionName)) stored.putIfAbsent(SubmissionKey.of(e), e);
+
+        List<ScoreEntry> restore = new ArrayList<>();
+        int removed = 0;
+        for (Map.Entry<SubmissionKey, ScoreEntry> e : expected.entrySet()) {
+            ScoreEntry want = e.getValue();
+            ScoreEntry have = stored.get(e.getKey());
+            if (want == null) {
+                if (have == null) continue;
+                removed++;
+                if (apply) scoreRepository.delete(have.getId());
+            } else if (have == null) {
+                want.setId(0);
+                restore.add(want);
+            } else {
+                // 导出标记不经过日志，以库中为准
+                want.setSyncStatus(have.getSyncStatus());
+                if (!have.hasSameContent(want)) restore.add(want);
+            }
+        }
+        if (apply && !restore.isEmpty()) scoreRepository.mergeSubmissions(competitionName, restore);
+        return new int[]{restore.size(), removed};
+    }
+
+    private int reconcilePenalties(String competitionName, Map<PenaltyKey, PenaltyEntry> expected, boolean apply) {
+        Map<Integer, PenaltyRepository.FullPenaltyRow> stored = penaltyRepository.getFullPenalties(competitionName);
+        int restored = 0;
+        for (Map.Entry<PenaltyKey, PenaltyEntry> e : expected.entrySet()) {
+            PenaltyEntry want = e.getValue();
+            PenaltyRepository.FullPenaltyRow row = stored.get(want.getMatchNumber());
+            boolean same = row != null && (e.getKey().red()
+                    ? row.rMaj == want.getMajorCount() && row.rMin == want.getMinorCount() && row.rScore == want.getOfficialScore()
+                    : row.bMaj == want.getMajorCount() && row.bMin == want.getMinorCount() && row.bScore == want.getOfficialScore());
+            if (same) continue;
+            restored++;
+            if (apply) penaltyRepository.savePenaltyEntry(competitionName, want);
+        }
+        return restored;
+    }
+}
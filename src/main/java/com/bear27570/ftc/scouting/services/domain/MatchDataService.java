@@ -3,15 +3,49 @@ package com.bear27570.ftc.scouting.services.domain;
 
 import com.bear27570.ftc.scouting.models.PenaltyEntry;
 import com.bear27570.ftc.scouting.models.ScoreEntry;
+import com.bear27570.ftc.scouting.models.ShotGrid;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface MatchDataService {
     void submitScore(String competitionName, ScoreEntry entry);
+    /** 一个事务提交整批成绩，失败时抛出异常且整批不落库 */
+    void submitScores(String competitionName, List<ScoreEntry> entries);
+    /**
+     * 先整批一个事务提交；失败时逐条重试，把坏数据隔离在单条记录上。每条成绩只记一次日志，单条失败只记错误日志、不抛出。
+     */
+    void submitScoresIsolatingFailures(String competitionName, List<ScoreEntry> entries);
     void deleteScore(int id);
     void submitPenalty(String competitionName, PenaltyEntry entry);
+    void submitPenalties(String competitionName, List<PenaltyEntry> entries);
     List<ScoreEntry> getHistory(String competitionName);
+    /** 大赛事导出 / 遍历用，调用方必须关闭返回的流 */
+    Stream<ScoreEntry> streamHistory(String competitionName);
+    /** 键集分页，after 为上一页最后一行，首页传 null */
+    List<ScoreEntry> getHistoryPage(String competitionName, ScoreEntry after, int limit);
     List<ScoreEntry> getTeamHistory(String competitionName, int teamNumber);
+    /** 队伍投射点的空间计数，供热力图与分区统计使用 */
+    ShotGrid getTeamShotGrid(String competitionName, int teamNumber);
     void syncWithHostData(String competitionName, List<ScoreEntry> hostData);
     List<ScoreEntry> getPendingExports(String competitionName);
     void markAsExported(List<Integer> ids);
-}
\ No newline at end of file
+
+    void addDataChangeListener(DataChangeListener listener);
+
+    /**
+     * 数据变更通知，在写库成功之后回调（调用方所在线程）。
+     */
+    interface DataChangeListener {
+        void onScoreSaved(String competitionName, ScoreEntry entry);
+        default void onScoresSaved(String competitionName, List<ScoreEntry> entries) {
+            entries.forEach(e -> onScoreSaved(competitionName, e));
+        }
+        void onScoreDeleted(int id);
+        void onPenaltySaved(String competitionName, PenaltyEntry entry);
+        default void onPenaltiesSaved(String competitionName, List<PenaltyEntry> entries) {
+            entries.forEach(e -> onPenaltySaved(competitionName, e));
+        }
+        // 批量同步等无法逐行描述的变更
+        void onCompetitionDataReplaced(String competitionName);
+    }
+}
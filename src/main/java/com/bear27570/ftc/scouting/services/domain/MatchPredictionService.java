@@ -0,0 +1,207 @@
+// File: MatchPredictionService.java
+package com.bear27570.ftc.scouting.services.domain;
+
+import com.bear27570.ftc.scouting.models.MatchPrediction;
+import com.bear27570.ftc.scouting.models.ScoreEntry;
+import com.bear27570.ftc.scouting.repository.CompetitionDataRepository;
+import com.bear27570.ftc.scouting.repository.PenaltyRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * 蒙特卡洛对阵预测。
+ * 每支队伍的单场贡献（自动 + 手动 + 序列 + 爬升得分，以及送给对手的判罚分）直接取自它的侦查记录，
+ * 模拟时对每队有放回地抽一场历史表现（同一场内各项保持原有相关性），累加得到双方比分。
+ * 模拟按块并行，每块使用 SplittableRandom 拆分出的独立随机流，比分只记入基本类型直方图。
+ */
+public class MatchPredictionService {
+
+    public static final int DEFAULT_SIMULATIONS = 100_000;
+    private static final int CHUNK_SIZE = 8_192;
+    private static final double[] PERCENTILES = {0.10, 0.50, 0.90};
+
+    private final CompetitionDataRepository competitionDataRepository;
+
+    public MatchPredictionService(CompetitionDataRepository competitionDataRepository) {
+        this.competitionDataRepository = competitionDataRepository;
+    }
+
+    public MatchPrediction predict(String competitionName, int[] redTeams, int[] blueTeams) {
+        return predict(competitionName, redTeams, blueTeams, DEFAULT_SIMULATIONS, System.nanoTime());
+    }
+
+    /**
+     * @param seed 相同的 seed 与数据得到相同的胜率与分位数（与并行度无关）
+     */
+    public MatchPrediction predict(String competitionName, int[] redTeams, int[] blueTeams, int simulations, long seed) {
+        if (simulations <= 0) throw new IllegalArgumentException("simulations must be positive");
+        CompetitionDataRepository.CompetitionData data = competitionDataRepository.loadAll(competitionName);
+
+        List<Integer> teamsWithoutData = new ArrayList<>();
+        Samples[] red = new Samples[redTeams.length];
+        Samples[] blue = new Samples[blueTeams.length];
+        for (int i = 0; i < redTeams.length; i++) red[i] = Samples.of(redTeams[i], data, teamsWithoutData);
+        for (int i = 0; i < blueTeams.length; i++) blue[i] = Samples.of(blueTeams[i], data, teamsWithoutData);
+
+        int redRange = maxScore(red, blue) + 1;
+        int blueRange = maxScore(blue, red) + 1;
+
+        int chunks = (simulations + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[chunks];
+        for (int c = 0; c < chunks; c++) streams[c] = root.split();
+
+        Tally total = IntStream.range(0, chunks).parallel()
+                .mapToObj(c -> {
+                    int count = Math.min(CHUNK_SIZE, simulations - c * CHUNK_SIZE);
+                    return simulate(red, blue, count, streams[c], redRange, blueRange);
+                })
+                .reduce(Tally::merge)
+                .orElseThrow();
+
+        return new MatchPrediction(simulations,
+                (double) total.redWins / simulations,
+                (double) total.blueWins / simulations,
+                (double) (simulations - total.redWins - total.blueWins) / simulations,
+                total.redSum / simulations,
+                total.blueSum / simulations,
+                percentiles(total.redHistogram, simulations),
+                percentiles(total.blueHistogram, simulations),
+                teamsWithoutData);
+    }
+
+    private static Tally simulate(Samples[] red, Samples[] blue, int count, SplittableRandom rnd,
+                                  int redRange, int blueRange) {
+        Tally tally = new Tally(redRange, blueRange);
+        for (int s = 0; s < count; s++) {
+            double redScore = 0, blueScore = 0;
+            for (Samples t : red) {
+                if (t.size == 0) continue;
+                int k = rnd.nextInt(t.size);
+                redScore += t.points[k];
+                blueScore += t.penaltyGiven[k];
+            }
+            for (Samples t : blue) {
+                if (t.size == 0) continue;
+                int k = rnd.nextInt(t.size);
+                blueScore += t.points[k];
+                redScore += t.penaltyGiven[k];
+            }
+            int r = (int) Math.round(redScore);
+            int b = (int) Math.round(blueScore);
+            tally.redHistogram[r]++;
+            tally.blueHistogram[b]++;
+            tally.redSum += redScore;
+            tally.blueSum += blueScore;
+            if (r > b) tally.redWins++;
+            else if (b > r) tally.blueWins++;
+        }
+        return tally;
+    }
+
+    private static int maxScore(Samples[] own, Samples[] opponents) {
+        double max = 0;
+        for (Samples t : own) max += t.maxPoints;
+        for (Samples t : opponents) max += t.maxPenaltyGiven;
+        return (int) Math.ceil(max) + 1;
+    }
+
+    private static int[] percentiles(int[] histogram, int n) {
+        int[] result = new int[PERCENTILES.length];
+        long cumulative = 0;
+        int p = 0;
+        for (int score = 0; score < histogram.length && p < PERCENTILES.length; score++) {
+            cumulative += histogram[score];
+            while (p < PERCENTILES.length && cumulative >= Math.ceil(PERCENTILES[p] * n)) {
+                result[p++] = score;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 一支队伍的历史单场样本，按列存放。
+     */
+    private static final class Samples {
+        final int size;
+        final double[] points;
+        // 本队在该场送给对手的判罚分（联盟判罚两队平摊）
+        final double[] penaltyGiven;
+        final double maxPoints;
+        final double maxPenaltyGiven;
+
+        private Samples(int size, double[] points, double[] penaltyGiven) {
+            this.size = size;
+            this.points = points;
+            this.penaltyGiven = penaltyGiven;
+            this.maxPoints = Arrays.stream(points).max().orElse(0);
+            this.maxPenaltyGiven = Arrays.stream(penaltyGiven).max().orElse(0);
+        }
+
+        static Samples of(int team, CompetitionDataRepository.CompetitionData data, List<Integer> teamsWithoutData) {
+            double[] points = new double[16];
+            double[] penalties = new double[16];
+            int n = 0;
+            for (ScoreEntry e : data.scores) {
+                boolean allianceMode = e.getScoreType() == ScoreEntry.Type.ALLIANCE;
+                boolean first = e.getTeam1() == team;
+                boolean second = allianceMode && e.getTeam2() == team;
+                if (!first && !second) continue;
+
+                // 与 ScoreEntry 的计分规则一致：手动每个 3 分、序列 10 分、L2 爬升 15 分；联盟模式手动分两队平分
+                double teleop = e.getTeleopArtifacts() * 3.0 / (allianceMode ? 2 : 1);
+                double value = first
+                        ? e.getTeam1AutoScore() + teleop + (e.isTeam1CanSequence() ? 10 : 0) + (e.isTeam1L2Climb() ? 15 : 0)
+                        : e.getTeam2AutoScore() + teleop + (e.isTeam2CanSequence() ? 10 : 0) + (e.isTeam2L2Climb() ? 15 : 0);
+
+                double given = 0;
+                PenaltyRepository.FullPenaltyRow pe = data.penalties.get(e.getMatchNumber());
+                if (pe != null) {
+                    boolean isRed = e.getAlliance().equalsIgnoreCase("RED");
+                    int alliancePenalty = isRed
+                            ? pe.rMaj * RankingEngine.PENALTY_MAJOR_PTS + pe.rMin * RankingEngine.PENALTY_MINOR_PTS
+                            : pe.bMaj * RankingEngine.PENALTY_MAJOR_PTS + pe.bMin * RankingEngine.PENALTY_MINOR_PTS;
+                    given = alliancePenalty / 2.0;
+                }
+
+                if (n == points.length) {
+                    points = Arrays.copyOf(points, n * 2);
+                    penalties = Arrays.copyOf(penalties, n * 2);
+                }
+                points[n] = value;
+                penalties[n] = given;
+                n++;
+            }
+            if (n == 0) teamsWithoutData.add(team);
+            return new Samples(n, Arrays.copyOf(points, n), Arrays.copyOf(penalties, n));
+        }
+    }
+
+    private static final class Tally {
+        final int[] redHistogram;
+        final int[] blueHistogram;
+        long redWins;
+        long blueWins;
+        double redSum;
+        double blueSum;
+
+        Tally(int redRange, int blueRange) {
+            this.redHistogram = new int[redRange];
+            this.blueHistogram = new int[blueRange];
+        }
+
+        Tally merge(Tally other) {
+            for (int i = 0; i < redHistogram.length; i++) redHistogram[i] += other.redHistogram[i];
+            for (int i = 0; i < blueHistogram.length; i++) blueHistogram[i] += other.blueHistogram[i];
+            redWins += other.redWins;
+            blueWins += other.blueWins;
+            redSum += other.redSum;
+            blueSum += other.blueSum;
+            return this;
+        }
+    }
+}
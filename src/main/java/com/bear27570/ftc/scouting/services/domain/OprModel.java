@@ -0,0 +1,186 @@
+// File: OprModel.java
+package com.bear27570.ftc.scouting.services.domain;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * OPR / DPR / CCWM 最小二乘模型。
+ * <p>
+ * 每个有官方比分的联盟是一条观测：联盟内各队 OPR 之和 ≈ 本方得分，DPR 之和 ≈ 对方得分。
+ * 设计矩阵 A（联盟 × 队伍，0/1）很稀疏，这里直接维护法方程 AᵀA 与两组右端项，
+ * 增删一条观测只是就地加减一个外积，不需要重新组装；求解用预条件共轭梯度，并以上一次的解作为初值，
+ * 单场比赛变化后通常几步即可收敛。CCWM 与 OPR、DPR 共用同一矩阵，按线性关系直接取 OPR − DPR。
+ * 非线程安全，由排名引擎在自己的锁内使用。
+ */
+final class OprModel {
+
+    // 轻微的岭正则：赛事初期观测数少于队伍数、或队伍分成互不相连的几组时，法方程仍然可解
+    private static final double RIDGE = 1e-3;
+    private static final double TOLERANCE = 1e-9;
+
+    private final Map<Integer, Integer> teamIndex = new HashMap<>();
+    private SparseRow[] rows = new SparseRow[16];
+    private double[] ownRhs = new double[16];
+    private double[] oppRhs = new double[16];
+    private double[] opr = new double[16];
+    private double[] dpr = new double[16];
+    private int size = 0;
+
+    private final Map<String, Observation> observations = new HashMap<>();
+    private boolean dirty = false;
+
+    /**
+     * 设置（或替换）一条联盟观测。
+     * @param key 观测的唯一键，如 "12_RED"
+     */
+    void put(String key, int[] allianceTeams, double ownScore, double opponentScore) {
+        remove(key);
+        int[] idx = new int[allianceTeams.length];
+        for (int i = 0; i < allianceTeams.length; i++) idx[i] = indexOf(allianceTeams[i]);
+        Observation obs = new Observation(idx, ownScore, opponentScore);
+        apply(obs, 1);
+        observations.put(key, obs);
+    }
+
+    void remove(String key) {
+        Observation old = observations.remove(key);
+        if (old != null) apply(old, -1);
+    }
+
+    double opr(int team) {
+        solve();
+        Integer i = teamIndex.get(team);
+        return i == null ? 0 : opr[i];
+    }
+
+    double dpr(int team) {
+        solve();
+        Integer i = teamIndex.get(team);
+        return i == null ? 0 : dpr[i];
+    }
+
+    private void apply(Observation obs, int sign) {
+        for (int a : obs.idx) {
+            ownRhs[a] += sign * obs.own;
+            oppRhs[a] += sign * obs.opp;
+            for (int b : obs.idx) rows[a].add(b, sign);
+        }
+        dirty = true;
+    }
+
+    private int indexOf(int team) {
+        Integer existing = teamIndex.get(team);
+        if (existing != null) return existing;
+        if (size == rows.length) {
+            int capacity = size * 2;
+            rows = Arrays.copyOf(rows, capacity);
+            ownRhs = Arrays.copyOf(ownRhs, capacity);
+            oppRhs = Arrays.copyOf(oppRhs, capacity);
+            opr = Arrays.copyOf(opr, capacity);
+            dpr = Arrays.copyOf(dpr, capacity);
+        }
+        rows[size] = new SparseRow();
+        teamIndex.put(team, size);
+        return size++;
+    }
+
+    private void solve() {
+        if (!dirty) return;
+        conjugateGradient(ownRhs, opr);
+        conjugateGradient(oppRhs, dpr);
+        dirty = false;
+    }
+
+    // 以 x 的当前值为初值，就地求解 (AᵀA + λI) x = b；对角预条件
+    private void conjugateGradient(double[] b, double[] x) {
+        int n = size;
+        double[] r = new double[n];
+        double[] z = new double[n];
+        double[] p = new double[n];
+        double[] ap = new double[n];
+        double[] inverseDiagonal = new double[n];
+
+        multiply(x, r);
+        double bNorm = 0;
+        for (int i = 0; i < n; i++) {
+            r[i] = b[i] - r[i];
+            inverseDiagonal[i] = 1.0 / (rows[i].get(i) + RIDGE);
+            z[i] = r[i] * inverseDiagonal[i];
+            p[i] = z[i];
+            bNorm += b[i] * b[i];
+        }
+        double threshold = TOLERANCE * TOLERANCE * Math.max(bNorm, 1.0);
+        double rz = dot(r, z, n);
+
+        for (int iter = 0; iter < 2 * n && dot(r, r, n) > threshold; iter++) {
+            multiply(p, ap);
+            double pap = dot(p, ap, n);
+            if (pap <= 0) break;
+            double alpha = rz / pap;
+            for (int i = 0; i < n; i++) {
+                x[i] += alpha * p[i];
+                r[i] -= alpha * ap[i];
+                z[i] = r[i] * inverseDiagonal[i];
+            }
+            double rzNext = dot(r, z, n);
+            double beta = rzNext / rz;
+            rz = rzNext;
+            for (int i = 0; i < n; i++) p[i] = z[i] + beta * p[i];
+        }
+    }
+
+    private void multiply(double[] v, double[] out) {
+        for (int i = 0; i < size; i++) {
+            out[i] = RIDGE * v[i] + rows[i].dot(v);
+        }
+    }
+
+    private static double dot(double[] a, double[] b, int n) {
+        double s = 0;
+        for (int i = 0; i < n; i++) s += a[i] * b[i];
+        return s;
+    }
+
+    private record Observation(int[] idx, double own, double opp) {
+    }
+
+    /**
+     * 法方程矩阵的一行：某队与同联盟出现过的队伍（含自身）及共同出场次数。
+     * 每队的搭档数量很少，线性查找即可。
+     */
+    private static final class SparseRow {
+        private int[] cols = new int[8];
+        private double[] vals = new double[8];
+        private int count = 0;
+
+        void add(int col, double delta) {
+            for (int i = 0; i < count; i++) {
+                if (cols[i] == col) {
+                    vals[i] += delta;
+                    return;
+                }
+            }
+            if (count == cols.length) {
+                cols = Arrays.copyOf(cols, count * 2);
+                vals = Arrays.copyOf(vals, count * 2);
+            }
+            cols[count] = col;
+            vals[count++] = delta;
+        }
+
+        double get(int col) {
+            for (int i = 0; i < count; i++) {
+                if (cols[i] == col) return vals[i];
+            }
+            return 0;
+        }
+
+        double dot(double[] v) {
+            double s = 0;
+            for (int i = 0; i < count; i++) s += vals[i] * v[cols[i]];
+            return s;
+        }
+    }
+}
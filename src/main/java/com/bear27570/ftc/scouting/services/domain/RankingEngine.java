@@ -0,0 +1,591 @@
+// File: RankingEngine.java
+package com.bear27570.ftc.scouting.services.domain;
+
+import com.bear27570.ftc.scouting.models.Competition;
+import com.bear27570.ftc.scouting.models.CompetitionSnapshot;
+import com.bear27570.ftc.scouting.models.PenaltyEntry;
+import com.bear27570.ftc.scouting.models.ScoreEntry;
+import com.bear27570.ftc.scouting.models.ScoreShots;
+import com.bear27570.ftc.scouting.models.TeamRanking;
+import com.bear27570.ftc.scouting.repository.CompetitionDataRepository;
+import com.bear27570.ftc.scouting.repository.CompetitionRepository;
+import com.bear27570.ftc.scouting.repository.PenaltyRepository;
+import com.bear27570.ftc.scouting.repository.ScoreRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * 增量排名引擎：按赛事在内存中维护每支队伍的累加器。
+ * 单条成绩 / 判罚变更时只回退并重放受影响的行；
+ * 评分公式、衰减半衰期或黑名单变化时从数据库整体重建，侦查员权重变化时在内存中重放全部行。
+ * 衰减模式下对外发布的 rating 为按场次指数衰减的评分。
+ */
+class RankingEngine {
+
+    static final int PENALTY_MAJOR_PTS = 15;
+    static final int PENALTY_MINOR_PTS = 5;
+    private static final double UNRELIABLE_ERROR_RATIO = 0.20;
+    private static final String[] ALLIANCES = {"RED", "BLUE"};
+
+    private final ScoreRepository scoreRepository;
+    private final PenaltyRepository penaltyRepository;
+    private final CompetitionRepository competitionRepository;
+
+    private final ShotEventCache shotEventCache;
+
+    private final Map<String, CompetitionState> states = new HashMap<>();
+
+    RankingEngine(ScoreRepository scoreRepository,
+                  PenaltyRepository penaltyRepository,
+                  CompetitionRepository competitionRepository,
+                  ShotEventCache shotEventCache) {
+        this.scoreRepository = scoreRepository;
+        this.penaltyRepository = penaltyRepository;
+        this.competitionRepository = competitionRepository;
+        this.shotEventCache = shotEventCache;
+    }
+
+    synchronized List<TeamRanking> rankings(String competitionName) {
+        return publish(ensureState(competitionName));
+    }
+
+    /**
+     * 基于调用方已读取的完整数据生成快照，不再额外查库。
+     */
+    synchronized CompetitionSnapshot snapshot(String competitionName, CompetitionDataRepository.CompetitionData data) {
+        CompetitionState state = states.get(competitionName);
+        // 只有从同一数据版本建出、之后未被增量修改的状态才能直接复用；
+        // 否则（本进程的增量更新、其他进程改过库）手里已有全量数据，直接用它重建
+        if (!isCurrent(state, data.competition) || state.dataVersion != dataVersionOf(data.competition)) {
+            state = rebuild(competitionName, data.competition, data.penalties, data.scores, data.shots);
+        }
+        return new CompetitionSnapshot(data.competition, data.scores, publish(state), new HashMap<>(state.weights));
+    }
+
+    synchronized Map<String, Double> reliabilities(String competitionName) {
+        return new HashMap<>(ensureState(competitionName).weights);
+    }
+
+    synchronized void invalidate(String competitionName) {
+        states.remove(competitionName);
+    }
+
+    synchronized void scoreSaved(String competitionName, ScoreEntry entry) {
+        CompetitionState state = states.get(competitionName);
+        if (state == null) return; // 尚未加载过，下次读取时自然会从数据库拿到
+        ScoreRow previous = state.rows.get(entry.getId());
+        // UPDATE 语句不会改动类型和提交人，沿用旧行的值以与数据库保持一致
+        ScoreRow row = previous == null ? ScoreRow.of(entry, shotEventCache) : ScoreRow.of(entry, previous, shotEventCache);
+        Set<String> touchedGroups = new LinkedHashSet<>();
+        if (previous != null) {
+            state.retract(previous);
+            touchedGroups.add(previous.groupKey());
+        }
+        state.index(row);
+        touchedGroups.add(row.groupKey());
+        if (previous != null) state.refreshOpr(previous.matchNumber());
+        state.refreshOpr(row.matchNumber());
+
+        if (state.refreshGroups(touchedGroups)) {
+            state.replayAll();
+        } else {
+            state.contribute(row);
+        }
+    }
+
+    synchronized void scoreDeleted(int id) {
+        for (CompetitionState state : states.values()) {
+            ScoreRow previous = state.rows.get(id);
+            if (previous == null) continue;
+            state.retract(previous);
+            state.refreshOpr(previous.matchNumber());
+            if (state.refreshGroups(Set.of(previous.groupKey()))) {
+                state.replayAll();
+            }
+            return;
+        }
+    }
+
+    synchronized void penaltySaved(String competitionName, PenaltyEntry entry) {
+        CompetitionState state = states.get(competitionName);
+        if (state == null) return;
+
+        PenaltyRepository.FullPenaltyRow pe = state.penalties.computeIfAbsent(entry.getMatchNumber(),
+                k -> new PenaltyRepository.FullPenaltyRow(0, 0, 0, 0, 0, 0));
+        if (entry.getAlliance().equalsIgnoreCase("RED")) {
+            pe.rMaj = entry.getMajorCount();
+            pe.rMin = entry.getMinorCount();
+            pe.rScore = entry.getOfficialScore();
+        } else {
+            pe.bMaj = entry.getMajorCount();
+            pe.bMin = entry.getMinorCount();
+            pe.bScore = entry.getOfficialScore();
+        }
+        state.refreshOpr(entry.getMatchNumber());
+
+        Set<Integer> ids = state.matchIndex.getOrDefault(entry.getMatchNumber(), Set.of());
+        if (ids.isEmpty()) return;
+        Set<String> touchedGroups = new LinkedHashSet<>();
+        for (int id : ids) touchedGroups.add(state.rows.get(id).groupKey());
+
+        if (state.refreshGroups(touchedGroups)) {
+            state.replayAll();
+        } else {
+            for (int id : new ArrayList<>(ids)) {
+                ScoreRow row = state.rows.get(id);
+                state.withdraw(row.id());
+                state.contribute(row);
+            }
+        }
+    }
+
+    private CompetitionState ensureState(String competitionName) {
+        Competition comp = competitionRepository.findByName(competitionName);
+        CompetitionState state = states.get(competitionName);
+        if (isCurrent(state, comp)) return state;
+        // 投射统计在库内聚合好再取回；成绩逐行转成 ScoreRow 即丢弃 ScoreEntry（含 clickLocations 原文），
+        // 不必先把整个赛事的成绩读成列表。两次读取之间若有写入，随后的变更通知会把该行改正
+        Map<Integer, ScoreShots> shots = scoreRepository.findShotSummaries(competitionName);
+        try (Stream<ScoreEntry> scores = scoreRepository.streamByCompetition(competitionName)) {
+            return rebuild(competitionName, comp, penaltyRepository.getFullPenalties(competitionName), scores::iterator, shots);
+        }
+    }
+
+    private static boolean isCurrent(CompetitionState state, Competition comp) {
+        return state != null && state.matches(formulaOf(comp), halfLifeOf(comp), bannedTeamsOf(comp));
+    }
+
+    private CompetitionState rebuild(String competitionName, Competition comp,
+                                     Map<Integer, PenaltyRepository.FullPenaltyRow> penalties, Iterable<ScoreEntry> scores,
+                                     Map<Integer, ScoreShots> shots) {
+        CompetitionState state = build(comp, penalties, scores, shots);
+        states.put(competitionName, state);
+        return state;
+    }
+
+    /**
+     * 不经过引擎状态、一次性算出某个赛事的排名。无共享可变状态，可在多个线程上并行调用；
+     * 投射统计取自库内聚合的结果，不解码坐标串。
+     */
+    static List<TeamRanking> compute(CompetitionDataRepository.CompetitionData data) {
+        return publish(build(data.competition, data.penalties, data.scores, data.shots));
+    }
+
+    private static CompetitionState build(Competition comp, Map<Integer, PenaltyRepository.FullPenaltyRow> penalties,
+                                          Iterable<ScoreEntry> scores, Map<Integer, ScoreShots> shots) {
+        CompetitionState state = new CompetitionState(formulaOf(comp), halfLifeOf(comp), bannedTeamsOf(comp), dataVersionOf(comp));
+        // 复制一份，引擎后续会就地修改判罚
+        penalties.forEach((match, pe) -> state.penalties.put(match,
+                new PenaltyRepository.FullPenaltyRow(pe.rMaj, pe.rMin, pe.bMaj, pe.bMin, pe.rScore, pe.bScore)));
+        for (ScoreEntry score : scores) {
+            state.index(ScoreRow.of(score, shots.getOrDefault(score.getId(), ScoreShots.EMPTY)));
+        }
+        state.refreshGroups(new ArrayList<>(state.groups.keySet()));
+        state.replayAll();
+        for (int match : state.matchIndex.keySet()) state.refreshOpr(match);
+        return state;
+    }
+
+    private static List<TeamRanking> publish(CompetitionState state) {
+        List<TeamRanking> result = new ArrayList<>(state.teams.size());
+        for (TeamAccumulator acc : state.teams.values()) {
+            TeamRanking copy = new TeamRanking(acc.ranking);
+            copy.setOpr(state.opr.opr(copy.getTeamNumber()));
+            copy.setDpr(state.opr.dpr(copy.getTeamNumber()));
+            if (state.decaying()) copy.setRating(copy.getDecayedRating());
+            result.add(copy);
+        }
+        return result;
+    }
+
+    private static String formulaOf(Competition comp) {
+        return (comp != null && comp.getRatingFormula() != null) ? comp.getRatingFormula() : "total";
+    }
+
+    private static double halfLifeOf(Competition comp) {
+        return comp != null ? Math.max(0, comp.getRatingHalfLife()) : 0;
+    }
+
+    private static String bannedTeamsOf(Competition comp) {
+        return comp != null ? comp.getBannedTeams() : null;
+    }
+
+    private static long dataVersionOf(Competition comp) {
+        return comp != null ? comp.getDataVersion() : -1;
+    }
+
+    /**
+     * 一条成绩记录中与排名相关的不可变快照，避免 UI 后续修改 ScoreEntry 对象时污染累加器。
+     */
+    private record ScoreRow(int id, int matchNumber, String alliance, boolean allianceMode,
+                            int team1, int team2, int team1Auto, int team2Auto,
+                            int autoArtifacts, int teleopArtifacts, int totalScore,
+                            boolean team1Seq, boolean team2Seq, boolean team1Climb, boolean team2Climb,
+                            boolean team1Broken, boolean team2Broken, String submitter, int[] shotStats) {
+
+        // 整体重建：投射统计来自库内聚合
+        static ScoreRow of(ScoreEntry e, ScoreShots shots) {
+            return of(e, e.getSubmitter(), e.getScoreType() == ScoreEntry.Type.ALLIANCE, new int[]{
+                    shots.team1().hits(), shots.team1().shots(), shots.team2().hits(), shots.team2().shots()});
+        }
+
+        // 单条变更：手里只有这一条记录，经共享缓存解码
+        static ScoreRow of(ScoreEntry e, ShotEventCache cache) {
+            return of(e, e.getSubmitter(), e.getScoreType() == ScoreEntry.Type.ALLIANCE, shotStats(cache.get(e)));
+        }
+
+        static ScoreRow of(ScoreEntry e, ScoreRow previous, ShotEventCache cache) {
+            return of(e, previous.submitter, previous.allianceMode, shotStats(cache.get(e)));
+        }
+
+        private static int[] shotStats(ShotEventCache.Shots shots) {
+            return new int[]{shots.hits(1), shots.shots(1), shots.hits(2), shots.shots(2)};
+        }
+
+        private static ScoreRow of(ScoreEntry e, String submitter, boolean allianceMode, int[] shotStats) {
+            return new ScoreRow(e.getId(), e.getMatchNumber(), e.getAlliance().toUpperCase(), allianceMode,
+                    e.getTeam1(), e.getTeam2(), e.getTeam1AutoScore(), e.getTeam2AutoScore(),
+                    e.getAutoArtifacts(), e.getTeleopArtifacts(), e.getTotalScore(),
+                    e.isTeam1CanSequence(), e.isTeam2CanSequence(), e.isTeam1L2Climb(), e.isTeam2L2Climb(),
+                    e.isTeam1Broken(), e.isTeam2Broken(), submitter, shotStats);
+        }
+
+        String groupKey() {
+            return matchNumber + "_" + alliance;
+        }
+
+        boolean red() {
+            return alliance.equals("RED");
+        }
+    }
+
+    /**
+     * 某一行对某支队伍的贡献。撤销时按原样传回 removeMatchResult，保证回退与累加严格对称。
+     */
+    private record Contribution(int team, long orderKey, boolean broken, double auto, double teleop,
+                                boolean seq, boolean climb, int hits, int shots,
+                                int penCommitted, int penReceived, double weight, double rating) {
+    }
+
+    private record GroupError(double error, List<String> submitters) {
+    }
+
+    private static final class TeamAccumulator {
+        final TeamRanking ranking;
+        int appearances;
+        // 按 (场次, id) 排序的单场评分，只在乱序插入或删除时用来重建近期评分窗口与衰减评分
+        final TreeMap<Long, Double> ratings = new TreeMap<>();
+        // 衰减评分 = Σ dᵏ·rₖ / Σ dᵏ（k 为距最新一场的场数），分子分母分别累加，追加新场次为 O(1)
+        double decayedSum;
+        double decayedWeight;
+
+        TeamAccumulator(int teamNumber) {
+            this.ranking = new TeamRanking(teamNumber);
+        }
+
+        /**
+         * addMatchResult 已把新评分追加到窗口末尾；只有这场不是最新一场时才需要按场次顺序重建。
+         * @param decay 每隔一场的衰减系数，0 表示不维护衰减评分
+         */
+        void afterAdd(long orderKey, double rating, double decay) {
+            if (ratings.lastKey() != orderKey) {
+                rebuild(decay);
+                return;
+            }
+            if (decay > 0) {
+                decayedSum = decayedSum * decay + rating;
+                decayedWeight = decayedWeight * decay + 1;
+                ranking.setDecayedRating(decayedSum / decayedWeight);
+            }
+        }
+
+        void rebuild(double decay) {
+            rebuildRecent();
+            if (decay <= 0) return;
+            decayedSum = 0;
+            decayedWeight = 0;
+            for (double r : ratings.values()) {
+                decayedSum = decayedSum * decay + r;
+                decayedWeight = decayedWeight * decay + 1;
+            }
+            ranking.setDecayedRating(decayedWeight > 0 ? decayedSum / decayedWeight : 0);
+        }
+
+        private void rebuildRecent() {
+            ranking.clearRecentRatings();
+            int skip = Math.max(0, ratings.size() - TeamRanking.RECENT_WINDOW);
+            for (double r : ratings.values()) {
+                if (skip-- > 0) continue;
+                ranking.pushRecentRating(r);
+            }
+        }
+    }
+
+    private static final class CompetitionState {
+        final String formula;
+        final double halfLife;
+        // 每隔一场的衰减系数 2^(-1/halfLife)，关闭时为 0
+        final double decay;
+        final String bannedTeams;
+        // 建出此状态时读到的 competitions.dataVersion。每次写库都会推进版本，
+        // 之后的增量更新不改它，所以它只在状态仍与该版本的库内数据完全一致时才与库里相等
+        final long dataVersion;
+        final RatingFormula ratingFormula;
+        // 公式变量的复用缓冲区，所有访问都在引擎锁内
+        final double[] vars = new double[RatingFormula.VARIABLE_COUNT];
+
+        final Map<Integer, ScoreRow> rows = new LinkedHashMap<>();
+        final Map<Integer, Set<Integer>> matchIndex = new HashMap<>();
+        final Map<String, Set<Integer>> groups = new HashMap<>();
+        final Map<Integer, PenaltyRepository.FullPenaltyRow> penalties = new HashMap<>();
+
+        // 侦查员可信度：每个联盟分组的误差及其分摊到的提交人，以及每个人的误差累计 {sum, count}
+        final Map<String, GroupError> groupErrors = new HashMap<>();
+        final Map<String, double[]> userErrors = new HashMap<>();
+        final Map<String, Double> weights = new HashMap<>();
+
+        final Map<Integer, List<Contribution>> contributions = new HashMap<>();
+        final Map<Integer, TeamAccumulator> teams = new HashMap<>();
+        final OprModel opr = new OprModel();
+
+        CompetitionState(String formula, double halfLife, String bannedTeams, long dataVersion) {
+            this.formula = formula;
+            this.halfLife = halfLife;
+            this.decay = halfLife > 0 ? Math.pow(0.5, 1.0 / halfLife) : 0;
+            this.bannedTeams = bannedTeams;
+            this.dataVersion = dataVersion;
+            this.ratingFormula = RatingFormula.compile(formula); // 公式非法时逐行退回 total
+        }
+
+        boolean matches(String formula, double halfLife, String bannedTeams) {
+            return this.formula.equals(formula) && this.halfLife == halfLife && Objects.equals(this.bannedTeams, bannedTeams);
+        }
+
+        boolean decaying() {
+            return decay > 0;
+        }
+
+        void index(ScoreRow row) {
+            rows.put(row.id(), row);
+            matchIndex.computeIfAbsent(row.matchNumber(), k -> new LinkedHashSet<>()).add(row.id());
+            groups.computeIfAbsent(row.groupKey(), k -> new LinkedHashSet<>()).add(row.id());
+        }
+
+        void retract(ScoreRow row) {
+            withdraw(row.id());
+            rows.remove(row.id());
+            removeFromIndex(matchIndex, row.matchNumber(), row.id());
+            removeFromIndex(groups, row.groupKey(), row.id());
+        }
+
+        private static <K> void removeFromIndex(Map<K, Set<Integer>> index, K key, int id) {
+            Set<Integer> ids = index.get(key);
+            if (ids == null) return;
+            ids.remove(id);
+            if (ids.isEmpty()) index.remove(key);
+        }
+
+        /**
+         * 重新计算给定联盟分组的误差，并更新相关提交人的权重。
+         * @return 是否有人的权重发生了变化（需要重放全部行）
+         */
+        boolean refreshGroups(Iterable<String> groupKeys) {
+            Set<String> touchedUsers = new HashSet<>();
+            for (String key : groupKeys) {
+                GroupError old = groupErrors.remove(key);
+                if (old != null) {
+                    for (String user : old.submitters()) {
+                        double[] acc = userErrors.get(user);
+                        acc[0] -= old.error();
+                        acc[1]--;
+                        touchedUsers.add(user);
+                    }
+                }
+
+                GroupError fresh = computeGroupError(key);
+                if (fresh != null) {
+                    groupErrors.put(key, fresh);
+                    for (String user : fresh.submitters()) {
+                        double[] acc = userErrors.computeIfAbsent(user, k -> new double[2]);
+                        acc[0] += fresh.error();
+                        acc[1]++;
+                        touchedUsers.add(user);
+                    }
+                }
+            }
+
+            boolean changed = false;
+            for (String user : touchedUsers) {
+                double before = weights.getOrDefault(user, 1.0);
+                double[] acc = userErrors.get(user);
+                if (acc == null || acc[1] <= 0) {
+                    userErrors.remove(user);
+                    weights.remove(user);
+                } else {
+                    // 平均误差超过 20% 的人权重降为 0.5
+                    weights.put(user, acc[0] / acc[1] > UNRELIABLE_ERROR_RATIO ? 0.5 : 1.0);
+                }
+                if (before != weights.getOrDefault(user, 1.0)) changed = true;
+            }
+            return changed;
+        }
+
+        private GroupError computeGroupError(String key) {
+            Set<Integer> ids = groups.get(key);
+            if (ids == null || ids.isEmpty()) return null;
+
+            ScoreRow first = rows.get(ids.iterator().next());
+            PenaltyRepository.FullPenaltyRow official = penalties.get(first.matchNumber());
+            if (official == null) return null;
+
+            boolean isRed = first.red();
+            int officialTotal = isRed ? official.rScore : official.bScore;
+            if (officialTotal <= 0) return null;
+
+            int penaltyGained = isRed
+                    ? (official.bMaj * PENALTY_MAJOR_PTS + official.bMin * PENALTY_MINOR_PTS)
+                    : (official.rMaj * PENALTY_MAJOR_PTS + official.rMin * PENALTY_MINOR_PTS);
+
+            int combinedScoutTotal = 0;
+            List<String> submitters = new ArrayList<>(ids.size());
+            for (int id : ids) {
+                ScoreRow row = rows.get(id);
+                combinedScoutTotal += row.totalScore();
+                submitters.add(row.submitter());
+            }
+            double error = Math.abs(combinedScoutTotal + penaltyGained - officialTotal) / (double) officialTotal;
+            return new GroupError(error, submitters);
+        }
+
+        /**
+         * 按该场的侦查记录与官方比分重新登记两个联盟的 OPR 观测。
+         * 只录到一支队伍的联盟会把整队得分算到一队头上，不作为观测。
+         */
+        void refreshOpr(int matchNumber) {
+            PenaltyRepository.FullPenaltyRow official = penalties.get(matchNumber);
+            for (String alliance : ALLIANCES) {
+                String key = matchNumber + "_" + alliance;
+                boolean isRed = alliance.equals("RED");
+                int own = official == null ? 0 : (isRed ? official.rScore : official.bScore);
+                int opponent = official == null ? 0 : (isRed ? official.bScore : official.rScore);
+                Set<Integer> allianceTeams = new LinkedHashSet<>();
+                for (int id : groups.getOrDefault(key, Set.of())) {
+                    ScoreRow row = rows.get(id);
+                    if (row.team1() > 0) allianceTeams.add(row.team1());
+                    if (row.allianceMode() && row.team2() > 0) allianceTeams.add(row.team2());
+                }
+                if (own <= 0 || opponent <= 0 || allianceTeams.size() < 2) {
+                    opr.remove(key);
+                } else {
+                    opr.put(key, allianceTeams.stream().mapToInt(Integer::intValue).toArray(), own, opponent);
+                }
+            }
+        }
+
+        void replayAll() {
+            contributions.clear();
+            teams.clear();
+            for (ScoreRow row : rows.values()) {
+                contribute(row);
+            }
+        }
+
+        void contribute(ScoreRow row) {
+            double divisor = row.allianceMode() ? 2.0 : 1.0;
+            double adjTeleop = row.teleopArtifacts() / divisor;
+
+            int penCommitted = 0, penReceived = 0;
+            PenaltyRepository.FullPenaltyRow pe = penalties.get(row.matchNumber());
+            if (pe != null) {
+                int redGaveAway = (pe.rMaj * PENALTY_MAJOR_PTS) + (pe.rMin * PENALTY_MINOR_PTS);
+                int blueGaveAway = (pe.bMaj * PENALTY_MAJOR_PTS) + (pe.bMin * PENALTY_MINOR_PTS);
+                penCommitted = row.red() ? redGaveAway : blueGaveAway;
+                penReceived = row.red() ? blueGaveAway : redGaveAway;
+                if (row.allianceMode()) {
+                    penCommitted /= 2;
+                    penReceived /= 2;
+                }
+            }
+
+            double weight = weights.getOrDefault(row.submitter(), 1.0);
+            int[] shots = row.shotStats();
+            long orderKey = ((long) row.matchNumber() << 33) | ((long) row.id() << 1);
+
+            double rating1 = evaluateFormula(row, divisor, row.team1Auto(), row.team1Seq(), row.team1Climb(),
+                    shots[0], shots[1], penCommitted, penReceived);
+            List<Contribution> list = new ArrayList<>(2);
+            list.add(new Contribution(row.team1(), orderKey, row.team1Broken(), row.team1Auto(), adjTeleop,
+                    row.team1Seq(), row.team1Climb(), shots[0], shots[1], penCommitted, penReceived, weight, rating1));
+            if (row.allianceMode()) {
+                // 公式不含队伍级变量时两队评分相同，无需再算一遍
+                double rating2 = !ratingFormula.usesTeamVariables() ? rating1
+                        : evaluateFormula(row, divisor, row.team2Auto(), row.team2Seq(), row.team2Climb(),
+                                shots[2], shots[3], penCommitted, penReceived);
+                list.add(new Contribution(row.team2(), orderKey | 1, row.team2Broken(), row.team2Auto(), adjTeleop,
+                        row.team2Seq(), row.team2Climb(), shots[2], shots[3], penCommitted, penReceived, weight, rating2));
+            }
+            contributions.put(row.id(), list);
+
+            for (Contribution c : list) {
+                TeamAccumulator acc = teams.computeIfAbsent(c.team(), TeamAccumulator::new);
+                acc.appearances++;
+                // 故障场次只登记队伍，不计入任何统计
+                if (c.broken()) continue;
+                acc.ranking.addMatchResult(c.auto(), c.teleop(), c.seq(), c.climb(), c.hits(), c.shots(),
+                        c.penCommitted(), c.penReceived(), c.weight(), c.rating());
+                acc.ratings.put(c.orderKey(), c.rating());
+                acc.afterAdd(c.orderKey(), c.rating(), decay);
+            }
+        }
+
+        void withdraw(int rowId) {
+            List<Contribution> list = contributions.remove(rowId);
+            if (list == null) return;
+            for (Contribution c : list) {
+                TeamAccumulator acc = teams.get(c.team());
+                if (acc == null) continue;
+                if (--acc.appearances <= 0) {
+                    teams.remove(c.team());
+                    continue;
+                }
+                if (c.broken()) continue;
+                acc.ranking.removeMatchResult(c.auto(), c.teleop(), c.seq(), c.climb(), c.hits(), c.shots(),
+                        c.penCommitted(), c.penReceived(), c.weight(), c.rating());
+                acc.ratings.remove(c.orderKey());
+                acc.rebuild(decay);
+            }
+        }
+
+        private double evaluateFormula(ScoreRow row, double divisor, int teamAuto, boolean teamSeq, boolean teamClimb,
+                                       int hits, int shots, int penCommitted, int penReceived) {
+            double fallback = row.totalScore() / divisor;
+            if (!ratingFormula.isValid()) return fallback;
+
+            vars[RatingFormula.AUTO] = row.autoArtifacts() / divisor; // 整体评分依然使用汇总值
+            vars[RatingFormula.TELEOP] = row.teleopArtifacts() / divisor;
+            vars[RatingFormula.TOTAL] = fallback;
+            vars[RatingFormula.SEQ] = (row.team1Seq() || row.team2Seq()) ? 1 : 0;
+            vars[RatingFormula.CLIMB] = (row.team1Climb() || row.team2Climb()) ? 1 : 0;
+            vars[RatingFormula.TEAM_AUTO] = teamAuto;
+            vars[RatingFormula.TEAM_SEQ] = teamSeq ? 1 : 0;
+            vars[RatingFormula.TEAM_CLIMB] = teamClimb ? 1 : 0;
+            vars[RatingFormula.HITS] = hits;
+            vars[RatingFormula.SHOTS] = shots;
+            vars[RatingFormula.PEN_COMMITTED] = penCommitted;
+            vars[RatingFormula.PEN_RECEIVED] = penReceived;
+
+            // 只有除零退回 total（与原先 exp4j 抛异常时一致），其余 NaN 原样保留
+            return ratingFormula.evaluate(vars, fallback);
+        }
+    }
+}
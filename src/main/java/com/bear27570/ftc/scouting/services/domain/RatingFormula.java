@@ -0,0 +1,268 @@
+// File: RatingFormula.java
+package com.bear27570.ftc.scouting.services.domain;
+
+import net.objecthunter.exp4j.function.Function;
+import net.objecthunter.exp4j.operator.Operator;
+import net.objecthunter.exp4j.shuntingyard.ShuntingYard;
+import net.objecthunter.exp4j.tokenizer.FunctionToken;
+import net.objecthunter.exp4j.tokenizer.NumberToken;
+import net.objecthunter.exp4j.tokenizer.OperatorToken;
+import net.objecthunter.exp4j.tokenizer.Token;
+import net.objecthunter.exp4j.tokenizer.VariableToken;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 编译后的评分公式。
+ * 借用 exp4j 的词法 / 逆波兰转换，只解析一次，之后编译成一棵只做 double 运算的节点树，
+ * 求值时不分配对象、不加锁，可在多线程间共享。解析失败的结果同样会被缓存。
+ */
+public final class RatingFormula {
+
+    public static final String DEFAULT_FORMULA = "total";
+
+    // 变量下标，与 evaluate(double[]) 的参数数组一一对应
+    public static final int AUTO = 0;
+    public static final int TELEOP = 1;
+    public static final int TOTAL = 2;
+    public static final int SEQ = 3;
+    public static final int CLIMB = 4;
+    public static final int TEAM_AUTO = 5;
+    public static final int TEAM_SEQ = 6;
+    public static final int TEAM_CLIMB = 7;
+    public static final int HITS = 8;
+    public static final int SHOTS = 9;
+    public static final int PEN_COMMITTED = 10;
+    public static final int PEN_RECEIVED = 11;
+    public static final int VARIABLE_COUNT = 12;
+
+    public static final List<String> VARIABLE_NAMES = List.of(
+            "auto", "teleop", "total", "seq", "climb",
+            "teamAuto", "teamSeq", "teamClimb", "hits", "shots", "penCommitted", "penReceived");
+
+    // 从 TEAM_AUTO 开始的变量按队伍取值，同一行的两支队伍可能得到不同评分
+    private static final int FIRST_TEAM_VARIABLE = TEAM_AUTO;
+
+    private static final Map<String, Double> CONSTANTS = Map.of(
+            "pi", Math.PI, "π", Math.PI, "e", Math.E, "φ", 1.61803398874d);
+
+    private static final int CACHE_LIMIT = 64;
+    private static final Map<String, RatingFormula> CACHE = new ConcurrentHashMap<>();
+
+    private final String source;
+    private final Node root;
+    private final String error;
+    private final boolean usesTeamVariables;
+
+    private RatingFormula(String source, Node root, String error, boolean usesTeamVariables) {
+        this.source = source;
+        this.root = root;
+        this.error = error;
+        this.usesTeamVariables = usesTeamVariables;
+    }
+
+    /**
+     * 编译公式（带缓存）。永远不会抛异常，非法公式通过 isValid()/getError() 反映。
+     */
+    public static RatingFormula compile(String formula) {
+        String source = (formula == null || formula.isBlank()) ? DEFAULT_FORMULA : formula.trim();
+        RatingFormula cached = CACHE.get(source);
+        if (cached != null) return cached;
+
+        RatingFormula compiled;
+        try {
+            boolean[] teamScoped = new boolean[1];
+            compiled = new RatingFormula(source, build(source, teamScoped), null, teamScoped[0]);
+        } catch (Exception e) {
+            compiled = new RatingFormula(source, null, e.getMessage() != null ? e.getMessage() : e.toString(), false);
+        }
+        if (CACHE.size() >= CACHE_LIMIT) CACHE.clear(); // 公式种类很少，超限直接清空即可
+        CACHE.put(source, compiled);
+        return compiled;
+    }
+
+    public String getSource() { return source; }
+    public boolean isValid() { return root != null; }
+    public String getError() { return error; }
+    public boolean usesTeamVariables() { return usesTeamVariables; }
+
+    /**
+     * @param vars 长度至少为 VARIABLE_COUNT 的变量数组
+     * @return 公式结果；公式非法或除数 / 模数为零时返回 NaN
+     */
+    public double evaluate(double[] vars) {
+        return evaluate(vars, Double.NaN);
+    }
+
+    /**
+     * @param divisionByZero 除数 / 模数为零时的返回值（与 exp4j 抛异常时调用方的退回值对应）
+     * @return 公式结果；公式非法时返回 NaN。其余运算（如 sqrt(-1)、0^-1）按 IEEE 规则原样返回 NaN / 无穷
+     */
+    public double evaluate(double[] vars, double divisionByZero) {
+        if (root == null) return Double.NaN;
+        try {
+            return root.eval(vars);
+        } catch (DivisionByZero e) {
+            return divisionByZero;
+        }
+    }
+
+    // exp4j 在除零时抛 ArithmeticException；这里抛一个预先构造、不带栈的实例，逐行出现时也不分配对象
+    private static final class DivisionByZero extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        static final DivisionByZero INSTANCE = new DivisionByZero();
+
+        private DivisionByZero() {
+            super("Division by zero!", null, false, false);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Node {
+        double eval(double[] v);
+    }
+
+    private static Node build(String source, boolean[] teamScoped) {
+        Set<String> names = new LinkedHashSet<>(VARIABLE_NAMES);
+        names.addAll(CONSTANTS.keySet());
+        Token[] tokens = ShuntingYard.convertToRPN(source, Collections.<String, Function>emptyMap(),
+                Collections.<String, Operator>emptyMap(), names, true);
+
+        Deque<Node> stack = new ArrayDeque<>();
+        Deque<Boolean> constant = new ArrayDeque<>();
+        for (Token token : tokens) {
+            if (token instanceof NumberToken n) {
+                double value = n.getValue();
+                stack.push(v -> value);
+                constant.push(true);
+            } else if (token instanceof VariableToken var) {
+                Double c = CONSTANTS.get(var.getName());
+                if (c != null) {
+                    double value = c;
+                    stack.push(v -> value);
+                    constant.push(true);
+                } else {
+                    int idx = VARIABLE_NAMES.indexOf(var.getName());
+                    if (idx >= FIRST_TEAM_VARIABLE) teamScoped[0] = true;
+                    stack.push(v -> v[idx]);
+                    constant.push(false);
+                }
+            } else if (token instanceof OperatorToken op) {
+                Operator o = op.getOperator();
+                boolean foldable = popConstants(constant, o.getNumOperands());
+                push(stack, constant, operator(o, pop(stack, o.getNumOperands(), o.getSymbol())), foldable);
+            } else if (token instanceof FunctionToken fn) {
+                Function f = fn.getFunction();
+                boolean foldable = popConstants(constant, f.getNumArguments());
+                push(stack, constant, function(f, pop(stack, f.getNumArguments(), f.getName())), foldable);
+            } else {
+                throw new IllegalArgumentException("Unexpected token in formula");
+            }
+        }
+        if (stack.size() != 1) {
+            throw new IllegalArgumentException("Invalid number of operands available for '" + source + "'");
+        }
+        return stack.pop();
+    }
+
+    private static Node[] pop(Deque<Node> stack, int count, String name) {
+        if (stack.size() < count) {
+            throw new IllegalArgumentException("Invalid number of operands available for '" + name + "'");
+        }
+        Node[] args = new Node[count];
+        for (int i = count - 1; i >= 0; i--) args[i] = stack.pop();
+        return args;
+    }
+
+    private static boolean popConstants(Deque<Boolean> constant, int count) {
+        boolean all = true;
+        for (int i = 0; i < count && !constant.isEmpty(); i++) all &= constant.pop();
+        return all;
+    }
+
+    private static void push(Deque<Node> stack, Deque<Boolean> constant, Node node, boolean foldable) {
+        if (foldable) {
+            // 常量折叠：参数全是常量的子树直接算成一个常量；常量除零不折叠，留到求值时按除零处理
+            try {
+                double value = node.eval(new double[VARIABLE_COUNT]);
+                stack.push(v -> value);
+            } catch (DivisionByZero e) {
+                stack.push(node);
+                foldable = false;
+            }
+        } else {
+            stack.push(node);
+        }
+        constant.push(foldable);
+    }
+
+    private static Node operator(Operator o, Node[] a) {
+        if (a.length == 1) {
+            Node x = a[0];
+            return switch (o.getSymbol()) {
+                case "-" -> v -> -x.eval(v);
+                case "+" -> x;
+                default -> v -> o.apply(x.eval(v));
+            };
+        }
+        Node l = a[0], r = a[1];
+        return switch (o.getSymbol()) {
+            case "+" -> v -> l.eval(v) + r.eval(v);
+            case "-" -> v -> l.eval(v) - r.eval(v);
+            case "*" -> v -> l.eval(v) * r.eval(v);
+            case "/" -> v -> {
+                double d = r.eval(v);
+                if (d == 0.0) throw DivisionByZero.INSTANCE;
+                return l.eval(v) / d;
+            };
+            case "%" -> v -> {
+                double d = r.eval(v);
+                if (d == 0.0) throw DivisionByZero.INSTANCE;
+                return l.eval(v) % d;
+            };
+            case "^" -> v -> Math.pow(l.eval(v), r.eval(v));
+            default -> v -> o.apply(l.eval(v), r.eval(v));
+        };
+    }
+
+    private static Node function(Function f, Node[] a) {
+        if (a.length == 1) {
+            Node x = a[0];
+            return switch (f.getName()) {
+                case "abs" -> v -> Math.abs(x.eval(v));
+                case "sqrt" -> v -> Math.sqrt(x.eval(v));
+                case "cbrt" -> v -> Math.cbrt(x.eval(v));
+                case "floor" -> v -> Math.floor(x.eval(v));
+                case "ceil" -> v -> Math.ceil(x.eval(v));
+                case "exp" -> v -> Math.exp(x.eval(v));
+                case "log" -> v -> Math.log(x.eval(v));
+                case "log10" -> v -> Math.log10(x.eval(v));
+                case "signum" -> v -> Math.signum(x.eval(v));
+                default -> v -> f.apply(x.eval(v));
+            };
+        }
+        if (a.length == 2) {
+            Node l = a[0], r = a[1];
+            if (f.getName().equals("pow")) return v -> Math.pow(l.eval(v), r.eval(v));
+            return v -> f.apply(l.eval(v), r.eval(v));
+        }
+        // 其余多参函数极少用到，保留 exp4j 的实现
+        return v -> {
+            double[] args = new double[a.length];
+            for (int i = 0; i < a.length; i++) args[i] = a[i].eval(v);
+            return f.apply(args);
+        };
+    }
+
+    @Override
+    public String toString() {
+        return isValid() ? source : source + " (invalid: " + error + ")";
+    }
+}
@@ -0,0 +1,138 @@
+package com.bear27570.ftc.scouting.services.domain;
+
+import com.bear27570.ftc.scouting.models.ScoreEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 主机端成绩写入队列：网络线程只负责入队，由唯一的写入线程按组提交落库。
+ * 第一条到达后最多再等 maxDelayMs 或凑满 maxBatch 条，整批一个事务写入，然后每批只回调一次，
+ * 比赛结束时十几台从机同时提交也只会触发少量快照重算与广播。
+ */
+public class ScoreWritePipeline {
+    private static final Logger log = LoggerFactory.getLogger(ScoreWritePipeline.class);
+
+    public static final int DEFAULT_CAPACITY = 256;
+    public static final int DEFAULT_MAX_BATCH = 32;
+    public static final long DEFAULT_MAX_DELAY_MS = 50;
+    // 队列满时网络线程最多等待这么久，仍然满就拒绝，由从机保留为待同步稍后重传
+    private static final long OFFER_TIMEOUT_MS = 200;
+    private static final long IDLE_POLL_MS = 200;
+
+    /** 在写入线程上回调，每个赛事每批一次 */
+    public interface BatchListener {
+        void onBatchPersisted(String competitionName, List<ScoreEntry> entries);
+    }
+
+    private record Pending(String competitionName, ScoreEntry entry) {
+    }
+
+    private final MatchDataService matchDataService;
+    private final BlockingQueue<Pending> queue;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final Thread writer;
+    private volatile BatchListener batchListener;
+    private volatile boolean closed = false;
+
+    public ScoreWritePipeline(MatchDataService matchDataService) {
+        this(matchDataService, DEFAULT_CAPACITY, DEFAULT_MAX_BATCH, DEFAULT_MAX_DELAY_MS);
+    }
+
+    public ScoreWritePipeline(MatchDataService matchDataService, int capacity, int maxBatch, long maxDelayMs) {
+        this.matchDataService = matchDataService;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.writer = new Thread(this::runWriter, "score-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public void setBatchListener(BatchListener batchListener) {
+        this.batchListener = batchListener;
+    }
+
+    /**
+     * @return false 表示队列已满或已关闭，本条未被接收
+     */
+    public boolean submit(String competitionName, ScoreEntry entry) {
+        if (closed) return false;
+        try {
+            return queue.offer(new Pending(competitionName, entry), OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    /** 停止接收新提交，并等待已入队的成绩全部落库 */
+    public void close() {
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWriter() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // 写入线程只由 close 结束，被中断时把已取出的这批写完再继续排空
+                queue.drainTo(batch, maxBatch - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        // 主机同一时间只托管一个赛事，这里按赛事分组只是为了不把不同赛事混进同一次提交
+        Map<String, List<ScoreEntry>> byCompetition = new LinkedHashMap<>();
+        for (Pending p : batch) {
+            byCompetition.computeIfAbsent(p.competitionName(), k -> new ArrayList<>()).add(p.entry());
+        }
+        byCompetition.forEach((competitionName, entries) -> {
+            try {
+                // 整批失败时由服务层逐条重试，把坏数据隔离在单条记录上；在这里重试会让每条成绩再记一次日志
+                matchDataService.submitScoresIsolatingFailures(competitionName, entries);
+            } catch (Exception e) {
+                log.error("Failed to save {} scores: {}", entries.size(), e.getMessage());
+            }
+            BatchListener listener = batchListener;
+            if (listener == null) return;
+            try {
+                listener.onBatchPersisted(competitionName, entries);
+            } catch (Exception e) {
+                log.error("Score batch listener failed", e);
+            }
+        });
+    }
+}
@@ -0,0 +1,99 @@
+// File: SeasonRankingService.java
+package com.bear27570.ftc.scouting.services.domain;
+
+import com.bear27570.ftc.scouting.models.Competition;
+import com.bear27570.ftc.scouting.models.TeamRanking;
+import com.bear27570.ftc.scouting.repository.CompetitionDataRepository;
+import com.bear27570.ftc.scouting.repository.CompetitionRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 整季（跨赛事）排名。
+ * 每个赛事沿用自己的评分公式、判罚和侦查员权重独立读取并计算，赛事之间在 ForkJoinPool 上并行（读库也随之并行）；
+ * 之后按队伍用 {@link TeamRanking#merge} 两两归并，归并满足结合律，因此拆分方式不影响结果。
+ */
+public class SeasonRankingService {
+
+    // 按 (赛季, 赛事名) 排序，近期评分因此大致按时间先后拼接
+    private static final Comparator<Competition> COMPETITION_ORDER = Comparator
+            .comparingInt(Competition::getEventSeason)
+            .thenComparing(Competition::getName);
+
+    private final CompetitionRepository competitionRepository;
+    private final CompetitionDataRepository competitionDataRepository;
+    private final ForkJoinPool pool;
+
+    public SeasonRankingService(CompetitionRepository competitionRepository,
+                                CompetitionDataRepository competitionDataRepository) {
+        this(competitionRepository, competitionDataRepository, ForkJoinPool.commonPool());
+    }
+
+    public SeasonRankingService(CompetitionRepository competitionRepository,
+                                CompetitionDataRepository competitionDataRepository,
+                                ForkJoinPool pool) {
+        this.competitionRepository = competitionRepository;
+        this.competitionDataRepository = competitionDataRepository;
+        this.pool = pool;
+    }
+
+    /**
+     * @param season 赛季年份；小于等于 0 时统计库中全部赛事
+     * @return 每支队伍一条合并后的排名，顺序不作保证
+     */
+    public List<TeamRanking> calculateSeasonRankings(int season) {
+        List<String> names = new ArrayList<>();
+        List<Competition> competitions = new ArrayList<>(competitionRepository.findAll());
+        competitions.sort(COMPETITION_ORDER);
+        for (Competition comp : competitions) {
+            if (season > 0 && comp.getEventSeason() != season) continue;
+            names.add(comp.getName());
+        }
+        if (names.isEmpty()) return new ArrayList<>();
+        return new ArrayList<>(pool.invoke(new AggregateTask(competitionDataRepository, names, 0, names.size())).values());
+    }
+
+    /**
+     * 二分赛事列表：叶子节点计算单个赛事，内部节点按队伍归并左右两半（左在前、右在后）。
+     */
+    private static final class AggregateTask extends RecursiveTask<Map<Integer, TeamRanking>> {
+        private static final long serialVersionUID = 1L;
+
+        // 任务只在本进程的 ForkJoinPool 中执行，从不序列化
+        private final transient CompetitionDataRepository repository;
+        private final transient List<String> names;
+        private final int from;
+        private final int to;
+
+        AggregateTask(CompetitionDataRepository repository, List<String> names, int from, int to) {
+            this.repository = repository;
+            this.names = names;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<Integer, TeamRanking> compute() {
+            if (to - from == 1) {
+                // 每个赛事单独一个只读事务；整季统计不要求赛事之间处于同一快照
+                List<TeamRanking> rankings = RankingEngine.compute(repository.loadAll(names.get(from)));
+                Map<Integer, TeamRanking> byTeam = new HashMap<>(rankings.size() * 2);
+                for (TeamRanking r : rankings) byTeam.put(r.getTeamNumber(), r);
+                return byTeam;
+            }
+            int mid = (from + to) >>> 1;
+            AggregateTask left = new AggregateTask(repository, names, from, mid);
+            left.fork();
+            Map<Integer, TeamRanking> right = new AggregateTask(repository, names, mid, to).compute();
+            Map<Integer, TeamRanking> merged = left.join();
+            right.forEach((team, ranking) -> merged.merge(team, ranking, TeamRanking::merge));
+            return merged;
+        }
+    }
+}
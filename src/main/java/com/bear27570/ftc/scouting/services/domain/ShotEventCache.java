@@ -0,0 +1,188 @@
+// File: ShotEventCache.java
+package com.bear27570.ftc.scouting.services.domain;
+
+import com.bear27570.ftc.scouting.models.PenaltyEntry;
+import com.bear27570.ftc.scouting.models.ScoreEntry;
+import com.bear27570.ftc.scouting.utils.ShotEventCodec;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 已解码投射点的共享缓存，排名、热力图与联盟分析共用。
+ * 以成绩 id 为键，并用 clickLocations 的内容指纹作为版本号：即使漏掉了失效通知，也不会返回过期数据。
+ * 按总点数限制内存，超出后按 LRU 淘汰。
+ */
+public class ShotEventCache implements MatchDataService.DataChangeListener {
+
+    public static final int DEFAULT_MAX_EVENTS = 200_000;
+
+    private final int maxEvents;
+    private final LinkedHashMap<Integer, Shots> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final ShotEventCodec.Cursor cursor = new ShotEventCodec.Cursor();
+    private int cachedEvents = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ShotEventCache() {
+        this(DEFAULT_MAX_EVENTS);
+    }
+
+    public ShotEventCache(int maxEvents) {
+        this.maxEvents = maxEvents;
+    }
+
+    /**
+     * 获取某条成绩的投射点。未入库的记录 (id <= 0) 直接解码，不进入缓存。
+     */
+    public synchronized Shots get(ScoreEntry entry) {
+        String stored = entry.getClickLocations();
+        long revision = revisionOf(stored);
+        if (entry.getId() > 0) {
+            Shots cached = entries.get(entry.getId());
+            if (cached != null && cached.revision == revision) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+        misses.incrementAndGet();
+        Shots decoded = decode(cursor, stored, revision);
+        if (entry.getId() > 0) put(entry.getId(), decoded);
+        return decoded;
+    }
+
+    /**
+     * 不经过缓存直接解码。用于一次性的批量统计（如整季排名），既不挤占共享缓存也不争用它的锁。
+     */
+    public static Shots decodeUncached(ScoreEntry entry) {
+        String stored = entry.getClickLocations();
+        return decode(new ShotEventCodec.Cursor(), stored, revisionOf(stored));
+    }
+
+    public synchronized void invalidate(int scoreId) {
+        Shots removed = entries.remove(scoreId);
+        if (removed != null) cachedEvents -= removed.size;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        cachedEvents = 0;
+    }
+
+    public long getHitCount() { return hits.get(); }
+    public long getMissCount() { return misses.get(); }
+    public synchronized int getCachedEntryCount() { return entries.size(); }
+    public synchronized int getCachedEventCount() { return cachedEvents; }
+
+    @Override
+    public void onScoreSaved(String competitionName, ScoreEntry entry) {
+        invalidate(entry.getId());
+    }
+
+    @Override
+    public void onScoreDeleted(int id) {
+        invalidate(id);
+    }
+
+    @Override
+    public void onPenaltySaved(String competitionName, PenaltyEntry entry) {
+        // 判罚与投射点无关
+    }
+
+    @Override
+    public void onCompetitionDataReplaced(String competitionName) {
+        clear(); // 缓存不区分赛事，整体清空即可
+    }
+
+    private void put(int id, Shots shots) {
+        Shots old = entries.put(id, shots);
+        if (old != null) cachedEvents -= old.size;
+        cachedEvents += shots.size;
+        var it = entries.entrySet().iterator();
+        while (cachedEvents > maxEvents && it.hasNext()) {
+            Map.Entry<Integer, Shots> eldest = it.next();
+            if (eldest.getKey() == id) continue; // 刚放入的这条保留
+            cachedEvents -= eldest.getValue().size;
+            it.remove();
+        }
+    }
+
+    private static Shots decode(ShotEventCodec.Cursor cursor, String stored, long revision) {
+        int n = 0;
+        int capacity = 16;
+        byte[] team = new byte[capacity];
+        byte[] state = new byte[capacity];
+        double[] x = new double[capacity];
+        double[] y = new double[capacity];
+        long[] ts = new long[capacity];
+
+        cursor.reset(stored);
+        while (cursor.next()) {
+            if (n == capacity) {
+                capacity *= 2;
+                team = Arrays.copyOf(team, capacity);
+                state = Arrays.copyOf(state, capacity);
+                x = Arrays.copyOf(x, capacity);
+                y = Arrays.copyOf(y, capacity);
+                ts = Arrays.copyOf(ts, capacity);
+            }
+            team[n] = (byte) cursor.team();
+            state[n] = (byte) cursor.state();
+            x[n] = cursor.x();
+            y[n] = cursor.y();
+            ts[n] = cursor.timestamp();
+            n++;
+        }
+        return new Shots(revision, n, Arrays.copyOf(team, n), Arrays.copyOf(state, n),
+                Arrays.copyOf(x, n), Arrays.copyOf(y, n), Arrays.copyOf(ts, n));
+    }
+
+    private static long revisionOf(String stored) {
+        if (stored == null) return 0;
+        return ((long) stored.length() << 32) | (stored.hashCode() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 一条成绩的全部投射点，按列存放在基本类型数组中。只读，可在线程间共享。
+     */
+    public static final class Shots {
+        private final long revision;
+        private final int size;
+        private final byte[] team;
+        private final byte[] state;
+        private final double[] x;
+        private final double[] y;
+        private final long[] timestamp;
+        // 下标 1/2 对应队伍序号
+        private final int[] teamHits = new int[3];
+        private final int[] teamShots = new int[3];
+
+        private Shots(long revision, int size, byte[] team, byte[] state, double[] x, double[] y, long[] timestamp) {
+            this.revision = revision;
+            this.size = size;
+            this.team = team;
+            this.state = state;
+            this.x = x;
+            this.y = y;
+            this.timestamp = timestamp;
+            for (int i = 0; i < size; i++) {
+                if (team[i] != 1 && team[i] != 2) continue;
+                teamShots[team[i]]++;
+                if (state[i] == ShotEventCodec.STATE_HIT) teamHits[team[i]]++;
+            }
+        }
+
+        public int size() { return size; }
+        public int team(int i) { return team[i]; }
+        public boolean isHit(int i) { return state[i] == ShotEventCodec.STATE_HIT; }
+        public double x(int i) { return x[i]; }
+        public double y(int i) { return y[i]; }
+        public long timestamp(int i) { return timestamp[i]; }
+
+        public int hits(int teamIndex) { return teamIndex == 1 || teamIndex == 2 ? teamHits[teamIndex] : 0; }
+        public int shots(int teamIndex) { return teamIndex == 1 || teamIndex == 2 ? teamShots[teamIndex] : 0; }
+    }
+}
@@ -0,0 +1,144 @@
+// File: TeamProfileIndex.java
+package com.bear27570.ftc.scouting.services.domain;
+
+import com.bear27570.ftc.scouting.models.ScoreEntry;
+import com.bear27570.ftc.scouting.models.ScoreShots;
+import com.bear27570.ftc.scouting.models.ShotSummary;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 某个数据版本下全部队伍的投射画像（近 / 远端角色平均命中、风格、命中率、稳定性）。
+ * 一次扫描赛事的全部成绩建立，之后按队号 O(1) 查询；不可变，可在线程间共享。
+ */
+public final class TeamProfileIndex {
+
+    // 近端 / 远端以 ShotSummary.ZONE_DIVIDER_Y 划分，由库内聚合完成
+    // 单场远端出手占比高于 FAR_RATIO 视为远端角色，低于 NEAR_RATIO 视为近端角色
+    private static final double FAR_RATIO = 0.65;
+    private static final double NEAR_RATIO = 0.35;
+
+    private final long dataVersion;
+    private final Map<Integer, TeamProfile> profiles;
+
+    private TeamProfileIndex(long dataVersion, Map<Integer, TeamProfile> profiles) {
+        this.dataVersion = dataVersion;
+        this.profiles = Collections.unmodifiableMap(profiles);
+    }
+
+    public long getDataVersion() { return dataVersion; }
+
+    /** 没有任何有效（非故障）场次的队伍返回 null。 */
+    public TeamProfile get(int teamNumber) { return profiles.get(teamNumber); }
+
+    public Collection<TeamProfile> all() { return profiles.values(); }
+
+    /**
+     * @param shots 按成绩 id 的投射统计（见 ScoreRepository.findShotSummaries），缺失的成绩视为没有投射点
+     */
+    public static TeamProfileIndex build(long dataVersion, List<ScoreEntry> scores, Map<Integer, ScoreShots> shots) {
+        Map<Integer, Builder> builders = new HashMap<>();
+        for (ScoreEntry m : scores) {
+            boolean allianceMode = m.getScoreType() == ScoreEntry.Type.ALLIANCE;
+            ScoreShots matchShots = shots.getOrDefault(m.getId(), ScoreShots.EMPTY);
+            double score = m.getTotalScore() / (allianceMode ? 2.0 : 1.0);
+            if (!m.isTeam1Broken()) {
+                builders.computeIfAbsent(m.getTeam1(), Builder::new).addMatch(matchShots.team1(), score);
+            }
+            // 与 findByTeam 一致：单人模式下 team2 不算出场
+            if (allianceMode && m.getTeam2() != m.getTeam1() && !m.isTeam2Broken()) {
+                builders.computeIfAbsent(m.getTeam2(), Builder::new).addMatch(matchShots.team2(), score);
+            }
+        }
+        Map<Integer, TeamProfile> profiles = new HashMap<>(builders.size() * 2);
+        builders.forEach((team, b) -> profiles.put(team, b.build()));
+        return new TeamProfileIndex(dataVersion, profiles);
+    }
+
+    public static final class TeamProfile {
+        private final int teamNumber;
+        private final double nearRoleAvgHits;
+        private final double farRoleAvgHits;
+        private final String style;
+        private final double accuracy;
+        private final double stability;
+
+        TeamProfile(int teamNumber, double nearRoleAvgHits, double farRoleAvgHits, String style,
+                    double accuracy, double stability) {
+            this.teamNumber = teamNumber;
+            this.nearRoleAvgHits = nearRoleAvgHits;
+            this.farRoleAvgHits = farRoleAvgHits;
+            this.style = style;
+            this.accuracy = accuracy;
+            this.stability = stability;
+        }
+
+        public int getTeamNumber() { return teamNumber; }
+        public double getNearRoleAvgHits() { return nearRoleAvgHits; }
+        public double getFarRoleAvgHits() { return farRoleAvgHits; }
+        /** "Near" / "Far" / "Hybrid"，没有任何投射记录时为 "Unknown"。 */
+        public String getStyle() { return style; }
+        /** 命中率百分比 (0-100)。 */
+        public double getAccuracy() { return accuracy; }
+        /** 单场得分的样本标准差，越小越稳定。 */
+        public double getStability() { return stability; }
+    }
+
+    private static final class Builder {
+        final int teamNumber;
+        double sumHitsWhenNear, sumHitsWhenFar;
+        int nearGames, farGames;
+        int nearShots, farShots, hits;
+        // Welford 在线方差
+        int matches;
+        double mean, m2;
+
+        Builder(int teamNumber) {
+            this.teamNumber = teamNumber;
+        }
+
+        void addMatch(ShotSummary shots, double score) {
+            matches++;
+            double delta = score - mean;
+            mean += delta / matches;
+            m2 += delta * (score - mean);
+
+            nearShots += shots.nearShots();
+            farShots += shots.farShots();
+            hits += shots.hits();
+
+            if (shots.shots() > 0) {
+                double farRatio = shots.farRatio();
+                if (farRatio > FAR_RATIO) {
+                    sumHitsWhenFar += shots.hits();
+                    farGames++;
+                } else if (farRatio < NEAR_RATIO) {
+                    sumHitsWhenNear += shots.hits();
+                    nearGames++;
+                }
+            }
+        }
+
+        TeamProfile build() {
+            int totalShots = nearShots + farShots;
+            String style;
+            if (totalShots == 0) style = "Unknown";
+            else {
+                double farRatio = (double) farShots / totalShots;
+                if (farRatio > FAR_RATIO) style = "Far";
+                else if (farRatio < NEAR_RATIO) style = "Near";
+                else style = "Hybrid";
+            }
+            return new TeamProfile(teamNumber,
+                    nearGames > 0 ? sumHitsWhenNear / nearGames : 0.0,
+                    farGames > 0 ? sumHitsWhenFar / farGames : 0.0,
+                    style,
+                    totalShots > 0 ? hits * 100.0 / totalShots : 0.0,
+                    matches > 1 ? Math.sqrt(m2 / (matches - 1)) : 0.0);
+        }
+    }
+}
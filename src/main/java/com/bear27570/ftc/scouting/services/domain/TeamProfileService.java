@@ -0,0 +1,40 @@
+// File: TeamProfileService.java
+package com.bear27570.ftc.scouting.services.domain;
+
+import com.bear27570.ftc.scouting.models.Competition;
+import com.bear27570.ftc.scouting.repository.CompetitionDataRepository;
+import com.bear27570.ftc.scouting.repository.CompetitionRepository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按赛事缓存 {@link TeamProfileIndex}，以 competitions.dataVersion 判断是否过期。
+ * 版本未变时只查一行赛事信息，不再读取成绩。
+ */
+public class TeamProfileService {
+
+    private final CompetitionRepository competitionRepository;
+    private final CompetitionDataRepository competitionDataRepository;
+    private final Map<String, TeamProfileIndex> indexes = new ConcurrentHashMap<>();
+
+    public TeamProfileService(CompetitionRepository competitionRepository,
+                              CompetitionDataRepository competitionDataRepository) {
+        this.competitionRepository = competitionRepository;
+        this.competitionDataRepository = competitionDataRepository;
+    }
+
+    public TeamProfileIndex getIndex(String competitionName) {
+        Competition comp = competitionRepository.findByName(competitionName);
+        TeamProfileIndex cached = indexes.get(competitionName);
+        if (cached != null && comp != null && cached.getDataVersion() == comp.getDataVersion()) {
+            return cached;
+        }
+        // 成绩、投射统计与版本号取自同一事务，索引标注的版本一定与其内容相符
+        CompetitionDataRepository.CompetitionData data = competitionDataRepository.loadAll(competitionName);
+        long version = data.competition != null ? data.competition.getDataVersion() : -1;
+        TeamProfileIndex index = TeamProfileIndex.build(version, data.scores, data.shots);
+        indexes.put(competitionName, index);
+        return index;
+    }
+}
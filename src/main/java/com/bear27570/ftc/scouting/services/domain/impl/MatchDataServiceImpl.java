@@ -1,41 +1,159 @@
 // File: MatchDataServiceImpl.java
 package com.bear27570.ftc.scouting.services.domain.impl;
 
+import com.bear27570.ftc.scouting.models.JournalEvent;
 import com.bear27570.ftc.scouting.models.PenaltyEntry;
 import com.bear27570.ftc.scouting.models.ScoreEntry;
+import com.bear27570.ftc.scouting.models.ShotGrid;
 import com.bear27570.ftc.scouting.repository.PenaltyRepository;
 import com.bear27570.ftc.scouting.repository.ScoreRepository;
+import com.bear27570.ftc.scouting.repository.SubmissionJournal;
 import com.bear27570.ftc.scouting.services.domain.MatchDataService;
+import com.bear27570.ftc.scouting.utils.ShotEventCodec;
+import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
 
 public class MatchDataServiceImpl implements MatchDataService {
+    private static final Logger log = LoggerFactory.getLogger(MatchDataServiceImpl.class);
 
     private final ScoreRepository scoreRepository;
     private final PenaltyRepository penaltyRepository;
+    private final SubmissionJournal journal; // 可为 null，此时不记日志
+    private final Gson gson = new Gson();
+    private final List<DataChangeListener> listeners = new CopyOnWriteArrayList<>();
 
     public MatchDataServiceImpl(ScoreRepository scoreRepository, PenaltyRepository penaltyRepository) {
+        this(scoreRepository, penaltyRepository, null);
+    }
+
+    public MatchDataServiceImpl(ScoreRepository scoreRepository, PenaltyRepository penaltyRepository, SubmissionJournal journal) {
         this.scoreRepository = scoreRepository;
         this.penaltyRepository = penaltyRepository;
+        this.journal = journal;
     }
 
     @Override
     public void submitScore(String competitionName, ScoreEntry entry) {
+        // 旧版本客户端仍可能提交文本格式的坐标，入库前统一转成打包格式
+        entry.setClickLocations(ShotEventCodec.normalize(entry.getClickLocations()));
+        persistScore(competitionName, entry, journalScoreSaved(competitionName, entry));
+    }
+
+    @Override
+    public void submitScores(String competitionName, List<ScoreEntry> entries) {
+        if (entries.isEmpty()) return;
+        long[] sequences = journalScoresSaved(competitionName, entries);
+        try {
+            scoreRepository.saveAll(competitionName, entries);
+        } catch (RuntimeException e) {
+            abandoned(sequences);
+            throw e;
+        }
+        scoresSaved(competitionName, entries, sequences);
+    }
+
+    @Override
+    public void submitScoresIsolatingFailures(String competitionName, List<ScoreEntry> entries) {
+        if (entries.isEmpty()) return;
+        long[] sequences = journalScoresSaved(competitionName, entries);
+        try {
+            scoreRepository.saveAll(competitionName, entries);
+        } catch (RuntimeException e) {
+            // 整批回滚后逐条重试，沿用已记下的日志序号，不重复记日志
+            log.warn("Group commit of {} scores failed, retrying one by one: {}", entries.size(), e.getMessage());
+            for (int i = 0; i < entries.size(); i++) {
+                ScoreEntry entry = entries.get(i);
+                try {
+                    persistScore(competitionName, entry, sequences[i]);
+                } catch (RuntimeException single) {
+                    log.error("Failed to save score for match {}: {}", entry.getMatchNumber(), single.getMessage());
+                }
+            }
+            return;
+        }
+        scoresSaved(competitionName, entries, sequences);
+    }
+
+    // 写库并确认 / 放弃对应的日志序号
+    private void persistScore(String competitionName, ScoreEntry entry, long sequence) {
+        try {
+            if (entry.getId() > 0) {
+                scoreRepository.update(entry);
+            } else {
+                scoreRepository.save(competitionName, entry);
+            }
+        } catch (RuntimeException e) {
+            abandoned(sequence);
+            throw e;
+        }
         if (entry.getId() > 0) {
-            scoreRepository.update(entry);
+            applied(sequence);
+            listeners.forEach(l -> l.onScoreSaved(competitionName, entry));
         } else {
-            scoreRepository.save(competitionName, entry);
+            // 保存失败时仓储层只记日志，无法确定库里的状态，让监听方整体重建
+            abandoned(sequence);
+            listeners.forEach(l -> l.onCompetitionDataReplaced(competitionName));
         }
     }
 
+    private void scoresSaved(String competitionName, List<ScoreEntry> entries, long[] sequences) {
+        applied(sequences);
+        listeners.forEach(l -> l.onScoresSaved(competitionName, entries));
+    }
+
     @Override
     public void deleteScore(int id) {
-        scoreRepository.delete(id);
+        long sequence = 0;
+        if (journal != null) {
+            ScoreEntry existing = scoreRepository.findById(id);
+            if (existing != null) {
+                sequence = append(SubmissionJournal.RecordType.SCORE_DELETED,
+                        JournalEvent.scoreDeleted(scoreRepository.findCompetitionName(id), existing));
+            }
+        }
+        try {
+            scoreRepository.delete(id);
+        } catch (RuntimeException e) {
+            abandoned(sequence);
+            throw e;
+        }
+        applied(sequence);
+        listeners.forEach(l -> l.onScoreDeleted(id));
     }
 
     @Override
     public void submitPenalty(String competitionName, PenaltyEntry entry) {
-        penaltyRepository.savePenaltyEntry(competitionName, entry);
+        long sequence = append(SubmissionJournal.RecordType.PENALTY_SAVED, JournalEvent.penaltySaved(competitionName, entry));
+        try {
+            penaltyRepository.savePenaltyEntry(competitionName, entry);
+        } catch (RuntimeException e) {
+            abandoned(sequence);
+            throw e;
+        }
+        applied(sequence);
+        listeners.forEach(l -> l.onPenaltySaved(competitionName, entry));
+    }
+
+    @Override
+    public void submitPenalties(String competitionName, List<PenaltyEntry> entries) {
+        if (entries.isEmpty()) return;
+        long[] sequences = entries.stream()
+                .mapToLong(e -> append(SubmissionJournal.RecordType.PENALTY_SAVED, JournalEvent.penaltySaved(competitionName, e)))
+                .toArray();
+        try {
+            penaltyRepository.savePenaltiesBatch(competitionName, entries);
+        } catch (RuntimeException e) {
+            abandoned(sequences);
+            throw e;
+        }
+        applied(sequences);
+        listeners.forEach(l -> l.onPenaltiesSaved(competitionName, entries));
     }
 
     @Override
@@ -43,14 +161,35 @@ public class MatchDataServiceImpl implements MatchDataService {
         return scoreRepository.findByCompetition(competitionName);
     }
 
+    @Override
+    public Stream<ScoreEntry> streamHistory(String competitionName) {
+        return scoreRepository.streamByCompetition(competitionName);
+    }
+
+    @Override
+    public List<ScoreEntry> getHistoryPage(String competitionName, ScoreEntry after, int limit) {
+        return scoreRepository.findPageByCompetition(competitionName, after, limit);
+    }
+
     @Override
     public List<ScoreEntry> getTeamHistory(String competitionName, int teamNumber) {
         return scoreRepository.findByTeam(competitionName, teamNumber);
     }
 
+    @Override
+    public ShotGrid getTeamShotGrid(String competitionName, int teamNumber) {
+        return scoreRepository.findShotGrid(competitionName, teamNumber);
+    }
+
     @Override
     public void syncWithHostData(String competitionName, List<ScoreEntry> hostData) {
-        scoreRepository.syncWithHostData(competitionName, hostData);
+        hostData.forEach(hs -> hs.setSyncStatus(ScoreEntry.SyncStatus.SYNCED));
+        // 客户端每次收到主机推送都会带上完整历史，绝大多数时候没有任何变化，此时不必让缓存失效
+        List<ScoreEntry> written = scoreRepository.mergeSubmissions(competitionName, hostData);
+        if (written.isEmpty()) return;
+        // 合并前无法知道哪些行会变，这里在写库之后补记；崩溃丢失的部分会随下次主机推送重新同步
+        written.forEach(hs -> applied(append(SubmissionJournal.RecordType.SCORE_SAVED, JournalEvent.scoreSaved(competitionName, hs, null))));
+        listeners.forEach(l -> l.onCompetitionDataReplaced(competitionName));
     }
 
     @Override
@@ -62,4 +201,53 @@ public class MatchDataServiceImpl implements MatchDataService {
     public void markAsExported(List<Integer> ids) {
         scoreRepository.updateStatuses(ids, ScoreEntry.SyncStatus.EXPORTED);
     }
-}
\ No newline at end of file
+
+    @Override
+    public void addDataChangeListener(DataChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    private long[] journalScoresSaved(String competitionName, List<ScoreEntry> entries) {
+        long[] sequences = new long[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            ScoreEntry entry = entries.get(i);
+            entry.setClickLocations(ShotEventCodec.normalize(entry.getClickLocations()));
+            sequences[i] = journalScoreSaved(competitionName, entry);
+        }
+        return sequences;
+    }
+
+    private long journalScoreSaved(String competitionName, ScoreEntry entry) {
+        if (journal == null) return 0;
+        // 修改可能改变提交键，连同修改前的记录一起记下
+        ScoreEntry previous = entry.getId() > 0 ? scoreRepository.findById(entry.getId()) : null;
+        return append(SubmissionJournal.RecordType.SCORE_SAVED, JournalEvent.scoreSaved(competitionName, entry, previous));
+    }
+
+    // 日志只是写库的前置副本，写日志失败不能挡住数据入库；返回 0 表示没有记下
+    private long append(SubmissionJournal.RecordType type, JournalEvent event) {
+        if (journal == null) return 0;
+        try {
+            return journal.append(type, gson.toJson(event).getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            log.error("Failed to append {} to submission journal: {}", type, e.getMessage());
+            return 0;
+        }
+    }
+
+    // 写库成功后确认，日志据此推进检查点
+    private void applied(long... sequences) {
+        if (journal == null) return;
+        for (long sequence : sequences) {
+            if (sequence > 0) journal.applied(sequence);
+        }
+    }
+
+    // 写库失败（异常已上抛或仓储层已记录）时放弃这几条，否则它们会一直挡住检查点
+    private void abandoned(long... sequences) {
+        if (journal == null) return;
+        for (long sequence : sequences) {
+            if (sequence > 0) journal.abandoned(sequence);
+        }
+    }
+}
@@ -15,7 +15,9 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
@@ -100,6 +102,8 @@ public class FtcScoutApiClient {
 
     private int parseAndSaveMatchData(String json, String competitionName) {
         int count = 0;
+        long startNanos = System.nanoTime();
+        List<PenaltyEntry> penalties = new ArrayList<>();
         try {
             JsonObject root = JsonParser.parseString(json).getAsJsonObject();
             JsonObject data = root.getAsJsonObject("data");
@@ -139,7 +143,7 @@ public class FtcScoutApiClient {
                         processedMatches.add(redKey);
                         isNewMatch = true;
                         if (rMaj > 0 || rMin > 0 || rScore > 0) {
-                            matchDataService.submitPenalty(competitionName, new PenaltyEntry(matchNum, "RED", rMaj, rMin, rScore));
+                            penalties.add(new PenaltyEntry(matchNum, "RED", rMaj, rMin, rScore));
                         }
                     }
 
@@ -148,7 +152,7 @@ public class FtcScoutApiClient {
                         processedMatches.add(blueKey);
                         isNewMatch = true;
                         if (bMaj > 0 || bMin > 0 || bScore > 0) {
-                            matchDataService.submitPenalty(competitionName, new PenaltyEntry(matchNum, "BLUE", bMaj, bMin, bScore));
+                            penalties.add(new PenaltyEntry(matchNum, "BLUE", bMaj, bMin, bScore));
                         }
                     }
 
@@ -159,6 +163,14 @@ public class FtcScoutApiClient {
             log.error("JSON parse error: " + e.getMessage(), e);
             throw new RuntimeException("Parse Error", e);
         }
+
+        // 整场赛事的判罚一个事务批量合并
+        long parsedNanos = System.nanoTime();
+        matchDataService.submitPenalties(competitionName, penalties);
+        long savedNanos = System.nanoTime();
+        log.info("[FTCScout] Synced {} matches ({} penalty rows) for {}: parse {} ms, save {} ms",
+                count, penalties.size(), competitionName,
+                (parsedNanos - startNanos) / 1_000_000, (savedNanos - parsedNanos) / 1_000_000);
         return count;
     }
 
@@ -0,0 +1,265 @@
+// File: src/main/java/com/bear27570/ftc/scouting/utils/ShotEventCodec.java
+package com.bear27570.ftc.scouting.utils;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 投射点 (clickLocations) 的紧凑二进制编码。
+ * <p>
+ * 存储 / 网络 / .ftcsync 中使用 "~" + Base64 的文本形式，仍放在原来的 clickLocations 字段里；
+ * 旧的 "team:x,y,state,ts;" 文本依旧可以被读取。
+ * <p>
+ * 二进制布局：版本号(1B) + 点数(varint)，然后每个点依次为
+ * 队伍/状态(1B，高 4 位队伍序号，低 4 位状态) + x、y (各 2B，0.1 像素精度) + 与上一点的时间差 (zigzag varint, ms)。
+ */
+public final class ShotEventCodec {
+
+    public static final String PACKED_PREFIX = "~";
+    public static final int STATE_HIT = 0;
+    public static final int STATE_MISS = 1;
+
+    private static final byte VERSION = 1;
+    private static final double SCALE = 10.0; // 与旧文本格式的 %.1f 精度一致
+
+    private static final int[] BASE64_INDEX = new int[128];
+    static {
+        Arrays.fill(BASE64_INDEX, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) BASE64_INDEX[alphabet.charAt(i)] = i;
+    }
+
+    private ShotEventCodec() {}
+
+    public static boolean isPacked(String stored) {
+        return stored != null && stored.startsWith(PACKED_PREFIX);
+    }
+
+    /**
+     * 将任意形式（新/旧/空）的 clickLocations 统一转换为打包后的文本形式。
+     */
+    public static String normalize(String stored) {
+        if (stored == null || stored.isEmpty() || isPacked(stored)) return stored;
+        Writer writer = new Writer();
+        Cursor cursor = new Cursor();
+        cursor.reset(stored);
+        while (cursor.next()) {
+            writer.add(cursor.team(), cursor.x(), cursor.y(), cursor.state(), cursor.timestamp());
+        }
+        return writer.toStoredString();
+    }
+
+    /**
+     * 顺序写入投射点并生成打包结果。
+     */
+    public static final class Writer {
+        private byte[] buf = new byte[64];
+        private int len = 0;
+        private int count = 0;
+        private long lastTs = 0;
+
+        public Writer add(int team, double x, double y, int state, long timestamp) {
+            ensure(1 + 4 + 10);
+            buf[len++] = (byte) (((team & 0x0F) << 4) | (state & 0x0F));
+            writeShort(quantize(x));
+            writeShort(quantize(y));
+            long delta = timestamp - lastTs;
+            writeVarLong((delta << 1) ^ (delta >> 63));
+            lastTs = timestamp;
+            count++;
+            return this;
+        }
+
+        public int size() { return count; }
+
+        public byte[] toBytes() {
+            byte[] header = new byte[1 + 5];
+            header[0] = VERSION;
+            int h = 1;
+            int c = count;
+            while ((c & ~0x7F) != 0) {
+                header[h++] = (byte) ((c & 0x7F) | 0x80);
+                c >>>= 7;
+            }
+            header[h++] = (byte) c;
+            byte[] out = new byte[h + len];
+            System.arraycopy(header, 0, out, 0, h);
+            System.arraycopy(buf, 0, out, h, len);
+            return out;
+        }
+
+        /** 没有任何点时返回空串，与旧格式保持一致。 */
+        public String toStoredString() {
+            if (count == 0) return "";
+            return PACKED_PREFIX + Base64.getEncoder().withoutPadding().encodeToString(toBytes());
+        }
+
+        private static short quantize(double v) {
+            long q = Math.round(v * SCALE);
+            return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, q));
+        }
+
+        private void writeShort(short v) {
+            buf[len++] = (byte) (v >> 8);
+            buf[len++] = (byte) v;
+        }
+
+        private void writeVarLong(long v) {
+            while ((v & ~0x7FL) != 0) {
+                buf[len++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[len++] = (byte) v;
+        }
+
+        private void ensure(int extra) {
+            if (len + extra > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+        }
+    }
+
+    /**
+     * 可复用的游标：reset 后用 next() 逐点遍历，读取过程中不再分配对象
+     * （内部缓冲只在遇到更长的数据时扩容）。旧文本格式同样支持，格式错误的片段会被跳过。
+     * 非线程安全，每个线程各持有一个。
+     */
+    public static final class Cursor {
+        private byte[] buf = new byte[256];
+        private int limit;
+        private int pos;
+        private int remaining;
+
+        // 旧文本格式
+        private String legacy;
+        private int legacyPos;
+
+        private int team;
+        private int state;
+        private double x;
+        private double y;
+        private long timestamp;
+
+        public Cursor reset(String stored) {
+            legacy = null;
+            pos = limit = remaining = 0;
+            timestamp = 0;
+            if (stored == null || stored.isEmpty()) return this;
+            if (isPacked(stored)) {
+                if (decodeBase64(stored) && limit > 0 && buf[0] == VERSION) {
+                    pos = 1;
+                    remaining = (int) readVarLong();
+                }
+            } else {
+                legacy = stored;
+                legacyPos = 0;
+            }
+            return this;
+        }
+
+        public boolean next() {
+            if (legacy != null) return nextLegacy();
+            if (remaining <= 0 || pos + 5 > limit) return false;
+            remaining--;
+            int head = buf[pos++] & 0xFF;
+            team = head >>> 4;
+            state = head & 0x0F;
+            x = readShort() / SCALE;
+            y = readShort() / SCALE;
+            long zz = readVarLong();
+            timestamp += (zz >>> 1) ^ -(zz & 1);
+            return true;
+        }
+
+        public int team() { return team; }
+        public int state() { return state; }
+        public boolean isHit() { return state == STATE_HIT; }
+        public double x() { return x; }
+        public double y() { return y; }
+        public long timestamp() { return timestamp; }
+
+        private short readShort() {
+            short v = (short) (((buf[pos] & 0xFF) << 8) | (buf[pos + 1] & 0xFF));
+            pos += 2;
+            return v;
+        }
+
+        private long readVarLong() {
+            long result = 0;
+            int shift = 0;
+            while (pos < limit && shift < 64) {
+                byte b = buf[pos++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) break;
+                shift += 7;
+            }
+            return result;
+        }
+
+        private boolean decodeBase64(String s) {
+            int start = PACKED_PREFIX.length();
+            int needed = (s.length() - start) * 3 / 4;
+            if (buf.length < needed) buf = new byte[needed];
+            int acc = 0, bits = 0, out = 0;
+            for (int i = start; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '=') break;
+                int v = c < 128 ? BASE64_INDEX[c] : -1;
+                if (v < 0) return false;
+                acc = (acc << 6) | v;
+                bits += 6;
+                if (bits >= 8) {
+                    bits -= 8;
+                    buf[out++] = (byte) (acc >> bits);
+                }
+            }
+            limit = out;
+            return true;
+        }
+
+        // 旧格式 "team:x,y,state,ts;"，直接在字符串上扫描数字，不做 split
+        private boolean nextLegacy() {
+            String s = legacy;
+            int n = s.length();
+            while (legacyPos < n) {
+                int end = s.indexOf(';', legacyPos);
+                if (end < 0) end = n;
+                int from = legacyPos;
+                legacyPos = end + 1;
+                if (parseLegacyEntry(s, from, end)) return true;
+            }
+            return false;
+        }
+
+        private boolean parseLegacyEntry(String s, int from, int end) {
+            int colon = s.indexOf(':', from);
+            if (colon < 0 || colon >= end) return false;
+            try {
+                int t = Integer.parseInt(s, from, colon, 10);
+                int c1 = indexOf(s, ',', colon + 1, end);
+                if (c1 < 0) return false;
+                double px = Double.parseDouble(s.substring(colon + 1, c1));
+                int c2 = indexOf(s, ',', c1 + 1, end);
+                double py = Double.parseDouble(s.substring(c1 + 1, c2 < 0 ? end : c2));
+                int st = 0;
+                long ts = 0;
+                if (c2 >= 0) {
+                    int c3 = indexOf(s, ',', c2 + 1, end);
+                    st = Integer.parseInt(s, c2 + 1, c3 < 0 ? end : c3, 10);
+                    if (c3 >= 0) ts = Long.parseLong(s, c3 + 1, end, 10);
+                }
+                team = t;
+                x = px;
+                y = py;
+                state = st;
+                timestamp = ts;
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        private static int indexOf(String s, char ch, int from, int end) {
+            int i = s.indexOf(ch, from);
+            return (i < 0 || i >= end) ? -1 : i;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * 把已有成绩的 clickLocations 解码后逐点写入 V11 新建的 shot_events，再按成绩聚合出 shot_zone_counts。
+ * <p>
+ * 迁移必须可重放：解码逻辑冻结在本类中（打包格式版本 1 与旧文本格式），只用 JDBC 读写，
+ * 不引用 ShotEventCodec / ScoreEntry，模型或编码器以后的改动不影响本迁移。
+ */
+public class V12__Backfill_shot_events extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 500;
+    private static final String PACKED_PREFIX = "~";
+    private static final byte VERSION = 1;
+    private static final double SCALE = 10.0;
+    private static final int STATE_HIT = 0;
+
+    private static final int[] BASE64_INDEX = new int[128];
+    static {
+        Arrays.fill(BASE64_INDEX, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) BASE64_INDEX[alphabet.charAt(i)] = i;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection conn = context.getConnection();
+        try (PreparedStatement select = conn.prepareStatement(
+                "SELECT id, team1, team2, clickLocations FROM scores WHERE clickLocations IS NOT NULL AND clickLocations <> ''");
+             PreparedStatement insert = conn.prepareStatement(
+                     "INSERT INTO shot_events(score_id, team, slot, x, y, hit, ts) VALUES (?, ?, ?, ?, ?, ?, ?)");
+             ResultSet rs = select.executeQuery()) {
+            Backfill backfill = new Backfill(insert);
+            while (rs.next()) {
+                backfill.score(rs.getInt("id"), rs.getInt("team1"), rs.getInt("team2"));
+                String stored = rs.getString("clickLocations");
+                if (stored.startsWith(PACKED_PREFIX)) decodePacked(stored, backfill);
+                else decodeLegacy(stored, backfill);
+            }
+            backfill.flush();
+        }
+        // 与 ScoreDao.COUNT_ZONES 相同的分区规则，一次性聚合全部历史数据
+        try (Statement statement = conn.createStatement()) {
+            statement.execute("INSERT INTO shot_zone_counts(score_id, slot, nearShots, nearHits, farShots, farHits) " +
+                    "SELECT score_id, slot, " +
+                    "COUNT(*) FILTER (WHERE y < 400.0), COUNT(*) FILTER (WHERE y < 400.0 AND hit), " +
+                    "COUNT(*) FILTER (WHERE y >= 400.0), COUNT(*) FILTER (WHERE y >= 400.0 AND hit) " +
+                    "FROM shot_events WHERE slot IN (1, 2) GROUP BY score_id, slot");
+        }
+    }
+
+    /** 当前成绩的投射点按批写入 shot_events。 */
+    private static final class Backfill {
+        private final PreparedStatement insert;
+        private int pending;
+        private int scoreId;
+        private int team1;
+        private int team2;
+
+        Backfill(PreparedStatement insert) {
+            this.insert = insert;
+        }
+
+        void score(int scoreId, int team1, int team2) {
+            this.scoreId = scoreId;
+            this.team1 = team1;
+            this.team2 = team2;
+        }
+
+        void point(int slot, double x, double y, int state, long ts) throws SQLException {
+            insert.setInt(1, scoreId);
+            // 与热力图一致：序号 1 以外的点都记在 team2 名下
+            insert.setInt(2, slot == 1 ? team1 : team2);
+            insert.setInt(3, slot);
+            insert.setDouble(4, x);
+            insert.setDouble(5, y);
+            insert.setBoolean(6, state == STATE_HIT);
+            insert.setLong(7, ts);
+            insert.addBatch();
+            if (++pending == BATCH_SIZE) flush();
+        }
+
+        void flush() throws SQLException {
+            if (pending == 0) return;
+            insert.executeBatch();
+            pending = 0;
+        }
+    }
+
+    // 版本号(1B) + 点数(varint)，每个点：队伍/状态(1B) + x、y (各 2B，0.1 像素) + 时间差 (zigzag varint, ms)
+    private static void decodePacked(String stored, Backfill out) throws SQLException {
+        byte[] buf = decodeBase64(stored);
+        if (buf == null || buf.length == 0 || buf[0] != VERSION) return;
+        int[] pos = {1};
+        long remaining = readVarLong(buf, pos);
+        long ts = 0;
+        while (remaining-- > 0 && pos[0] + 5 <= buf.length) {
+            int head = buf[pos[0]++] & 0xFF;
+            double x = readShort(buf, pos) / SCALE;
+            double y = readShort(buf, pos) / SCALE;
+            long zz = readVarLong(buf, pos);
+            ts += (zz >>> 1) ^ -(zz & 1);
+            out.point(head >>> 4, x, y, head & 0x0F, ts);
+        }
+    }
+
+    private static short readShort(byte[] buf, int[] pos) {
+        short v = (short) (((buf[pos[0]] & 0xFF) << 8) | (buf[pos[0] + 1] & 0xFF));
+        pos[0] += 2;
+        return v;
+    }
+
+    private static long readVarLong(byte[] buf, int[] pos) {
+        long result = 0;
+        int shift = 0;
+        while (pos[0] < buf.length && shift < 64) {
+            byte b = buf[pos[0]++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) break;
+            shift += 7;
+        }
+        return result;
+    }
+
+    // 宽松解码：遇到 '=' 停止，不足一字节的尾部比特丢弃，非法字符视为整串无效
+    private static byte[] decodeBase64(String s) {
+        int start = PACKED_PREFIX.length();
+        byte[] buf = new byte[(s.length() - start) * 3 / 4];
+        int acc = 0, bits = 0, out = 0;
+        for (int i = start; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '=') break;
+            int v = c < 128 ? BASE64_INDEX[c] : -1;
+            if (v < 0) return null;
+            acc = (acc << 6) | v;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                buf[out++] = (byte) (acc >> bits);
+            }
+        }
+        return Arrays.copyOf(buf, out);
+    }
+
+    // 旧格式 "team:x,y,state,ts;"，格式错误的片段跳过，state、ts 缺省为 0
+    private static void decodeLegacy(String s, Backfill out) throws SQLException {
+        int n = s.length();
+        int from = 0;
+        while (from < n) {
+            int end = s.indexOf(';', from);
+            if (end < 0) end = n;
+            int entry = from;
+            from = end + 1;
+            int colon = indexOf(s, ':', entry, end);
+            if (colon < 0) continue;
+            int team, state = 0;
+            double x, y;
+            long ts = 0;
+            try {
+                team = Integer.parseInt(s, entry, colon, 10);
+                int c1 = indexOf(s, ',', colon + 1, end);
+                if (c1 < 0) continue;
+                x = Double.parseDouble(s.substring(colon + 1, c1));
+                int c2 = indexOf(s, ',', c1 + 1, end);
+                y = Double.parseDouble(s.substring(c1 + 1, c2 < 0 ? end : c2));
+                if (c2 >= 0) {
+                    int c3 = indexOf(s, ',', c2 + 1, end);
+                    state = Integer.parseInt(s, c2 + 1, c3 < 0 ? end : c3, 10);
+                    if (c3 >= 0) ts = Long.parseLong(s, c3 + 1, end, 10);
+                }
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            out.point(team, x, y, state, ts);
+        }
+    }
+
+    private static int indexOf(String s, char ch, int from, int end) {
+        int i = s.indexOf(ch, from);
+        return (i < 0 || i >= end) ? -1 : i;
+    }
+}
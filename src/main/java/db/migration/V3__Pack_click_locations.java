@@ -0,0 +1,128 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.io.ByteArrayOutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Base64;
+
+/**
+ * 把 scores.clickLocations 中的旧文本坐标 ("team:x,y,state,ts;") 批量转换为打包格式。
+ * 转换后的值仍为文本，列类型不变，旧格式读取逻辑保留作兼容。
+ * <p>
+ * 迁移必须可重放：这里冻结了写入时 (打包格式版本 1) 的转换逻辑，不引用 ShotEventCodec，
+ * 以后编码器怎么改都不影响本迁移的结果。
+ */
+public class V3__Pack_click_locations extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 500;
+    private static final String PACKED_PREFIX = "~";
+    private static final byte VERSION = 1;
+    private static final double SCALE = 10.0;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection conn = context.getConnection();
+        try (PreparedStatement select = conn.prepareStatement(
+                "SELECT id, clickLocations FROM scores WHERE clickLocations IS NOT NULL AND clickLocations <> '' " +
+                        "AND clickLocations NOT LIKE '" + PACKED_PREFIX + "%'");
+             PreparedStatement update = conn.prepareStatement("UPDATE scores SET clickLocations = ? WHERE id = ?");
+             ResultSet rs = select.executeQuery()) {
+            int pending = 0;
+            while (rs.next()) {
+                update.setString(1, pack(rs.getString("clickLocations")));
+                update.setInt(2, rs.getInt("id"));
+                update.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    update.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) update.executeBatch();
+        }
+    }
+
+    /**
+     * 版本号(1B) + 点数(varint)，每个点：队伍/状态(1B) + x、y (各 2B，0.1 像素) + 时间差 (zigzag varint, ms)，
+     * 再以 "~" + 无填充 Base64 存储。格式错误的片段跳过，没有有效点时返回空串。
+     */
+    static String pack(String legacy) {
+        ByteArrayOutputStream points = new ByteArrayOutputStream();
+        int count = 0;
+        long lastTs = 0;
+        int n = legacy.length();
+        int from = 0;
+        while (from < n) {
+            int end = legacy.indexOf(';', from);
+            if (end < 0) end = n;
+            Point p = parseEntry(legacy, from, end);
+            from = end + 1;
+            if (p == null) continue;
+            points.write(((p.team() & 0x0F) << 4) | (p.state() & 0x0F));
+            writeShort(points, quantize(p.x()));
+            writeShort(points, quantize(p.y()));
+            long delta = p.timestamp() - lastTs;
+            writeVarLong(points, (delta << 1) ^ (delta >> 63));
+            lastTs = p.timestamp();
+            count++;
+        }
+        if (count == 0) return "";
+        ByteArrayOutputStream out = new ByteArrayOutputStream(points.size() + 6);
+        out.write(VERSION);
+        writeVarLong(out, count);
+        out.writeBytes(points.toByteArray());
+        return PACKED_PREFIX + Base64.getEncoder().withoutPadding().encodeToString(out.toByteArray());
+    }
+
+    private record Point(int team, double x, double y, int state, long timestamp) {}
+
+    // state、ts 缺省为 0
+    private static Point parseEntry(String s, int from, int end) {
+        int colon = indexOf(s, ':', from, end);
+        if (colon < 0) return null;
+        try {
+            int team = Integer.parseInt(s, from, colon, 10);
+            int c1 = indexOf(s, ',', colon + 1, end);
+            if (c1 < 0) return null;
+            double x = Double.parseDouble(s.substring(colon + 1, c1));
+            int c2 = indexOf(s, ',', c1 + 1, end);
+            double y = Double.parseDouble(s.substring(c1 + 1, c2 < 0 ? end : c2));
+            int state = 0;
+            long ts = 0;
+            if (c2 >= 0) {
+                int c3 = indexOf(s, ',', c2 + 1, end);
+                state = Integer.parseInt(s, c2 + 1, c3 < 0 ? end : c3, 10);
+                if (c3 >= 0) ts = Long.parseLong(s, c3 + 1, end, 10);
+            }
+            return new Point(team, x, y, state, ts);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int indexOf(String s, char ch, int from, int end) {
+        int i = s.indexOf(ch, from);
+        return (i < 0 || i >= end) ? -1 : i;
+    }
+
+    private static short quantize(double v) {
+        long q = Math.round(v * SCALE);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, q));
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, short v) {
+        out.write(v >> 8);
+        out.write(v);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+}
@@ -0,0 +1,61 @@
+-- 赛事改用整数代理键：子表只存 competitionId，行与索引不再重复 VARCHAR(255) 的赛事名称，赛事改名也只需改一行
+ALTER TABLE competitions ADD COLUMN id INT GENERATED BY DEFAULT AS IDENTITY;
+
+-- 子表中引用了不存在赛事的数据补一个占位赛事（无创建者，不会出现在任何人的赛事列表里），加外键时不丢数据
+INSERT INTO competitions(name, creatorUsername)
+SELECT DISTINCT o.competitionName, NULL FROM (
+    SELECT competitionName FROM scores
+    UNION SELECT competitionName FROM penalties
+    UNION SELECT competitionName FROM memberships
+) o
+WHERE o.competitionName IS NOT NULL AND o.competitionName NOT IN (SELECT name FROM competitions);
+-- 物化排名只是缓存，孤儿行直接丢弃
+DELETE FROM team_rankings WHERE competitionName NOT IN (SELECT name FROM competitions);
+
+ALTER TABLE competitions DROP PRIMARY KEY;
+ALTER TABLE competitions ALTER COLUMN id SET NOT NULL;
+ALTER TABLE competitions ADD PRIMARY KEY (id);
+ALTER TABLE competitions ADD CONSTRAINT uq_competitions_name UNIQUE (name);
+
+-- 旧的按名称索引先删掉：H2 加列会整表复制，回填也逐行改写，少维护几棵索引树能省下大半迁移时间
+-- scores
+DROP INDEX IF EXISTS idx_scores_comp_match_alliance;
+DROP INDEX IF EXISTS idx_scores_comp_sync;
+DROP INDEX IF EXISTS idx_scores_comp_match_id;
+ALTER TABLE scores ADD COLUMN competitionId INT;
+UPDATE scores s SET competitionId = (SELECT c.id FROM competitions c WHERE c.name = s.competitionName);
+ALTER TABLE scores DROP COLUMN competitionName;
+CREATE INDEX idx_scores_comp_match_alliance ON scores(competitionId, matchNumber, alliance);
+CREATE INDEX idx_scores_comp_sync ON scores(competitionId, syncStatus);
+CREATE INDEX idx_scores_comp_match_id ON scores(competitionId, matchNumber DESC, id DESC);
+-- H2 的外键只复用列完全相同的索引，这里会另建一个 competitionId 单列索引，按赛事有序读取的查询需用 USE INDEX 指定
+ALTER TABLE scores ADD CONSTRAINT fk_scores_competition FOREIGN KEY (competitionId) REFERENCES competitions(id) ON DELETE CASCADE;
+
+-- penalties
+ALTER TABLE penalties DROP PRIMARY KEY;
+ALTER TABLE penalties ADD COLUMN competitionId INT;
+UPDATE penalties p SET competitionId = (SELECT c.id FROM competitions c WHERE c.name = p.competitionName);
+DELETE FROM penalties WHERE competitionId IS NULL;
+ALTER TABLE penalties DROP COLUMN competitionName;
+ALTER TABLE penalties ALTER COLUMN competitionId SET NOT NULL;
+ALTER TABLE penalties ADD PRIMARY KEY (competitionId, matchNumber);
+ALTER TABLE penalties ADD CONSTRAINT fk_penalties_competition FOREIGN KEY (competitionId) REFERENCES competitions(id) ON DELETE CASCADE;
+
+-- memberships：主键以赛事在前，按赛事列出成员与外键检查都走主键
+ALTER TABLE memberships DROP PRIMARY KEY;
+ALTER TABLE memberships ADD COLUMN competitionId INT;
+UPDATE memberships m SET competitionId = (SELECT c.id FROM competitions c WHERE c.name = m.competitionName);
+DELETE FROM memberships WHERE competitionId IS NULL;
+ALTER TABLE memberships DROP COLUMN competitionName;
+ALTER TABLE memberships ALTER COLUMN competitionId SET NOT NULL;
+ALTER TABLE memberships ADD PRIMARY KEY (competitionId, username);
+ALTER TABLE memberships ADD CONSTRAINT fk_memberships_competition FOREIGN KEY (competitionId) REFERENCES competitions(id) ON DELETE CASCADE;
+
+-- team_rankings
+ALTER TABLE team_rankings DROP PRIMARY KEY;
+ALTER TABLE team_rankings ADD COLUMN competitionId INT;
+UPDATE team_rankings r SET competitionId = (SELECT c.id FROM competitions c WHERE c.name = r.competitionName);
+ALTER TABLE team_rankings DROP COLUMN competitionName;
+ALTER TABLE team_rankings ALTER COLUMN competitionId SET NOT NULL;
+ALTER TABLE team_rankings ADD PRIMARY KEY (competitionId, teamNumber);
+ALTER TABLE team_rankings ADD CONSTRAINT fk_team_rankings_competition FOREIGN KEY (competitionId) REFERENCES competitions(id) ON DELETE CASCADE;
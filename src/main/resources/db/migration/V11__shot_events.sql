@@ -0,0 +1,31 @@
+-- 投射点逐行展开：clickLocations 仍是写入与同步时的原始格式，这张表由写入路径在同一事务内派生，
+-- 命中率与近 / 远端分区统计可以直接在库内聚合，不必把整个赛事的坐标串读出来逐条解码
+-- slot 为点在成绩内的队伍序号（1 = team1，2 = team2），team 为对应的实际队号；历史数据由 V12 回填
+CREATE TABLE IF NOT EXISTS shot_events (
+                                           score_id INT NOT NULL,
+                                           team INT,
+                                           slot TINYINT NOT NULL,
+                                           x REAL NOT NULL,
+                                           y REAL NOT NULL,
+                                           hit BOOLEAN NOT NULL,
+                                           ts BIGINT NOT NULL
+);
+-- 先建与外键列完全相同的索引，H2 加外键时会直接复用它，不再另建一个
+CREATE INDEX IF NOT EXISTS idx_shot_events_score ON shot_events(score_id);
+ALTER TABLE shot_events ADD CONSTRAINT fk_shot_events_score FOREIGN KEY (score_id) REFERENCES scores(id) ON DELETE CASCADE;
+-- 按队号聚合 / 取点
+CREATE INDEX IF NOT EXISTS idx_shot_events_team ON shot_events(team, score_id);
+
+-- 每条成绩每个队伍序号的近 / 远端出手与命中数，写入成绩时从 shot_events 聚合一次。
+-- H2 的 GROUP BY 每行约 1~2 µs，整个赛事的投射点现聚合比读出坐标串在内存里解码还慢；
+-- 按成绩预聚合后，全赛事统计只需读出每条成绩至多两行
+CREATE TABLE IF NOT EXISTS shot_zone_counts (
+                                                score_id INT NOT NULL,
+                                                slot TINYINT NOT NULL,
+                                                nearShots INT NOT NULL,
+                                                nearHits INT NOT NULL,
+                                                farShots INT NOT NULL,
+                                                farHits INT NOT NULL,
+                                                PRIMARY KEY(score_id, slot),
+                                                FOREIGN KEY(score_id) REFERENCES scores(id) ON DELETE CASCADE
+);
@@ -0,0 +1,23 @@
+-- 每个赛事每支队伍的投射点空间计数：场地切成 65×65 个 10 像素格子，cell = row * 65 + col，场地外的点归入边缘格。
+-- 与热力图的取点规则一致：不含该队标记为故障的场次；单人模式下 slot 2 的点不算（team1 = team2 时除外）。
+-- 写入 / 修改 / 删除成绩时由 ScoreDao 在同一事务内增减，热力图与分区统计直接读格子，不随场次数增长。
+-- 增减到 0 的格子保留不删，行数以 队伍数 × 4225 为上限
+CREATE TABLE IF NOT EXISTS shot_grid (
+                                         competitionId INT NOT NULL,
+                                         team INT NOT NULL,
+                                         cell SMALLINT NOT NULL,
+                                         shots INT NOT NULL,
+                                         hits INT NOT NULL,
+                                         PRIMARY KEY(competitionId, team, cell),
+                                         FOREIGN KEY(competitionId) REFERENCES competitions(id) ON DELETE CASCADE
+);
+
+INSERT INTO shot_grid(competitionId, team, cell, shots, hits)
+SELECT s.competitionId, e.team,
+       LEAST(64, GREATEST(0, CAST(FLOOR(e.y / 10.0) AS INT))) * 65 + LEAST(64, GREATEST(0, CAST(FLOOR(e.x / 10.0) AS INT))) AS cell,
+       COUNT(*), COUNT(*) FILTER (WHERE e.hit)
+FROM shot_events e JOIN scores s ON s.id = e.score_id
+WHERE e.team IS NOT NULL
+  AND (e.slot = 1 OR s.scoreType = 'ALLIANCE' OR s.team2 = s.team1)
+  AND NOT ((s.team1 = e.team AND s.team1Broken) IS TRUE OR (s.team2 = e.team AND s.team2Broken) IS TRUE)
+GROUP BY s.competitionId, e.team, cell;
@@ -0,0 +1,3 @@
+-- 单场总贡献改按得分统计、直方图改为按需扩容，旧的物化排名作废，下次读取时重新计算
+DELETE FROM team_rankings;
+UPDATE competitions SET rankedVersion = -1;
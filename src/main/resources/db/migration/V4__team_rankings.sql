@@ -0,0 +1,13 @@
+-- 赛事数据版本号：每次成绩 / 判罚 / 公式 / 黑名单的写入都会 +1
+ALTER TABLE competitions ADD COLUMN dataVersion BIGINT DEFAULT 0 NOT NULL;
+-- team_rankings 中现存排名所对应的版本，-1 表示尚未物化
+ALTER TABLE competitions ADD COLUMN rankedVersion BIGINT DEFAULT -1 NOT NULL;
+
+CREATE TABLE IF NOT EXISTS team_rankings (
+                                             competitionName VARCHAR(255) NOT NULL,
+                                             teamNumber INT NOT NULL,
+                                             rating DOUBLE DEFAULT 0,
+                                             matchesPlayed INT DEFAULT 0,
+                                             payload CLOB,
+                                             PRIMARY KEY(competitionName, teamNumber)
+);
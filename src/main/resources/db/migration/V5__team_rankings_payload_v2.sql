@@ -0,0 +1,3 @@
+-- TeamRanking 的近期评分改为定长环形缓冲区并新增 Welford 累加量，旧格式的物化排名作废，下次读取时重新计算
+DELETE FROM team_rankings;
+UPDATE competitions SET rankedVersion = -1;
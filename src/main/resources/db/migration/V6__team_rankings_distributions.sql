@@ -0,0 +1,3 @@
+-- TeamRanking 新增单场贡献分布统计，旧格式的物化排名作废，下次读取时重新计算
+DELETE FROM team_rankings;
+UPDATE competitions SET rankedVersion = -1;
@@ -0,0 +1,2 @@
+-- 衰减评分的半衰期（单位：场），0 表示关闭，沿用全场平均
+ALTER TABLE competitions ADD COLUMN ratingHalfLife DOUBLE DEFAULT 0 NOT NULL;
@@ -0,0 +1,20 @@
+-- 赛事内按场次 / 联盟查找（含 ORDER BY matchNumber 的全赛事读取与同步时的 UPSERT 匹配）
+CREATE INDEX IF NOT EXISTS idx_scores_comp_match_alliance ON scores(competitionName, matchNumber, alliance);
+-- 待导出 / 待同步数据
+CREATE INDEX IF NOT EXISTS idx_scores_comp_sync ON scores(competitionName, syncStatus);
+
+-- 队伍出场表：每条成绩对应 1~2 行，按队号查找时走索引范围扫描，不再对 team1 / team2 做 OR 全表扫描
+-- slot 1 = team1；slot 2 = team2，仅联盟模式下且与 team1 不同时计入（与原 findByTeam 语义一致，且不会重复返回同一行）
+CREATE TABLE IF NOT EXISTS score_teams (
+                                           score_id INT NOT NULL,
+                                           team INT NOT NULL,
+                                           slot TINYINT NOT NULL,
+                                           PRIMARY KEY(score_id, slot),
+                                           FOREIGN KEY(score_id) REFERENCES scores(id) ON DELETE CASCADE
+);
+CREATE INDEX IF NOT EXISTS idx_score_teams_team ON score_teams(team, score_id);
+
+INSERT INTO score_teams(score_id, team, slot)
+SELECT id, team1, 1 FROM scores WHERE team1 IS NOT NULL
+UNION ALL
+SELECT id, team2, 2 FROM scores WHERE scoreType = 'ALLIANCE' AND team2 IS NOT NULL AND team2 <> team1;
@@ -0,0 +1,3 @@
+-- 全赛事按 (matchNumber DESC, id DESC) 读取与键集分页：索引顺序即输出顺序，游标读取不必先整体排序
+-- H2 不会反向扫描升序索引，因此两列直接建成降序
+CREATE INDEX IF NOT EXISTS idx_scores_comp_match_id ON scores(competitionName, matchNumber DESC, id DESC);
@@ -9,6 +9,7 @@ import com.bear27570.ftc.scouting.repository.impl.*;
 import com.bear27570.ftc.scouting.services.NetworkService;
 import com.bear27570.ftc.scouting.services.domain.MatchDataService;
 import com.bear27570.ftc.scouting.services.domain.RankingService;
+import com.bear27570.ftc.scouting.services.domain.ShotEventCache;
 import com.bear27570.ftc.scouting.services.domain.impl.MatchDataServiceImpl;
 import com.bear27570.ftc.scouting.services.network.DefaultNetworkDataHandler;
 import com.bear27570.ftc.scouting.services.network.NetworkDataHandler;
@@ -86,7 +87,11 @@ public class ManualNetworkTest extends Application {
             PenaltyRepository penaltyRepo = new PenaltyRepositoryJdbiImpl();
 
             matchDataService = new MatchDataServiceImpl(scoreRepo, penaltyRepo);
-            RankingService rankingService = new RankingService(scoreRepo, penaltyRepo, compRepo);
+            ShotEventCache shotEventCache = new ShotEventCache();
+            RankingService rankingService = new RankingService(scoreRepo, penaltyRepo, compRepo,
+                    new CompetitionDataRepositoryJdbiImpl(), new TeamRankingRepositoryJdbiImpl(), shotEventCache);
+            matchDataService.addDataChangeListener(shotEventCache);
+            matchDataService.addDataChangeListener(rankingService);
 
             // 组装真实的 NetworkDataHandler
             NetworkDataHandler realHandler = new DefaultNetworkDataHandler(membershipRepository, userRepo, matchDataService, rankingService);
@@ -124,8 +129,9 @@ public class ManualNetworkTest extends Application {
                 // 触发全局广播
                 networkService.broadcastUpdateToClients(new NetworkPacket(
                         matchDataService.getHistory(competitionName),
-                        null, "FTC Asia Pacific 2026"
+                        null, "FTC Asia Pacific 2026", ""
                 ));
+                return true;
             });
 
             // 监听加入请求
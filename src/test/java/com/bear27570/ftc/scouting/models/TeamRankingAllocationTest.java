@@ -0,0 +1,91 @@
+package com.bear27570.ftc.scouting.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 排名累加器的分配 / 吞吐基准：累加、回退与表格读取在预热之后不应分配任何对象。
+ * 以旧实现的 LinkedList&lt;Double&gt; 近期窗口作对照，结果打印到标准输出。
+ * 依赖 HotSpot 的线程分配计数，其他 JVM 上跳过。
+ */
+class TeamRankingAllocationTest {
+
+    private static final int OPS = 200_000;
+    private static final int ROUNDS = 5;
+    // 结果写到这里，防止 JIT 把被测循环整体消除
+    private static volatile double blackhole;
+
+    private static com.sun.management.ThreadMXBean threads() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean)) return null;
+        if (!bean.isThreadAllocatedMemorySupported()) return null;
+        bean.setThreadAllocatedMemoryEnabled(true);
+        return bean;
+    }
+
+    // 与引擎的用法一致：逐场累加，再按相同参数回退一半
+    private static double accumulate(TeamRanking ranking, int ops) {
+        double sink = 0;
+        for (int i = 0; i < ops; i++) {
+            int auto = i % 7;
+            int teleop = 10 + i % 23;
+            double rating = auto + teleop * 3 + (i % 5 == 0 ? 10 : 0);
+            ranking.addMatchResult(auto, teleop, i % 5 == 0, i % 3 == 0, teleop, teleop + 4, i % 2, i % 4, 1.0, rating);
+            if ((i & 1) == 1) {
+                ranking.removeMatchResult(auto, teleop, i % 5 == 0, i % 3 == 0, teleop, teleop + 4, i % 2, i % 4, 1.0, rating);
+            }
+            // 表格单元格与 CSV 导出读取的原始数值
+            sink += ranking.getRating() + ranking.getAccuracy() + ranking.getMomentum() + ranking.getRatingStdDev()
+                    + ranking.getWindowRating() + ranking.getAvgTeleopArtifacts() + ranking.getTotalStats().getMean();
+        }
+        return sink;
+    }
+
+    // 旧实现的近期评分窗口：每场一个装箱的 Double 和一个链表节点
+    private static double accumulateLegacyWindow(LinkedList<Double> recent, int ops) {
+        double sink = 0;
+        for (int i = 0; i < ops; i++) {
+            recent.add(10.0 + i % 97 * 0.5);
+            if (recent.size() > TeamRanking.RECENT_WINDOW) recent.removeFirst();
+            for (double r : recent) sink += r;
+        }
+        return sink;
+    }
+
+    @Test
+    void accumulatorDoesNotAllocateAfterWarmUp() {
+        com.sun.management.ThreadMXBean bean = threads();
+        assumeTrue(bean != null, "thread allocation counting not supported");
+        long thread = Thread.currentThread().getId();
+
+        TeamRanking ranking = new TeamRanking(27570);
+        LinkedList<Double> legacy = new LinkedList<>();
+        double sink = 0;
+        // 预热：让 JIT 编译热点，直方图也扩到最终大小
+        for (int r = 0; r < ROUNDS; r++) {
+            sink += accumulate(ranking, OPS);
+            sink += accumulateLegacyWindow(legacy, OPS);
+        }
+
+        long before = bean.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        sink += accumulate(ranking, OPS);
+        long elapsed = System.nanoTime() - start;
+        long allocated = bean.getThreadAllocatedBytes(thread) - before;
+
+        before = bean.getThreadAllocatedBytes(thread);
+        sink += accumulateLegacyWindow(legacy, OPS);
+        long legacyAllocated = bean.getThreadAllocatedBytes(thread) - before;
+
+        System.out.printf("TeamRanking: %.1f ns/op, %.3f B/op (legacy LinkedList window: %.1f B/op)%n",
+                (double) elapsed / OPS, (double) allocated / OPS, (double) legacyAllocated / OPS);
+        blackhole = sink;
+        // 计数本身以及偶发的 TLAB 记账会有几 KB 的误差，远小于每次操作分配一个对象（≥ 16 B/op）
+        assertTrue(allocated < 64 * 1024, () -> "TeamRanking allocated " + allocated + " bytes for " + OPS + " ops");
+        assertTrue(legacyAllocated > allocated, "reference implementation should allocate");
+    }
+}
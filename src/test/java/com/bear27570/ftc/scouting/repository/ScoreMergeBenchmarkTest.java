@@ -0,0 +1,118 @@
+package com.bear27570.ftc.scouting.repository;
+
+import com.bear27570.ftc.scouting.models.ScoreEntry;
+import com.bear27570.ftc.scouting.repository.impl.CompetitionRepositoryJdbiImpl;
+import com.bear27570.ftc.scouting.repository.impl.ScoreRepositoryJdbiImpl;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 主机数据同步 (mergeSubmissions) 的耗时基准：文件库中 1 万行主机数据，
+ * 分别测量首次全量写入、无变化的稳态同步和 100 行被修改后的再同步，结果打印到标准输出。
+ * 稳态同步只应读一次本地数据、不写任何行，上限按逐行回查的旧实现远远超出的量级设定。
+ */
+class ScoreMergeBenchmarkTest {
+
+    private static final String COMPETITION = "Merge Bench";
+    private static final int HOST_ROWS = 10_000;
+    private static final int EDITED = 100;
+    private static final int ROUNDS = 5;
+
+    @TempDir
+    static Path dir;
+
+    private static ScoreRepository scores;
+
+    @BeforeAll
+    static void initDatabase() {
+        DatabaseManager.initialize("jdbc:h2:" + dir.resolve("bench").toAbsolutePath());
+        assertTrue(new CompetitionRepositoryJdbiImpl().create(COMPETITION, "bench", null));
+        scores = new ScoreRepositoryJdbiImpl();
+    }
+
+    // 主机端的一份完整历史：每场红蓝两条联盟成绩，teleop 可整体偏移以模拟主机修改
+    private static List<ScoreEntry> hostData(int editedTeleop) {
+        List<ScoreEntry> rows = new ArrayList<>(HOST_ROWS);
+        for (int i = 0; i < HOST_ROWS; i++) {
+            int match = i / 2 + 1;
+            int teleop = 10 + i % 30 + (i < EDITED ? editedTeleop : 0);
+            rows.add(new ScoreEntry(0, ScoreEntry.Type.ALLIANCE, match, i % 2 == 0 ? "RED" : "BLUE",
+                    1000 + i % 500, 2000 + i % 700, i % 7, i % 5, "", "", "", "", teleop,
+                    true, false, i % 3 == 0, false, false, false, false, false,
+                    "", "scout" + i % 6, "2025-03-01 10:00:00", ScoreEntry.SyncStatus.SYNCED));
+        }
+        return rows;
+    }
+
+    private static long timeMillis(Runnable action) {
+        long start = System.nanoTime();
+        action.run();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static long bestOf(Supplier<List<ScoreEntry>> data, int expectedWrites) {
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < ROUNDS; r++) {
+            List<ScoreEntry> rows = data.get();
+            long[] written = new long[1];
+            best = Math.min(best, timeMillis(() -> written[0] = scores.mergeSubmissions(COMPETITION, rows).size()));
+            assertEquals(expectedWrites, written[0]);
+        }
+        return best;
+    }
+
+    @Test
+    void mergeWritesOnlyChangedRowsAndStaysFast() {
+        List<ScoreEntry> initial = hostData(0);
+        long firstSync = timeMillis(() -> assertEquals(HOST_ROWS, scores.mergeSubmissions(COMPETITION, initial).size()));
+
+        long steady = bestOf(() -> hostData(0), 0);
+
+        // 交替提交两个版本，每轮都恰好有 EDITED 行内容变化
+        int[] round = {0};
+        long edited = bestOf(() -> hostData(++round[0] % 2 == 1 ? 50 : 0), EDITED);
+
+        System.out.printf("mergeSubmissions, %d host rows: first sync %d ms, steady-state %d ms, %d edited rows %d ms%n",
+                HOST_ROWS, firstSync, steady, EDITED, edited);
+
+        // 修改是原地覆盖，不产生重复行
+        List<ScoreEntry> stored = scores.findByCompetition(COMPETITION);
+        assertEquals(HOST_ROWS, stored.size());
+        assertTrue(stored.stream().allMatch(s -> s.getSyncStatus() == ScoreEntry.SyncStatus.SYNCED));
+        assertTrue(steady < 2_000, () -> "steady-state sync took " + steady + " ms");
+        assertTrue(edited < 5_000, () -> "sync with " + EDITED + " edited rows took " + edited + " ms");
+    }
+
+    @Test
+    void pendingLocalRowKnownToHostIsSyncedInPlace() {
+        String competition = "Merge Pending";
+        assertTrue(new CompetitionRepositoryJdbiImpl().create(competition, "bench", null));
+        ScoreEntry local = hostData(0).get(0);
+        local.setSyncStatus(ScoreEntry.SyncStatus.UNSYNCED);
+        scores.save(competition, local);
+        assertTrue(local.getId() > 0);
+
+        ScoreEntry host = hostData(0).get(0);
+        ScoreEntry pendingOnly = hostData(0).get(1);
+        pendingOnly.setSyncStatus(ScoreEntry.SyncStatus.UNSYNCED);
+        scores.save(competition, pendingOnly);
+
+        assertEquals(1, scores.mergeSubmissions(competition, List.of(host)).size());
+
+        List<ScoreEntry> stored = scores.findByCompetition(competition);
+        assertEquals(2, stored.size());
+        ScoreEntry synced = stored.stream().filter(s -> s.getId() == local.getId()).findFirst().orElseThrow();
+        assertEquals(ScoreEntry.SyncStatus.SYNCED, synced.getSyncStatus());
+        // 主机没有的待同步记录保持原样，稍后继续上传
+        ScoreEntry untouched = stored.stream().filter(s -> s.getId() == pendingOnly.getId()).findFirst().orElseThrow();
+        assertEquals(ScoreEntry.SyncStatus.UNSYNCED, untouched.getSyncStatus());
+    }
+}
@@ -0,0 +1,101 @@
+package com.bear27570.ftc.scouting.repository;
+
+import com.bear27570.ftc.scouting.repository.dao.ScoreDao;
+import org.flywaydb.core.Flyway;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 查询计划回归测试：在约 50 万行的合成数据上确认成绩查询仍走索引，而不是退化成全表扫描。
+ * 表结构由真实的 Flyway 迁移建立，被检查的 SQL 直接取自 ScoreDao 的注解。
+ */
+class ScoreQueryPlanTest {
+
+    private static final String URL = "jdbc:h2:mem:score_query_plan;DB_CLOSE_DELAY=-1";
+    private static final int COMPETITIONS = 20;
+    private static final int SCORES = 500_000;
+
+    private static Connection connection;
+
+    @BeforeAll
+    static void createDataset() throws SQLException {
+        Flyway.configure().dataSource(URL, "sa", "").locations("classpath:db/migration").load().migrate();
+        connection = DriverManager.getConnection(URL, "sa", "");
+        try (Statement st = connection.createStatement()) {
+            st.execute("INSERT INTO competitions(name, creatorUsername) SELECT 'Comp ' || X, 'bench' FROM SYSTEM_RANGE(1, " + COMPETITIONS + ")");
+            // 每个赛事 25000 行，约 3000 场，队伍号在 10000 支队伍里分布
+            st.execute("INSERT INTO scores(competitionId, scoreType, matchNumber, alliance, team1, team2, teleopArtifacts, syncStatus) " +
+                    "SELECT c.id, 'ALLIANCE', X / (" + COMPETITIONS + " * 8) + 1, CASEWHEN(MOD(X, 2) = 0, 'RED', 'BLUE'), " +
+                    "MOD(X * 7919, 10000) + 1, MOD(X * 104729, 10000) + 1, MOD(X, 40), CASEWHEN(MOD(X, 50) = 0, 'UNSYNCED', 'SYNCED') " +
+                    "FROM SYSTEM_RANGE(0, " + (SCORES - 1) + ") JOIN competitions c ON c.name = 'Comp ' || (MOD(X, " + COMPETITIONS + ") + 1)");
+            st.execute("INSERT INTO score_teams(score_id, team, slot) " +
+                    "SELECT id, team1, 1 FROM scores UNION ALL SELECT id, team2, 2 FROM scores WHERE team2 <> team1");
+            st.execute("ANALYZE");
+        }
+    }
+
+    @AfterAll
+    static void dropDataset() throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    private static String daoSql(String method, Class<?>... parameterTypes) throws NoSuchMethodException {
+        return ScoreDao.class.getMethod(method, parameterTypes).getAnnotation(SqlQuery.class).value();
+    }
+
+    private static String explain(String sql, Map<String, Object> params) throws SQLException {
+        for (Map.Entry<String, Object> p : params.entrySet()) {
+            sql = sql.replace(":" + p.getKey(), String.valueOf(p.getValue()));
+        }
+        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery("EXPLAIN " + sql)) {
+            assertTrue(rs.next());
+            return rs.getString(1).toUpperCase();
+        }
+    }
+
+    @Test
+    void datasetIsLargeEnough() throws SQLException {
+        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM scores")) {
+            assertTrue(rs.next());
+            assertEquals(SCORES, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void findByTeamUsesTeamParticipationIndex() throws Exception {
+        String plan = explain(daoSql("findByTeam", int.class, int.class), Map.of("compId", 3, "teamNum", 4242));
+        assertTrue(plan.contains("IDX_SCORE_TEAMS_TEAM"), plan);
+        assertFalse(plan.contains("TABLESCAN"), plan);
+    }
+
+    @Test
+    void findPageAfterUsesKeysetIndex() throws Exception {
+        String plan = explain(daoSql("findPageAfter", int.class, int.class, int.class, int.class),
+                Map.of("compId", 3, "afterMatch", 1500, "afterId", 250_000, "limit", 200));
+        assertTrue(plan.contains("IDX_SCORES_COMP_MATCH_ID"), plan);
+        assertFalse(plan.contains("TABLESCAN"), plan);
+        // 索引顺序与 ORDER BY 一致，不需要额外排序
+        assertTrue(plan.contains("INDEX SORTED"), plan);
+    }
+
+    @Test
+    void findPendingExportsUsesSyncIndex() throws Exception {
+        String plan = explain(daoSql("findPendingExports", int.class), Map.of("compId", 3));
+        assertTrue(plan.contains("IDX_SCORES_COMP_SYNC"), plan);
+        assertFalse(plan.contains("TABLESCAN"), plan);
+    }
+}
@@ -0,0 +1,177 @@
+package com.bear27570.ftc.scouting.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 提交日志的崩溃恢复（残缺 / CRC 损坏的尾部）与检查点、旧段回收。
+ */
+class SubmissionJournalTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+    // 与 SubmissionJournal 的磁盘格式一致：段头 16 字节，记录 = 长度(4) + CRC(4) + 序号(8) + 类型(1) + 载荷
+    private static final int SEGMENT_HEADER = 16;
+    private static final int PAYLOAD = 10;
+    private static final int RECORD = 8 + 8 + 1 + PAYLOAD;
+
+    @TempDir
+    Path dir;
+
+    private static byte[] payload(long sequence) {
+        return String.format("%010d", sequence).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void appendAll(SubmissionJournal journal, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            long expected = journal.getLastSequence() + 1;
+            assertEquals(expected, journal.append(SubmissionJournal.RecordType.SCORE_SAVED, payload(expected)));
+        }
+    }
+
+    private static void assertRecords(SubmissionJournal journal, long from, long to) {
+        List<SubmissionJournal.Record> records = journal.read(from, Integer.MAX_VALUE);
+        assertEquals(to - from + 1, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(from + i, records.get(i).sequence());
+            assertArrayEquals(payload(from + i), records.get(i).payload());
+        }
+    }
+
+    private Path firstSegment() {
+        return dir.resolve(String.format("%020d.journal", 1));
+    }
+
+    private static void overwrite(Path file, long position, ByteBuffer bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(bytes, position);
+        }
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(".journal")).count();
+        }
+    }
+
+    @Test
+    void reopenKeepsAllCompleteRecords() throws IOException {
+        try (SubmissionJournal journal = new SubmissionJournal(dir, SEGMENT_SIZE)) {
+            appendAll(journal, 500); // 跨越多个段
+        }
+        try (SubmissionJournal journal = new SubmissionJournal(dir, SEGMENT_SIZE)) {
+            assertEquals(500, journal.getLastSequence());
+            assertRecords(journal, 1, 500);
+            assertRecords(journal, 321, 500);
+            assertEquals(501, journal.append(SubmissionJournal.RecordType.PENALTY_SAVED, payload(501)));
+        }
+    }
+
+    @Test
+    void crcCorruptedTailIsDropped() throws IOException {
+        try (SubmissionJournal journal = new SubmissionJournal(dir, SEGMENT_SIZE)) {
+            appendAll(journal, 3);
+        }
+        // 第 3 条记录的载荷被破坏，CRC 对不上
+        overwrite(firstSegment(), SEGMENT_HEADER + 2L * RECORD + 17, ByteBuffer.wrap(new byte[]{'X'}));
+
+        try (SubmissionJournal journal = new SubmissionJournal(dir, SEGMENT_SIZE)) {
+            assertEquals(2, journal.getLastSequence());
+            assertRecords(journal, 1, 2);
+            // 序号 3 被重新分配，残留字节已清零，不会与新记录拼在一起
+            assertEquals(3, journal.append(SubmissionJournal.RecordType.SCORE_SAVED, payload(3)));
+        }
+        try (SubmissionJournal journal = new SubmissionJournal(dir, SEGMENT_SIZE)) {
+            assertRecords(journal, 1, 3);
+        }
+    }
+
+    @Test
+    void tornTailIsTruncated() throws IOException {
+        try (SubmissionJournal journal = new SubmissionJournal(dir, SEGMENT_SIZE)) {
+            appendAll(journal, 3);
+        }
+        // 模拟第 4 条记录只写下了长度和一半的正文就断电
+        ByteBuffer torn = ByteBuffer.allocate(12);
+        torn.putInt(0, 8 + 1 + PAYLOAD).putInt(4, 0x12345678).putInt(8, 0);
+        overwrite(firstSegment(), SEGMENT_HEADER + 3L * RECORD, torn);
+
+        try (SubmissionJournal journal = new SubmissionJournal(dir, SEGMENT_SIZE)) {
+            assertEquals(3, journal.getLastSequence());
+            assertRecords(journal, 1, 3);
+            appendAll(journal, 2);
+        }
+        try (SubmissionJournal journal = new SubmissionJournal(dir, SEGMENT_SIZE)) {
+            assertEquals(5, journal.getLastSequence());
+            assertRecords(journal, 1, 5);
+        }
+    }
+
+    @Test
+    void checkpointStopsAtFirstUnappliedRecordAndDropsOldSegments() throws IOException {
+        long segmentsBefore;
+        try (SubmissionJournal journal = new SubmissionJournal(dir, SEGMENT_SIZE)) {
+            appendAll(journal, 1000);
+            segmentsBefore = segmentFiles();
+            for (long seq = 1; seq <= 1000; seq++) {
+                if (seq != 701) journal.applied(seq); // 701 写库失败，一直未确认
+            }
+            journal.checkpoint();
+            assertEquals(700, journal.getCheckpoint());
+            assertTrue(journal.getFirstSequence() > 1);
+            assertTrue(journal.getFirstSequence() <= 701);
+        }
+        assertTrue(segmentFiles() < segmentsBefore);
+
+        try (SubmissionJournal journal = new SubmissionJournal(dir, SEGMENT_SIZE)) {
+            assertEquals(700, journal.getCheckpoint());
+            assertEquals(1000, journal.getLastSequence());
+            // 重启后从检查点之后回放，未确认的 701 仍在
+            assertRecords(journal, journal.getCheckpoint() + 1, 1000);
+        }
+    }
+
+    @Test
+    void fullCheckpointSurvivesReopen() throws IOException {
+        try (SubmissionJournal journal = new SubmissionJournal(dir, SEGMENT_SIZE)) {
+            appendAll(journal, 1000);
+            for (long seq = 1; seq <= 1000; seq++) journal.applied(seq);
+            // 每确认 256 条自动推进一次
+            assertEquals(768, journal.getCheckpoint());
+            journal.checkpoint();
+            assertEquals(1000, journal.getCheckpoint());
+        }
+        assertTrue(segmentFiles() <= 2);
+
+        try (SubmissionJournal journal = new SubmissionJournal(dir, SEGMENT_SIZE)) {
+            assertEquals(1000, journal.getCheckpoint());
+            assertEquals(1000, journal.getLastSequence());
+            assertTrue(journal.read(journal.getCheckpoint() + 1, Integer.MAX_VALUE).isEmpty());
+            assertEquals(1001, journal.append(SubmissionJournal.RecordType.SCORE_SAVED, payload(1001)));
+        }
+    }
+
+    @Test
+    void secondInstanceCannotOpenTheSameDirectory() throws IOException {
+        try (SubmissionJournal journal = new SubmissionJournal(dir, SEGMENT_SIZE)) {
+            appendAll(journal, 3);
+            assertThrows(IOException.class, () -> new SubmissionJournal(dir, SEGMENT_SIZE));
+            // 被拒绝的实例不能动已有的段
+            appendAll(journal, 1);
+        }
+        try (SubmissionJournal journal = new SubmissionJournal(dir, SEGMENT_SIZE)) {
+            assertRecords(journal, 1, 4);
+        }
+    }
+}
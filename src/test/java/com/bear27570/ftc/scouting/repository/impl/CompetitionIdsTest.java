@@ -0,0 +1,75 @@
+package com.bear27570.ftc.scouting.repository.impl;
+
+import com.bear27570.ftc.scouting.repository.dao.MembershipDao;
+import org.flywaydb.core.Flyway;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 赛事 id 缓存按数据库隔离；被其他进程删除重建后的过期 id 在写事务回滚时移除。
+ */
+class CompetitionIdsTest {
+
+    private static Jdbi database() {
+        String url = "jdbc:h2:mem:competition_ids_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        Flyway.configure().dataSource(url, "sa", "").locations("classpath:db/migration").load().migrate();
+        Jdbi jdbi = Jdbi.create(url, "sa", "");
+        jdbi.installPlugin(new SqlObjectPlugin());
+        return jdbi;
+    }
+
+    private static void createCompetition(Jdbi jdbi, String name) {
+        jdbi.useHandle(h -> h.execute("INSERT INTO competitions(name, creatorUsername) VALUES (?, 'host')", name));
+    }
+
+    private static int resolve(Jdbi jdbi, String name) {
+        return jdbi.withHandle(h -> CompetitionIds.resolve(h, name));
+    }
+
+    @Test
+    void eachDatabaseHasItsOwnIds() {
+        Jdbi first = database();
+        Jdbi second = database();
+        createCompetition(first, "Cup");
+        createCompetition(second, "Other");
+        createCompetition(second, "Cup");
+
+        assertEquals(1, resolve(first, "Cup"));
+        assertEquals(2, resolve(second, "Cup"));
+        assertEquals(CompetitionIds.MISSING, resolve(first, "Other"));
+    }
+
+    @Test
+    void staleIdIsDroppedWhenItsWriteRollsBack() {
+        Jdbi jdbi = database();
+        createCompetition(jdbi, "Cup");
+        int cached = resolve(jdbi, "Cup");
+
+        // 另一个进程删除并重建了同名赛事，缓存里仍是旧 id
+        jdbi.useHandle(h -> h.execute("DELETE FROM competitions WHERE name = 'Cup'"));
+        createCompetition(jdbi, "Cup");
+        assertEquals(cached, resolve(jdbi, "Cup"));
+
+        assertThrows(Exception.class, () -> jdbi.useTransaction(h ->
+                h.attach(MembershipDao.class).insert("scout", CompetitionIds.resolve(h, "Cup"), "PENDING")));
+
+        int fresh = resolve(jdbi, "Cup");
+        assertNotEquals(cached, fresh);
+        jdbi.useTransaction(h -> h.attach(MembershipDao.class).insert("scout", CompetitionIds.resolve(h, "Cup"), "PENDING"));
+    }
+
+    @Test
+    void evictForgetsDeletedCompetition() {
+        Jdbi jdbi = database();
+        createCompetition(jdbi, "Cup");
+        assertEquals(1, resolve(jdbi, "Cup"));
+        jdbi.useHandle(h -> h.execute("DELETE FROM competitions WHERE name = 'Cup'"));
+        CompetitionIds.evict(jdbi, "Cup");
+        assertEquals(CompetitionIds.MISSING, resolve(jdbi, "Cup"));
+    }
+}
@@ -0,0 +1,76 @@
+package com.bear27570.ftc.scouting.services.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OPR / DPR 共轭梯度解与手算结果对比。岭正则 λ = 1e-3 带来的偏差远小于容差。
+ */
+class OprModelTest {
+
+    private static final double EPS = 0.05;
+
+    @Test
+    void solvesExactlyDeterminedSystem() {
+        // A + B = 30, B + C = 50, A + C = 40  =>  A = 10, B = 20, C = 30
+        // 对方得分 20, 10, 30                  =>  DPR A = 20, B = 0, C = 10
+        OprModel model = new OprModel();
+        model.put("1_RED", new int[]{101, 102}, 30, 20);
+        model.put("2_RED", new int[]{102, 103}, 50, 10);
+        model.put("3_RED", new int[]{101, 103}, 40, 30);
+
+        assertEquals(10, model.opr(101), EPS);
+        assertEquals(20, model.opr(102), EPS);
+        assertEquals(30, model.opr(103), EPS);
+        assertEquals(20, model.dpr(101), EPS);
+        assertEquals(0, model.dpr(102), EPS);
+        assertEquals(10, model.dpr(103), EPS);
+        assertEquals(0, model.opr(999));
+    }
+
+    @Test
+    void rankDeficientSystemConvergesToMinimumNormSolution() {
+        // x1 + x2 = 10, x3 + x4 = 20, x1 + x3 = 15, x2 + x4 = 15 只确定了一维子空间：
+        // 通解 (a, 10 − a, 15 − a, 5 + a)，范数最小时 a = 5
+        OprModel model = new OprModel();
+        model.put("1_RED", new int[]{1, 2}, 10, 0);
+        model.put("1_BLUE", new int[]{3, 4}, 20, 0);
+        model.put("2_RED", new int[]{1, 3}, 15, 0);
+        model.put("2_BLUE", new int[]{2, 4}, 15, 0);
+
+        assertEquals(5, model.opr(1), EPS);
+        assertEquals(5, model.opr(2), EPS);
+        assertEquals(10, model.opr(3), EPS);
+        assertEquals(10, model.opr(4), EPS);
+    }
+
+    @Test
+    void incrementalUpdatesMatchFreshSolve() {
+        OprModel model = new OprModel();
+        model.put("1_RED", new int[]{101, 102}, 30, 20);
+        model.put("2_RED", new int[]{102, 103}, 50, 10);
+        model.put("3_RED", new int[]{101, 103}, 40, 30);
+        model.put("4_RED", new int[]{101, 104}, 99, 99);
+        model.opr(101); // 先求一次，后续以此为初值
+
+        // 替换一条观测、删除一条观测
+        model.put("2_RED", new int[]{102, 103}, 44, 10);
+        model.remove("4_RED");
+
+        OprModel fresh = new OprModel();
+        fresh.put("1_RED", new int[]{101, 102}, 30, 20);
+        fresh.put("2_RED", new int[]{102, 103}, 44, 10);
+        fresh.put("3_RED", new int[]{101, 103}, 40, 30);
+
+        // A + B = 30, B + C = 44, A + C = 40  =>  A = 13, B = 17, C = 27
+        for (int team : new int[]{101, 102, 103}) {
+            assertEquals(fresh.opr(team), model.opr(team), 1e-6);
+            assertEquals(fresh.dpr(team), model.dpr(team), 1e-6);
+        }
+        assertEquals(13, model.opr(101), EPS);
+        assertEquals(17, model.opr(102), EPS);
+        assertEquals(27, model.opr(103), EPS);
+        assertEquals(0, model.opr(104), EPS);
+    }
+}
@@ -0,0 +1,63 @@
+package com.bear27570.ftc.scouting.services.domain;
+
+import com.bear27570.ftc.scouting.models.Competition;
+import com.bear27570.ftc.scouting.models.ScoreEntry;
+import com.bear27570.ftc.scouting.models.TeamRanking;
+import com.bear27570.ftc.scouting.repository.CompetitionDataRepository;
+import com.bear27570.ftc.scouting.repository.CompetitionRepository;
+import com.bear27570.ftc.scouting.repository.PenaltyRepository;
+import com.bear27570.ftc.scouting.repository.ScoreRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 快照只在数据版本一致时复用缓存的引擎状态：行数相同但内容被改过的数据必须触发重建。
+ */
+class RankingEngineSnapshotTest {
+
+    private static final String COMPETITION = "Test Cup";
+
+    private final RankingEngine engine = new RankingEngine(mock(ScoreRepository.class), mock(PenaltyRepository.class),
+            mock(CompetitionRepository.class), new ShotEventCache());
+
+    private static CompetitionDataRepository.CompetitionData data(long dataVersion, int team1Teleop) {
+        Competition competition = new Competition(COMPETITION, "host", "total");
+        competition.setDataVersion(dataVersion);
+        List<ScoreEntry> scores = new ArrayList<>();
+        for (int match = 1; match <= 3; match++) {
+            ScoreEntry score = new ScoreEntry(ScoreEntry.Type.SINGLE, match, "RED", 100, 0,
+                    5, 0, "", "", "", "", match == 1 ? team1Teleop : 10,
+                    false, false, false, false, false, false, false, false, "", "scout");
+            score.setId(match);
+            scores.add(score);
+        }
+        return new CompetitionDataRepository.CompetitionData(competition, scores, Map.of(), Map.of());
+    }
+
+    private static double rating(List<TeamRanking> rankings) {
+        return rankings.stream().filter(r -> r.getTeamNumber() == 100).findFirst().orElseThrow().getRating();
+    }
+
+    @Test
+    void editedDataWithSameRowCountIsRebuilt() {
+        double before = rating(engine.snapshot(COMPETITION, data(7, 10)).getRankings());
+        // 其他进程改了一行：行数不变，版本号前进
+        double after = rating(engine.snapshot(COMPETITION, data(8, 40)).getRankings());
+        assertNotEquals(before, after, 1e-9);
+        assertEquals(rating(RankingEngine.compute(data(8, 40))), after, 1e-9);
+    }
+
+    @Test
+    void sameVersionReusesCachedState() {
+        double built = rating(engine.snapshot(COMPETITION, data(7, 10)).getRankings());
+        // 同一版本号下传入的数据不会被重新计算，说明复用了缓存的状态
+        double reused = rating(engine.snapshot(COMPETITION, data(7, 40)).getRankings());
+        assertEquals(built, reused, 1e-9);
+    }
+}
@@ -0,0 +1,85 @@
+package com.bear27570.ftc.scouting.services.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 评分公式编译器：常量折叠、运算符优先级 / 结合性、除零退回值。
+ */
+class RatingFormulaTest {
+
+    private static double[] vars(double auto, double teleop, double total) {
+        double[] v = new double[RatingFormula.VARIABLE_COUNT];
+        v[RatingFormula.AUTO] = auto;
+        v[RatingFormula.TELEOP] = teleop;
+        v[RatingFormula.TOTAL] = total;
+        return v;
+    }
+
+    private static double eval(String formula, double[] v) {
+        RatingFormula compiled = RatingFormula.compile(formula);
+        assertTrue(compiled.isValid(), () -> formula + ": " + compiled.getError());
+        return compiled.evaluate(v);
+    }
+
+    @Test
+    void precedenceAndAssociativity() {
+        double[] v = vars(4, 6, 30);
+        assertEquals(14, eval("2 + 3 * 4", v));
+        assertEquals(20, eval("(2 + 3) * 4", v));
+        assertEquals(3, eval("10 - 4 - 3", v));
+        assertEquals(1, eval("12 / 4 / 3", v));
+        assertEquals(512, eval("2 ^ 3 ^ 2", v));
+        assertEquals(2, eval("8 % 3", v));
+        assertEquals(-2, eval("-auto + teleop - 4", v));
+        assertEquals(4 + 6 * 3, eval("auto + teleop * 3", v));
+        assertEquals(30 / 2.0 + 4, eval("total / 2 + auto", v));
+    }
+
+    @Test
+    void constantSubtreesAreFolded() {
+        // 常量部分与变量无关，结果应与逐项计算一致
+        assertEquals(Math.PI * 2 + 30, eval("pi * 2 + total", vars(0, 0, 30)), 1e-12);
+        assertEquals(Math.sqrt(16) * 3 + 7, eval("sqrt(16) * 3 + auto", vars(7, 0, 0)), 1e-12);
+        assertEquals(42, eval("6 * 7", vars(1, 2, 3)));
+        assertEquals(42, eval("6 * 7", vars(-5, 100, 0)));
+    }
+
+    @Test
+    void divisionByZeroUsesFallback() {
+        RatingFormula byVariable = RatingFormula.compile("total / teleop");
+        assertTrue(byVariable.isValid());
+        assertEquals(5, byVariable.evaluate(vars(0, 6, 30), -1));
+        assertEquals(-1, byVariable.evaluate(vars(0, 0, 30), -1));
+        assertTrue(Double.isNaN(byVariable.evaluate(vars(0, 0, 30))));
+
+        assertEquals(-1, RatingFormula.compile("total % teleop").evaluate(vars(0, 0, 30), -1));
+
+        // 常量除零不会让公式变成非法，求值时同样退回
+        RatingFormula constant = RatingFormula.compile("total + 1 / 0");
+        assertTrue(constant.isValid());
+        assertEquals(-1, constant.evaluate(vars(0, 0, 30), -1));
+    }
+
+    @Test
+    void otherNaNsAreNotMasked() {
+        assertTrue(Double.isNaN(RatingFormula.compile("sqrt(auto - 10)").evaluate(vars(4, 0, 0), 99)));
+        assertEquals(Double.POSITIVE_INFINITY, RatingFormula.compile("0 ^ -1").evaluate(vars(0, 0, 0), 99));
+    }
+
+    @Test
+    void invalidAndDefaultFormulas() {
+        RatingFormula invalid = RatingFormula.compile("total +");
+        assertFalse(invalid.isValid());
+        assertNotNull(invalid.getError());
+        assertTrue(Double.isNaN(invalid.evaluate(vars(1, 2, 3), 99)));
+
+        assertFalse(RatingFormula.compile("unknownVar * 2").isValid());
+        assertEquals(RatingFormula.DEFAULT_FORMULA, RatingFormula.compile("  ").getSource());
+        assertEquals(3, RatingFormula.compile(null).evaluate(vars(1, 2, 3)));
+
+        assertTrue(RatingFormula.compile("teamAuto * 2 + total").usesTeamVariables());
+        assertFalse(RatingFormula.compile("auto * 2 + total").usesTeamVariables());
+    }
+}
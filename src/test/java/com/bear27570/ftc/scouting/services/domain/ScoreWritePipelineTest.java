@@ -0,0 +1,76 @@
+package com.bear27570.ftc.scouting.services.domain;
+
+import com.bear27570.ftc.scouting.models.JournalEvent;
+import com.bear27570.ftc.scouting.models.ScoreEntry;
+import com.bear27570.ftc.scouting.repository.PenaltyRepository;
+import com.bear27570.ftc.scouting.repository.ScoreRepository;
+import com.bear27570.ftc.scouting.repository.SubmissionJournal;
+import com.bear27570.ftc.scouting.services.domain.impl.MatchDataServiceImpl;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 组提交失败后逐条重试：每条成绩在日志里只出现一次，且全部序号都已确认或放弃。
+ */
+class ScoreWritePipelineTest {
+
+    private static final String COMPETITION = "Test Cup";
+
+    @TempDir
+    Path dir;
+
+    private static ScoreEntry score(int matchNumber) {
+        return new ScoreEntry(ScoreEntry.Type.ALLIANCE, matchNumber, "RED", 100 + matchNumber, 200 + matchNumber,
+                10, 5, "", "", "", "", 12, true, false, false, true, false, false, false, false, "", "scout");
+    }
+
+    @Test
+    void failedGroupCommitIsRetriedWithoutJournalingTwice() throws IOException {
+        ScoreRepository scoreRepository = mock(ScoreRepository.class);
+        doThrow(new IllegalStateException("constraint violation")).when(scoreRepository).saveAll(anyString(), anyList());
+        AtomicInteger ids = new AtomicInteger();
+        doAnswer(inv -> {
+            ScoreEntry entry = inv.getArgument(1);
+            // 第 2 场是坏数据，单条写入同样失败
+            if (entry.getMatchNumber() == 2) throw new IllegalStateException("bad row");
+            entry.setId(ids.incrementAndGet());
+            return null;
+        }).when(scoreRepository).save(anyString(), any());
+
+        try (SubmissionJournal journal = new SubmissionJournal(dir, 1 << 16)) {
+            MatchDataService service = new MatchDataServiceImpl(scoreRepository, mock(PenaltyRepository.class), journal);
+            // 一批最多等 1 秒，三条一定落在同一批里
+            ScoreWritePipeline pipeline = new ScoreWritePipeline(service, 16, 16, 1_000);
+            for (int match = 1; match <= 3; match++) assertTrue(pipeline.submit(COMPETITION, score(match)));
+            pipeline.close();
+
+            verify(scoreRepository, times(1)).saveAll(anyString(), anyList());
+            verify(scoreRepository, times(3)).save(anyString(), any());
+
+            List<SubmissionJournal.Record> records = journal.read(1, Integer.MAX_VALUE);
+            Gson gson = new Gson();
+            assertEquals(List.of(1, 2, 3), records.stream()
+                    .peek(r -> assertEquals(SubmissionJournal.RecordType.SCORE_SAVED, r.type()))
+                    .map(r -> gson.fromJson(new String(r.payload(), StandardCharsets.UTF_8), JournalEvent.class))
+                    .map(e -> e.getScore().getMatchNumber())
+                    .toList());
+
+            // 成功的两条已确认、失败的一条已放弃，检查点可以推进到末尾
+            journal.checkpoint();
+            assertEquals(3, journal.getCheckpoint());
+        }
+    }
+}
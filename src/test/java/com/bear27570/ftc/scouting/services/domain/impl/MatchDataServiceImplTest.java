@@ -0,0 +1,98 @@
+package com.bear27570.ftc.scouting.services.domain.impl;
+
+import com.bear27570.ftc.scouting.models.PenaltyEntry;
+import com.bear27570.ftc.scouting.models.ScoreEntry;
+import com.bear27570.ftc.scouting.repository.PenaltyRepository;
+import com.bear27570.ftc.scouting.repository.ScoreRepository;
+import com.bear27570.ftc.scouting.repository.SubmissionJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 写库失败时日志序号必须被放弃，否则检查点会一直停在第一条失败记录之前。
+ */
+class MatchDataServiceImplTest {
+
+    private static final String COMPETITION = "Test Cup";
+
+    @TempDir
+    Path dir;
+
+    private SubmissionJournal journal;
+    private ScoreRepository scoreRepository;
+    private PenaltyRepository penaltyRepository;
+    private MatchDataServiceImpl service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        journal = new SubmissionJournal(dir, 1 << 16);
+        scoreRepository = mock(ScoreRepository.class);
+        penaltyRepository = mock(PenaltyRepository.class);
+        service = new MatchDataServiceImpl(scoreRepository, penaltyRepository, journal);
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.close();
+    }
+
+    static ScoreEntry score(int matchNumber, String alliance) {
+        return new ScoreEntry(ScoreEntry.Type.ALLIANCE, matchNumber, alliance, 100 + matchNumber, 200 + matchNumber,
+                10, 5, "", "", "", "", 12, true, false, false, true, false, false, false, false, "", "scout");
+    }
+
+    // 所有已追加的记录都已确认或放弃时，检查点可以一直推进到末尾
+    private void assertNothingPending() throws IOException {
+        journal.checkpoint();
+        assertEquals(journal.getLastSequence(), journal.getCheckpoint());
+    }
+
+    @Test
+    void successfulWritesAreApplied() throws IOException {
+        doAnswer(inv -> {
+            inv.<ScoreEntry>getArgument(1).setId(7);
+            return null;
+        }).when(scoreRepository).save(anyString(), any());
+
+        service.submitScore(COMPETITION, score(1, "RED"));
+        service.submitPenalty(COMPETITION, new PenaltyEntry(1, "RED", 1, 0, 40));
+
+        assertEquals(2, journal.getLastSequence());
+        assertNothingPending();
+    }
+
+    @Test
+    void swallowedSaveFailureIsAbandoned() throws IOException {
+        // 仓储层吞掉异常只记日志，id 保持 0
+        service.submitScore(COMPETITION, score(1, "RED"));
+
+        assertEquals(1, journal.getLastSequence());
+        assertNothingPending();
+    }
+
+    @Test
+    void thrownWriteFailuresAreAbandoned() throws IOException {
+        doThrow(new IllegalStateException("batch")).when(scoreRepository).saveAll(anyString(), anyList());
+        doThrow(new IllegalStateException("penalty")).when(penaltyRepository).savePenaltiesBatch(anyString(), anyList());
+
+        assertThrows(IllegalStateException.class,
+                () -> service.submitScores(COMPETITION, List.of(score(1, "RED"), score(1, "BLUE"))));
+        assertThrows(IllegalStateException.class,
+                () -> service.submitPenalties(COMPETITION, List.of(new PenaltyEntry(1, "RED", 0, 1, 30))));
+
+        assertEquals(3, journal.getLastSequence());
+        assertNothingPending();
+    }
+}
@@ -0,0 +1,81 @@
+package com.bear27570.ftc.scouting.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 投射点编码的往返测试：打包格式、旧文本格式，以及时间戳倒退（负的时间差）。
+ */
+class ShotEventCodecTest {
+
+    @Test
+    void packedRoundTrip() {
+        String stored = new ShotEventCodec.Writer()
+                .add(1, 12.34, 567.8, ShotEventCodec.STATE_HIT, 1_700_000_000_000L)
+                .add(2, 0, 0, ShotEventCodec.STATE_MISS, 1_700_000_000_250L)
+                .add(1, -3.2, 3276.7, ShotEventCodec.STATE_HIT, 1_700_000_060_000L)
+                .toStoredString();
+        assertTrue(ShotEventCodec.isPacked(stored));
+
+        ShotEventCodec.Cursor cursor = new ShotEventCodec.Cursor().reset(stored);
+        assertPoint(cursor, 1, 12.3, 567.8, ShotEventCodec.STATE_HIT, 1_700_000_000_000L);
+        assertPoint(cursor, 2, 0, 0, ShotEventCodec.STATE_MISS, 1_700_000_000_250L);
+        assertPoint(cursor, 1, -3.2, 3276.7, ShotEventCodec.STATE_HIT, 1_700_000_060_000L);
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    void negativeTimestampDeltas() {
+        // 时钟回拨或主机与从机时间不一致时，后一点的时间戳可能更早
+        long[] timestamps = {5_000, 4_999, 0, -1_000, Long.MAX_VALUE / 2, 1};
+        ShotEventCodec.Writer writer = new ShotEventCodec.Writer();
+        for (int i = 0; i < timestamps.length; i++) writer.add(1, i, i, ShotEventCodec.STATE_HIT, timestamps[i]);
+
+        ShotEventCodec.Cursor cursor = new ShotEventCodec.Cursor().reset(writer.toStoredString());
+        for (int i = 0; i < timestamps.length; i++) {
+            assertTrue(cursor.next());
+            assertEquals(timestamps[i], cursor.timestamp());
+        }
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    void legacyTextIsReadAndNormalized() {
+        String legacy = "1:100.5,200.0,0,1000;2:50.0,60.0,1,900;bad;1:7.0,8.0";
+
+        ShotEventCodec.Cursor cursor = new ShotEventCodec.Cursor().reset(legacy);
+        assertPoint(cursor, 1, 100.5, 200.0, ShotEventCodec.STATE_HIT, 1000);
+        assertPoint(cursor, 2, 50.0, 60.0, ShotEventCodec.STATE_MISS, 900);
+        // 格式错误的片段被跳过；缺少状态和时间戳时按命中、0 处理
+        assertPoint(cursor, 1, 7.0, 8.0, ShotEventCodec.STATE_HIT, 0);
+        assertFalse(cursor.next());
+
+        String packed = ShotEventCodec.normalize(legacy);
+        assertTrue(ShotEventCodec.isPacked(packed));
+        assertSame(packed, ShotEventCodec.normalize(packed));
+        cursor.reset(packed);
+        assertPoint(cursor, 1, 100.5, 200.0, ShotEventCodec.STATE_HIT, 1000);
+        assertPoint(cursor, 2, 50.0, 60.0, ShotEventCodec.STATE_MISS, 900);
+        assertPoint(cursor, 1, 7.0, 8.0, ShotEventCodec.STATE_HIT, 0);
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    void emptyInput() {
+        assertEquals("", new ShotEventCodec.Writer().toStoredString());
+        assertEquals("", ShotEventCodec.normalize(""));
+        assertNull(ShotEventCodec.normalize(null));
+        assertFalse(new ShotEventCodec.Cursor().reset(null).next());
+        assertFalse(new ShotEventCodec.Cursor().reset("~!!").next());
+    }
+
+    private static void assertPoint(ShotEventCodec.Cursor cursor, int team, double x, double y, int state, long timestamp) {
+        assertTrue(cursor.next());
+        assertEquals(team, cursor.team());
+        assertEquals(x, cursor.x(), 1e-9);
+        assertEquals(y, cursor.y(), 1e-9);
+        assertEquals(state, cursor.state());
+        assertEquals(timestamp, cursor.timestamp());
+    }
+}